@@ -0,0 +1,27 @@
+package simulator.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Runs the JMH benchmarks. Unless a result format is given, results are
+ * also written as JSON to jmh-result.json, so that runs can be kept and
+ * compared over time.
+ *
+ * Usage: java -jar benchmarks.jar [JMH options] [benchmark patterns]
+ */
+public final class Benchmarks {
+	public static final String DEFAULT_RESULT_FORMAT = "json";
+	
+	private Benchmarks() {}
+	
+	public static void main(String[] args) throws Exception {
+		List<String> options = new ArrayList<>(Arrays.asList(args));
+		if (!options.contains("-rf")) {
+			options.add(0, "-rf");
+			options.add(1, DEFAULT_RESULT_FORMAT);
+		}
+		org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+	}
+}
\ No newline at end of file
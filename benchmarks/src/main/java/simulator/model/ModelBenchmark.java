@@ -0,0 +1,88 @@
+package simulator.model;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.animator.AnimatorFactory;
+import simulator.timeserver.TimeServerFactory;
+
+/*
+ * A whole headless simulation of a rows x columns grid, built afresh for
+ * each run so that every run starts from empty roads.
+ * 
+ * The parallel timeservers give each column of lights, and the road of each
+ * row and column, a region. On a square grid the load is spread evenly over
+ * the partitions; on 2x40 the two row roads, which cross every light, fall
+ * in the first two partitions and make them much busier than the rest, the
+ * case ADAPTIVE rebalances for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ModelBenchmark {
+	
+	@Param({"2x2", "5x5", "10x10", "2x40"})
+	public String grid;
+	
+	@Param({"SIMPLE", "ALTERNATING"})
+	public TrafficPattern pattern;
+	
+	@Param({"HEAP", "BATCH", "PARTITIONED", "ADAPTIVE"})
+	public TimeServerFactory scheduler;
+	
+	/* simulated seconds */
+	@Param({"1000"})
+	public double time;
+	
+	private Model _model;
+	private PrintStream _out;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		// the model and its lights report on standard out
+		this._out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {}
+		}));
+		
+		String[] size = this.grid.split("x");
+		ModelBuilder.changeModelGridSize(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+		ModelBuilder.changeTrafficPatternn(this.pattern);
+		ModelBuilder.changeModelTime(this.time);
+		ModelBuilder.changeModelTimeServer(this.scheduler);
+		ModelBuilder.changeAnimator(AnimatorFactory.NONE);
+	}
+	
+	@Setup(Level.Invocation)
+	public void newModel() {
+		this._model = ModelBuilder.BUILDER.newModel();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(this._out);
+	}
+	
+	@Benchmark
+	public Model simulate() {
+		this._model.simulate();
+		return this._model;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package simulator.moveable;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.intersection.Intersection;
+import simulator.intersection.TwoWayTrafficLight;
+import simulator.road.Road;
+import simulator.road.RoadBuilder;
+
+/*
+ * One move of a car on an open road, in double and in exact arithmetic.
+ * The car starts just short of where a light would be, and either has no
+ * intersection ahead (NONE), a green light it drives through (GO), or a
+ * red one it stops at (STOP).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarBenchmark {
+	private static final double SEGMENT_LENGTH = 300;
+	private static final double LIGHT_LENGTH = 10;
+	// one move takes the car past the rear of a green light
+	private static final double VELOCITY = 25;
+	private static final double START = SEGMENT_LENGTH - 5;
+	
+	@Param({"NONE", "GO", "STOP"})
+	public String ahead;
+	
+	@Param({"false", "true"})
+	public boolean exact;
+	
+	private Car _car;
+	private double _closestOccupiedPosition;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		RoadBuilder.BUILDER.setOrientation(Orientation.EAST).setLength(SEGMENT_LENGTH, SEGMENT_LENGTH);
+		if (!this.ahead.equals("NONE")) {
+			// a light starts green along the first road through it
+			Intersection light = new TwoWayTrafficLight(LIGHT_LENGTH, 60, 4);
+			if (this.ahead.equals("STOP"))
+				RoadBuilder.BUILDER.setOrientation(Orientation.SOUTH).addIntersection(light).build();
+			RoadBuilder.BUILDER.setOrientation(Orientation.EAST).setLength(SEGMENT_LENGTH, SEGMENT_LENGTH);
+			RoadBuilder.BUILDER.addIntersection(light);
+		}
+		Road road = RoadBuilder.BUILDER.build();
+		
+		CarFactory.setExactArithmetic(this.exact);
+		CarFactory.setMaxVelocity(VELOCITY, VELOCITY);
+		CarFactory.setLength(5, 5);
+		CarFactory.setBrakeDistance(9, 9);
+		CarFactory.setStopDistance(1, 1);
+		this._car = CarFactory.CUSTOM.newCar(road);
+		this._closestOccupiedPosition = road.getLength() * 2;
+	}
+	
+	@Benchmark
+	public MoveableStatus move() {
+		this._car.moveTo(START, MoveableStatus.ACCELERATE);
+		return this._car.move(1, this._closestOccupiedPosition);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package simulator.road;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.intersection.Intersection;
+import simulator.intersection.TwoWayTrafficLight;
+import simulator.moveable.CarFactory;
+import simulator.moveable.Orientation;
+
+/*
+ * One tick of a road with a few traffic lights, in each storage mode: the
+ * lights run, then the road moves its cars. The road is filled to the given
+ * number of cars before measuring, and topped up by a car every EMIT_TICKS
+ * ticks as cars leave it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoadBenchmark {
+	private static final double TIME_STEP = 0.1;
+	private static final int LIGHTS_PER_ROAD = 4;
+	private static final int EMIT_TICKS = 20;
+	// road length per car, so that the road fills before its first car leaves
+	private static final double LENGTH_PER_CAR = 60;
+	
+	@Param({"10", "100", "1000"})
+	public int cars;
+	
+	@Param({"OBJECTS", "ARRAYS"})
+	public RoadStorage storage;
+	
+	private RoadObj _road;
+	private final ArrayList<Intersection> _lights = new ArrayList<>();
+	private long _tick;
+	private PrintStream _out;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		// lights report cars caught in intersections on standard out
+		this._out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {}
+		}));
+		
+		double segmentLength = this.cars * LENGTH_PER_CAR / (LIGHTS_PER_ROAD + 1);
+		RoadBuilder.BUILDER.setOrientation(Orientation.EAST).setStorage(this.storage);
+		RoadBuilder.BUILDER.setLength(segmentLength, segmentLength);
+		for (int light = 0; light < LIGHTS_PER_ROAD; light++) {
+			Intersection intersection = new TwoWayTrafficLight();
+			RoadBuilder.BUILDER.addIntersection(intersection);
+			this._lights.add(intersection);
+		}
+		this._road = (RoadObj) RoadBuilder.BUILDER.build();
+		
+		while (this._road.moveableCount() < this.cars)
+			this.tick();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(this._out);
+	}
+	
+	@Benchmark
+	public int tick() {
+		if (this._tick++ % EMIT_TICKS == 0 && this._road.moveableCount() < this.cars)
+			this._road.addMoveable(CarFactory.RANDOM.newCar(this._road));
+		for (Intersection light : this._lights)
+			light.run(TIME_STEP);
+		this._road.run(TIME_STEP);
+		return this._road.moveableCount();
+	}
+}
\ No newline at end of file
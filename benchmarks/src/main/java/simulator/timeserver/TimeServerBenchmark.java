@@ -0,0 +1,93 @@
+package simulator.timeserver;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+/*
+ * The timeserver implementations on the fixed-step workload produced by the
+ * model: every agent starts at the same waketime and is re-enqueued one time
+ * step later after each run.
+ * 
+ * enqueue fills an empty timeserver with every agent, and run runs one tick
+ * of a full one; divide by the number of agents for the cost of one event.
+ * The linked list is quadratic per tick, so it is left out by default; add
+ * it with -p scheduler=LINKED.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeServerBenchmark {
+	// whole seconds, so that waketimes add up exactly
+	private static final double TIME_STEP = 1;
+	
+	private static final class NullAgent implements TimeAgent {
+		long _runs;
+
+		@Override
+		public void run(double tempoFactor) {
+			this._runs++;
+		}
+
+		@Override
+		public String state() {
+			return "";
+		}
+	}
+
+	private static final class NullAnimator implements Animator {
+		@Override
+		public void agentRan(TimeAgent agent) {}
+	}
+	
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int agents;
+	
+	@Param({"HEAP", "CALENDAR", "BATCH", "PARALLEL", "PARTITIONED", "ADAPTIVE"})
+	public TimeServerFactory scheduler;
+	
+	private NullAgent[] _agents;
+	private TimeServer _empty;
+	private TimeServer _full;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		this._agents = new NullAgent[this.agents];
+		for (int idx = 0; idx < this.agents; idx++)
+			this._agents[idx] = new NullAgent();
+		
+		this._empty = this.scheduler.newTimeServer(TIME_STEP, new NullAnimator());
+		this._full = this.scheduler.newTimeServer(TIME_STEP, new NullAnimator());
+		for (NullAgent agent : this._agents)
+			this._full.enqueue(TIME_STEP, agent);
+	}
+	
+	@Benchmark
+	public TimeServer enqueue() {
+		this._empty.reset();
+		for (NullAgent agent : this._agents)
+			this._empty.enqueue(TIME_STEP, agent);
+		return this._empty;
+	}
+	
+	@Benchmark
+	public double run() {
+		this._full.run(TIME_STEP);
+		return this._full.currentTime();
+	}
+}
\ No newline at end of file
@@ -1,8 +1,16 @@
 package simulator.UI;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import simulator.animator.AnimatorFactory;
+import simulator.animator.BackPressure;
 import simulator.model.Model;
 import simulator.model.ModelBuilder;
 import simulator.model.TrafficPattern;
+import simulator.road.RoadNetworkReader;
+import simulator.road.RoadStorage;
+import simulator.timeserver.TimeServerFactory;
 
 class Control {
 	private static final int EXITED = 0;
@@ -19,6 +27,9 @@ class Control {
 	private UIForm _getSingleValueForm;
 	private UIForm _getStringValueForm;
 	private UIForm _getGridValueForm;
+	private UIForm _getSeedValueForm;
+	private UIForm _getProbabilityValueForm;
+	private UIForm _getIntervalValueForm;
   
 	Control (UI ui, ModelBuilder modelBuilder) {
 		this._ui = ui;
@@ -41,6 +52,39 @@ class Control {
 			}
 		};
 		
+		UIFormTest geZeroTest = new UIFormTest() {
+			public boolean run(String input) {
+				try {
+					double i = Double.parseDouble(input);
+					return i >= 0;
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+		};
+		
+		UIFormTest longTest = new UIFormTest() {
+			public boolean run(String input) {
+				try {
+					Long.parseLong(input.trim());
+					return true;
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+		};
+		
+		UIFormTest probabilityTest = new UIFormTest() {
+			public boolean run(String input) {
+				try {
+					double p = Double.parseDouble(input);
+					return p >= 0 && p <= 1;
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+		};
+		
 		UIFormTest stringTest = new UIFormTest() {
 			public boolean run(String input) {
 				return ! "".equals(input.trim());
@@ -64,6 +108,18 @@ class Control {
 		i.add("Integer rows : ", gtZeroTest);
 		i.add("Integer columns :", gtZeroTest);
 		this._getGridValueForm = i.toUIForm("Enter grid size:");
+		
+		UIFormBuilder j = new UIFormBuilder();
+		j.add("Integer seed (0 for a new seed per run): ", longTest);
+		this._getSeedValueForm = j.toUIForm("Enter random seed:");
+		
+		UIFormBuilder k = new UIFormBuilder();
+		k.add("Probability (0 to 1 inclusive): ", probabilityTest);
+		this._getProbabilityValueForm = k.toUIForm("Enter probability:");
+		
+		UIFormBuilder l = new UIFormBuilder();
+		l.add("Seconds (0 for never): ", geZeroTest);
+		this._getIntervalValueForm = l.toUIForm("Enter interval:");
 	}
   
 	void run() {
@@ -159,6 +215,38 @@ class Control {
 			}
 		});
 		
+		m.add("Simulation random seed",new UIMenuAction() {
+			public void run() {
+				String[] result1 = Control.this._ui.processForm(Control.this._getSeedValueForm);
+				long value = Long.parseLong(result1[0].trim());
+				Control.this._modelBuilder.changeModelSeed(value);
+			}
+		});
+		
+		m.add("Simulation scheduler",new UIMenuAction() {
+			public void run() {
+				String[] result1 = Control.this._ui.processForm(Control.this._getStringValueForm);
+				TimeServerFactory value = TimeServerFactory.toTimeServerFactory(result1[0]);
+				Control.this._modelBuilder.changeModelTimeServer(value);
+			}
+		});
+		
+		m.add("Simulation animator",new UIMenuAction() {
+			public void run() {
+				String[] result1 = Control.this._ui.processForm(Control.this._getStringValueForm);
+				AnimatorFactory value = AnimatorFactory.toAnimatorFactory(result1[0]);
+				Control.this._modelBuilder.changeAnimator(value);
+			}
+		});
+		
+		m.add("Simulation animator back pressure",new UIMenuAction() {
+			public void run() {
+				String[] result1 = Control.this._ui.processForm(Control.this._getStringValueForm);
+				BackPressure value = BackPressure.toBackPressure(result1[0]);
+				Control.this._modelBuilder.changeAnimatorBackPressure(value);
+			}
+		});
+		
 		m.add("Simulation grid size",new UIMenuAction() {
 			public void run() {
 				String[] result1 = Control.this._ui.processForm(Control.this._getGridValueForm);
@@ -168,6 +256,41 @@ class Control {
 			}
 		});
 		
+		m.add("Simulation road network file",new UIMenuAction() {
+			public void run() {
+				String[] result1 = Control.this._ui.processForm(Control.this._getStringValueForm);
+				try {
+					Control.this._modelBuilder.changeModelNetwork(RoadNetworkReader.read(Paths.get(result1[0].trim())));
+				} catch (IOException | IllegalArgumentException e) {
+					Control.this._ui.displayError("Cannot read the network: " + e.getMessage());
+				}
+			}
+		});
+		
+		m.add("Simulation road network turn probability",new UIMenuAction() {
+			public void run() {
+				String[] result1 = Control.this._ui.processForm(Control.this._getProbabilityValueForm);
+				double value = Double.parseDouble(result1[0]);
+				Control.this._modelBuilder.changeTurnProbability(value);
+			}
+		});
+		
+		m.add("Simulation road network trip share",new UIMenuAction() {
+			public void run() {
+				String[] result1 = Control.this._ui.processForm(Control.this._getProbabilityValueForm);
+				double value = Double.parseDouble(result1[0]);
+				Control.this._modelBuilder.changeTripShare(value);
+			}
+		});
+		
+		m.add("Simulation road network route refresh interval",new UIMenuAction() {
+			public void run() {
+				String[] result1 = Control.this._ui.processForm(Control.this._getIntervalValueForm);
+				double value = Double.parseDouble(result1[0]);
+				Control.this._modelBuilder.changeRouteRefreshInterval(value);
+			}
+		});
+		
 		m.add("Simulation traffic pattern",new UIMenuAction() {
 			public void run() {
 				String[] result1 = Control.this._ui.processForm(Control.this._getStringValueForm);
@@ -195,6 +318,14 @@ class Control {
 			}
 		});
 		
+		m.add("Simulation road storage",new UIMenuAction() {
+			public void run() {
+				String[] result1 = Control.this._ui.processForm(Control.this._getStringValueForm);
+				RoadStorage value = RoadStorage.toRoadStorage(result1[0]);
+				Control.this._modelBuilder.changeRoadStorage(value);
+			}
+		});
+		
 		m.add("Simulation intersection length",new UIMenuAction() {
 			public void run() {
 				String[] result1 = Control.this._ui.processForm(Control.this._getMinMaxValueForm);
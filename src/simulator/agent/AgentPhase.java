@@ -0,0 +1,9 @@
+package simulator.agent;
+
+/*
+ * The kind of work an agent does within a tick. Schedulers that run a whole
+ * tick as one batch use it to order agents sharing a waketime.
+ */
+public enum AgentPhase {
+	SOURCE, INTERSECTION, ROAD, OTHER;
+}
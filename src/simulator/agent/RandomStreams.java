@@ -0,0 +1,42 @@
+package simulator.agent;
+
+import java.util.SplittableRandom;
+
+/*
+ * Independent streams of random numbers, one for each agent. A model splits
+ * the streams of its agents from its seed, in the order it builds them, so
+ * that what an agent draws depends only on the seed and on the agent: not
+ * on the order agents run in, nor on the threads that run them.
+ * 
+ * Agents built outside a model split theirs from a root seeded at random.
+ */
+public final class RandomStreams {
+	private static final SplittableRandom ROOT = new SplittableRandom();
+	
+	private RandomStreams() {}
+	
+	/*
+	 * @return a stream independent of every other one split from the root
+	 */
+	public static synchronized SplittableRandom split() {
+		return ROOT.split();
+	}
+	
+	/*
+	 * @return a seed drawn at random, never 0
+	 */
+	public static synchronized long newSeed() {
+		long seed;
+		do {
+			seed = ROOT.nextLong();
+		} while (seed == 0);
+		return seed;
+	}
+	
+	/*
+	 * @return a value drawn uniformly from [min, max), or min if they are equal
+	 */
+	public static double between(SplittableRandom random, double min, double max) {
+		return min + (max - min) * random.nextDouble();
+	}
+}
\ No newline at end of file
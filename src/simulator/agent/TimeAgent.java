@@ -2,6 +2,12 @@ package simulator.agent;
 
 public interface TimeAgent {
 	
+	/*
+	 * Returned by stepsUntilNextRun by an agent that has nothing to do until
+	 * another agent wakes it.
+	 */
+	public static final int UNTIL_WOKEN = Integer.MAX_VALUE;
+	
 	/*
 	 * Run the agent at a particular tempo factor.
 	 *
@@ -9,4 +15,41 @@ public interface TimeAgent {
 	public void run (double tempoFactor);
 	
 	public String state();
+	
+	/*
+	 * Asked by the timeserver once the agent has run: the number of time steps
+	 * after which it next has work to do. An agent asked for n steps is run once
+	 * n steps later, and must then catch up on all n steps at the same tempo
+	 * factor. Agents that return UNTIL_WOKEN are not re-enqueued.
+	 *
+	 * By default agents poll on every time step.
+	 */
+	public default int stepsUntilNextRun(double tempoFactor) {
+		return 1;
+	}
+	
+	/*
+	 * The phase of a tick in which the agent runs when the timeserver batches
+	 * agents that share a waketime.
+	 */
+	public default AgentPhase phase() {
+		return AgentPhase.OTHER;
+	}
+	
+	/*
+	 * Whether the state of the agent changed when it last ran, for animators
+	 * that only show what changed. Agents that do not track their changes
+	 * report that they did.
+	 */
+	public default boolean changed() {
+		return true;
+	}
+	
+	/*
+	 * The part of the state that changed when the agent last ran, for the
+	 * same animators; by default the whole state.
+	 */
+	public default String changes() {
+		return this.state();
+	}
 }
@@ -1,7 +1,7 @@
 package simulator.animator;
 
-import java.util.Observer;
+import simulator.timeserver.TimeServerListener;
 
-public interface Animator extends Observer {
+public interface Animator extends TimeServerListener {
 	
-}
\ No newline at end of file
+}
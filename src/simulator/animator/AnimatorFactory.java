@@ -0,0 +1,80 @@
+package simulator.animator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import simulator.agent.TimeAgent;
+import simulator.metrics.TrafficMetrics;
+import simulator.trace.TraceWriter;
+
+/*
+ * The animators a model can be watched through.
+ */
+public enum AnimatorFactory {
+	TEXT {
+		@Override
+		public Animator newAnimator(BackPressure policy) {
+			return new TextAnimator();
+		}
+	},
+	ASYNC_TEXT {
+		@Override
+		public Animator newAnimator(BackPressure policy) {
+			return new AsyncTextAnimator(policy);
+		}
+	},
+	/* only prints what changed, with periodic keyframes */
+	DELTA_TEXT {
+		@Override
+		public Animator newAnimator(BackPressure policy) {
+			return new DeltaTextAnimator();
+		}
+	},
+	/* writes a binary trace to TraceWriter.DEFAULT_FILE */
+	TRACE {
+		@Override
+		public Animator newAnimator(BackPressure policy) {
+			try {
+				return new TraceWriter(Paths.get(TraceWriter.DEFAULT_FILE));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	},
+	/* runs headless, and prints a summary of traffic metrics at the end */
+	METRICS {
+		@Override
+		public Animator newAnimator(BackPressure policy) {
+			return new TrafficMetrics();
+		}
+	},
+	/* runs headless */
+	NONE {
+		@Override
+		public Animator newAnimator(BackPressure policy) {
+			return new Animator() {
+				@Override
+				public void agentRan(TimeAgent agent) {}
+			};
+		}
+	},
+	NOT_DEFINED {
+		@Override
+		public Animator newAnimator(BackPressure policy) {
+			throw new IllegalStateException ("Animator is not defined");
+		}
+	};
+	
+	/*
+	 * The policy only applies to asynchronous animators.
+	 */
+	public abstract Animator newAnimator(BackPressure policy);
+	
+	public static AnimatorFactory toAnimatorFactory (String valueToMatch) {
+		for (AnimatorFactory factory : AnimatorFactory.values()) {
+			if (factory.name().equals(valueToMatch.toUpperCase().trim()))
+				return factory;
+		}
+		return NOT_DEFINED;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,253 @@
+package simulator.animator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ArrayBlockingQueue;
+import simulator.agent.TimeAgent;
+
+/*
+ * A text animator that writes on a background thread. The state of every
+ * agent run in a tick is captured into a frame on the simulation thread, and
+ * the frame is handed to the writer through a bounded ring of frames. The
+ * writer encodes frames into a large buffer and writes it to a channel over
+ * the output stream when full, and at the end of each run.
+ *
+ * The writer thread is started by the first tick of a run and joined at the
+ * end of it, so no thread is left behind once the model is done. An output
+ * failure is reported at the end of the run it happened in.
+ *
+ * Frames are recycled between the two threads, so a steady run allocates
+ * nothing. When every frame is waiting to be written the back-pressure policy
+ * decides whether the simulation waits or the tick is skipped; a skipped
+ * tick does not even build its agents' state.
+ *
+ * The output is the same as TextAnimator's for every tick written.
+ */
+public final class AsyncTextAnimator implements Animator, Closeable {
+	public static final int DEFAULT_FRAMES = 64;
+	public static final int DEFAULT_SAMPLE_INTERVAL = 10;
+	private static final int BUFFER_BYTES = 1 << 20;
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private static final class Frame {
+		final StringBuilder text = new StringBuilder();
+		// the text copied out for encoding; encoders are much faster on arrays
+		char[] chars = new char[0];
+	}
+
+	// frames ready to capture a tick, and frames waiting to be written
+	private final ArrayBlockingQueue<Frame> _free;
+	private final ArrayBlockingQueue<Frame> _full;
+	// queued behind the frames of a run to have the writer flush them and stop
+	private final Frame _flush = new Frame();
+	private final BackPressure _policy;
+	private final int _sampleInterval;
+	private final OutputStream _out;
+	private final WritableByteChannel _channel;
+	private final CharsetEncoder _encoder = Charset.defaultCharset().newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	// a heap buffer: the channel of a stream copies out of an array anyway
+	private final ByteBuffer _buffer = ByteBuffer.allocate(BUFFER_BYTES);
+	// set by the writer, and read and cleared once it has been joined
+	private IOException _failure;
+
+	/*
+	 * simulation thread state
+	 */
+	// null between runs
+	private Thread _writer;
+	// the frame capturing the current tick, null if the tick is skipped
+	private Frame _frame;
+	private long _ticks;
+	private long _skipped;
+
+	public AsyncTextAnimator(BackPressure policy) {
+		this(policy, DEFAULT_FRAMES, DEFAULT_SAMPLE_INTERVAL, System.out);
+	}
+
+	public AsyncTextAnimator(BackPressure policy, int frames, int sampleInterval, OutputStream out) {
+		if (policy == null || out == null)
+			throw new NullPointerException ("Policy and output arguments cannot be null");
+		if (policy.equals(BackPressure.NOT_DEFINED))
+			throw new IllegalArgumentException ("Policy must be defined");
+		if (frames < 1 || sampleInterval < 1)
+			throw new IllegalArgumentException ("Frames and sample interval must be gt 0");
+
+		this._policy = policy;
+		this._sampleInterval = sampleInterval;
+		this._out = out;
+		this._channel = Channels.newChannel(out);
+		this._free = new ArrayBlockingQueue<>(frames);
+		// room for every frame and the flush marker, so handing over never waits
+		this._full = new ArrayBlockingQueue<>(frames + 1);
+		for (int idx = 0; idx < frames; idx++)
+			this._free.add(new Frame());
+	}
+
+	/*
+	 * Ticks skipped under the DROP and SAMPLE policies
+	 */
+	public long skippedTicks() {
+		return this._skipped;
+	}
+
+	@Override
+	public void tickStarted(double time) {
+		if (this._writer == null) {
+			this._writer = new Thread(this::write, "async-text-animator");
+			this._writer.setDaemon(true);
+			this._writer.start();
+		}
+		this._ticks++;
+		switch (this._policy) {
+			case DROP: {
+				this._frame = this._free.poll();
+				break;
+			}
+			case SAMPLE: {
+				this._frame = ((this._ticks - 1) % this._sampleInterval == 0) ? this.takeFrame() : null;
+				break;
+			}
+			default: {
+				this._frame = this.takeFrame();
+			}
+		}
+		if (this._frame == null)
+			this._skipped++;
+	}
+
+	@Override
+	public void agentRan(TimeAgent agent) {
+		if (this._frame != null)
+			this._frame.text.append(agent.state()).append(LINE_SEPARATOR);
+	}
+
+	@Override
+	public void tickEnded(double time) {
+		if (this._frame != null)
+			this._full.add(this._frame);
+		this._frame = null;
+	}
+
+	@Override
+	public void runEnded(double time) {
+		try {
+			this.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException ("Animator output failed", e);
+		}
+	}
+
+	/*
+	 * Waits until every captured tick has been written out, and stops the
+	 * writer; the next tick starts a new one. Throws, once, the output
+	 * failure of the run, if any.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this._writer == null)
+			return;
+		this._full.add(this._flush);
+		boolean interrupted = false;
+		while (this._writer.isAlive()) {
+			try {
+				this._writer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		this._writer = null;
+
+		IOException failure = this._failure;
+		this._failure = null;
+		if (failure != null)
+			throw failure;
+	}
+
+	/*
+	 * An interrupted simulation thread skips the tick and keeps its interrupt status.
+	 */
+	private Frame takeFrame() {
+		try {
+			return this._free.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	/*
+	 * The writer thread of a run. After an output failure frames are still
+	 * recycled, so the simulation is never blocked, but nothing more is written.
+	 */
+	private void write() {
+		while (true) {
+			Frame frame;
+			try {
+				frame = this._full.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			try {
+				if (frame == this._flush) {
+					this.drain(this._buffer);
+					if (this._failure == null)
+						this._out.flush();
+				} else if (this._failure == null) {
+					this.encode(this._encoder, frame, this._buffer);
+				}
+			} catch (IOException e) {
+				this._failure = e;
+			}
+
+			if (frame == this._flush)
+				return;
+			frame.text.setLength(0);
+			this._free.add(frame);
+		}
+	}
+
+	private void encode(CharsetEncoder encoder, Frame frame, ByteBuffer buffer) throws IOException {
+		int length = frame.text.length();
+		if (frame.chars.length < length)
+			frame.chars = new char[Math.max(length, 2 * frame.chars.length)];
+		frame.text.getChars(0, length, frame.chars, 0);
+		
+		CharBuffer chars = CharBuffer.wrap(frame.chars, 0, length);
+		try {
+			while (encoder.encode(chars, buffer, true).isOverflow())
+				this.drain(buffer);
+			while (encoder.flush(buffer).isOverflow())
+				this.drain(buffer);
+		} finally {
+			encoder.reset();
+		}
+	}
+
+	private void drain(ByteBuffer buffer) throws IOException {
+		if (this._failure != null) {
+			buffer.clear();
+			return;
+		}
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining())
+				this._channel.write(buffer);
+		} finally {
+			buffer.clear();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,181 @@
+package simulator.animator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CountDownLatch;
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.agent.TimeAgent;
+
+public class AsyncTextAnimatorTEST extends TestCase {
+
+	class MockAgent implements TimeAgent {
+		final String _state;
+
+		MockAgent(String state) {
+			this._state = state;
+		}
+
+		@Override
+		public void run(double tempoFactor) {}
+
+		@Override
+		public String state() {
+			return this._state;
+		}
+	}
+
+	/*
+	 * Holds every write until it is let go.
+	 */
+	class HeldOutputStream extends ByteArrayOutputStream {
+		final CountDownLatch _release = new CountDownLatch(1);
+
+		@Override
+		public synchronized void write(byte[] bytes, int offset, int length) {
+			try {
+				this._release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			super.write(bytes, offset, length);
+		}
+	}
+
+	class FailingOutputStream extends OutputStream {
+		final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+		volatile boolean _failing = true;
+
+		@Override
+		public void write(int b) throws IOException {
+			this.write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+			if (this._failing)
+				throw new IOException("Disk full");
+			this._bytes.write(bytes, offset, length);
+		}
+	}
+
+	public AsyncTextAnimatorTEST(String name) {
+		super(name);
+	}
+
+	private static void run(Animator animator, int ticks, TimeAgent... agents) {
+		for (int time = 1; time <= ticks; time++) {
+			animator.tickStarted(time);
+			for (TimeAgent agent : agents)
+				animator.agentRan(agent);
+			animator.tickEnded(time);
+		}
+		animator.runEnded(ticks);
+	}
+
+	private static int writers() {
+		int writers = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+			if (thread.getName().equals("async-text-animator") && thread.isAlive())
+				writers++;
+		return writers;
+	}
+
+	public void testConstructor() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {new AsyncTextAnimator(null, 1, 1, bytes); Assert.fail();} catch (NullPointerException e) {};
+		try {new AsyncTextAnimator(BackPressure.BLOCK, 1, 1, null); Assert.fail();} catch (NullPointerException e) {};
+		try {new AsyncTextAnimator(BackPressure.NOT_DEFINED, 1, 1, bytes); Assert.fail();} catch (IllegalArgumentException e) {};
+		try {new AsyncTextAnimator(BackPressure.BLOCK, 0, 1, bytes); Assert.fail();} catch (IllegalArgumentException e) {};
+		try {new AsyncTextAnimator(BackPressure.SAMPLE, 1, 0, bytes); Assert.fail();} catch (IllegalArgumentException e) {};
+	}
+
+	public void testBlockWritesLikeTextAnimator() {
+		MockAgent a = new MockAgent("a state");
+		MockAgent b = new MockAgent("b state");
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(expected, true));
+		try {
+			run(new TextAnimator(), 50, a, b);
+			run(new TextAnimator(), 20, b);
+		} finally {
+			System.setOut(out);
+		}
+
+		// two runs through one animator, with fewer frames than ticks
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		AsyncTextAnimator animator = new AsyncTextAnimator(BackPressure.BLOCK, 4, 1, bytes);
+		run(animator, 50, a, b);
+		Assert.assertEquals(0, writers());
+		run(animator, 20, b);
+		Assert.assertEquals(0, writers());
+
+		Assert.assertEquals(expected.toString(), bytes.toString());
+		Assert.assertEquals(0, animator.skippedTicks());
+	}
+
+	/*
+	 * Each tick fills the output buffer, so the writer holds on to the first
+	 * frame until the output is let go, and the second is taken by the next
+	 * tick; every later tick finds no frame free.
+	 */
+	public void testDropSkipsTicksWithoutAFrame() {
+		StringBuilder state = new StringBuilder();
+		while (state.length() < (1 << 20))
+			state.append("a state ");
+		MockAgent a = new MockAgent(state.toString());
+
+		HeldOutputStream bytes = new HeldOutputStream();
+		AsyncTextAnimator animator = new AsyncTextAnimator(BackPressure.DROP, 2, 1, bytes);
+		for (int time = 1; time <= 5; time++) {
+			animator.tickStarted(time);
+			animator.agentRan(a);
+			animator.tickEnded(time);
+		}
+		Assert.assertEquals(3, animator.skippedTicks());
+
+		bytes._release.countDown();
+		animator.runEnded(5);
+		String line = a.state() + System.lineSeparator();
+		Assert.assertEquals(line + line, bytes.toString());
+	}
+
+	public void testSampleWritesOneTickInEachInterval() {
+		MockAgent a = new MockAgent("a state");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		AsyncTextAnimator animator = new AsyncTextAnimator(BackPressure.SAMPLE, 1, 3, bytes);
+
+		// ticks 1, 4, 7 and 10 are written
+		run(animator, 10, a);
+		Assert.assertEquals(6, animator.skippedTicks());
+		String line = a.state() + System.lineSeparator();
+		Assert.assertEquals(line + line + line + line, bytes.toString());
+	}
+
+	/*
+	 * The failure is thrown at the end of the run it happened in, and only then.
+	 */
+	public void testOutputFailureEndsTheRun() {
+		MockAgent a = new MockAgent("a state");
+		FailingOutputStream bytes = new FailingOutputStream();
+		AsyncTextAnimator animator = new AsyncTextAnimator(BackPressure.BLOCK, 2, 1, bytes);
+
+		try {
+			run(animator, 5, a);
+			Assert.fail();
+		} catch (UncheckedIOException e) {
+			Assert.assertEquals("Disk full", e.getCause().getMessage());
+		};
+		Assert.assertEquals(0, writers());
+
+		bytes._failing = false;
+		run(animator, 2, a);
+		String line = a.state() + System.lineSeparator();
+		Assert.assertEquals(line + line, bytes._bytes.toString());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package simulator.animator;
+
+/*
+ * What an asynchronous animator does when its writer falls behind.
+ */
+public enum BackPressure {
+	/* wait for the writer; every tick is written */
+	BLOCK,
+	/* skip ticks for which no frame is free; the simulation never waits */
+	DROP,
+	/* only capture one tick in every sample interval, waiting for the writer if needed */
+	SAMPLE,
+	NOT_DEFINED;
+	
+	public static BackPressure toBackPressure (String valueToMatch) {
+		for (BackPressure policy : BackPressure.values()) {
+			if (policy.name().equals(valueToMatch.toUpperCase().trim()))
+				return policy;
+		}
+		return NOT_DEFINED;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package simulator.animator;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import simulator.agent.TimeAgent;
+
+/*
+ * A text animator that only prints what changed, so that its output, and
+ * the state strings it builds, grow with the activity of the model rather
+ * than with its size. A tick in which some agent changed is headed by
+ * "TICK <time>", followed by the changes of each agent that did; an agent
+ * seen for the first time is printed in full.
+ *
+ * Every keyframe interval ticks a keyframe headed by "KEYFRAME <time>" lists
+ * the full state of every agent seen so far instead, in the order they were
+ * first seen, so that the output can be read from any keyframe on.
+ */
+public final class DeltaTextAnimator implements Animator {
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+	private final int _keyframeInterval;
+	private final PrintStream _out;
+	// every agent seen, by first appearance
+	private final IdentityHashMap<TimeAgent, Boolean> _seen = new IdentityHashMap<>();
+	private final ArrayList<TimeAgent> _agents = new ArrayList<>();
+	private long _ticks;
+	private double _time;
+	private boolean _keyframe;
+	// true until the first change of a delta tick is printed
+	private boolean _headerPending;
+
+	public DeltaTextAnimator() {
+		this(DEFAULT_KEYFRAME_INTERVAL, System.out);
+	}
+
+	public DeltaTextAnimator(int keyframeInterval, PrintStream out) {
+		if (out == null)
+			throw new NullPointerException ("Output argument cannot be null");
+		if (keyframeInterval < 1)
+			throw new IllegalArgumentException ("Keyframe interval must be gt 0");
+		this._keyframeInterval = keyframeInterval;
+		this._out = out;
+	}
+
+	@Override
+	public void tickStarted(double time) {
+		this._time = time;
+		this._keyframe = this._ticks++ % this._keyframeInterval == 0;
+		this._headerPending = true;
+	}
+
+	@Override
+	public void agentRan(TimeAgent agent) {
+		boolean seen = this._seen.put(agent, Boolean.TRUE) != null;
+		if (!seen)
+			this._agents.add(agent);
+		if (this._keyframe || (seen && !agent.changed()))
+			return;
+
+		if (this._headerPending) {
+			this._out.println("TICK " + this._time);
+			this._headerPending = false;
+		}
+		this._out.println(seen ? agent.changes() : agent.state());
+	}
+
+	@Override
+	public void tickEnded(double time) {
+		if (!this._keyframe)
+			return;
+		this._out.println("KEYFRAME " + this._time);
+		for (TimeAgent agent : this._agents)
+			this._out.println(agent.state());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package simulator.animator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.agent.TimeAgent;
+
+public class DeltaTextAnimatorTEST extends TestCase {
+	
+	class MockAgent implements TimeAgent {
+		final String _name;
+		boolean _changed;
+		
+		MockAgent(String name) {
+			this._name = name;
+		}
+		
+		@Override
+		public void run(double tempoFactor) {}
+
+		@Override
+		public String state() {
+			return this._name + " state";
+		}
+		
+		@Override
+		public String changes() {
+			return this._name + " changes";
+		}
+		
+		@Override
+		public boolean changed() {
+			return this._changed;
+		}
+	}
+	
+	private ByteArrayOutputStream _bytes;
+	private DeltaTextAnimator _animator;
+	
+	public DeltaTextAnimatorTEST(String name) {
+		super(name);
+	}
+	
+	@Override
+	protected void setUp() {
+		this._bytes = new ByteArrayOutputStream();
+		this._animator = new DeltaTextAnimator(3, new PrintStream(this._bytes, true));
+	}
+	
+	private String tick(double time, TimeAgent... agents) {
+		this._bytes.reset();
+		this._animator.tickStarted(time);
+		for (TimeAgent agent : agents)
+			this._animator.agentRan(agent);
+		this._animator.tickEnded(time);
+		return this._bytes.toString().replace(System.lineSeparator(), "|");
+	}
+	
+	public void testDeltasAndKeyframes() {
+		MockAgent a = new MockAgent("a");
+		MockAgent b = new MockAgent("b");
+		
+		// a keyframe lists every agent seen, whether or not it changed
+		Assert.assertEquals("KEYFRAME 1.0|a state|", this.tick(1, a));
+		
+		// an agent seen for the first time is printed in full
+		Assert.assertEquals("TICK 2.0|b state|", this.tick(2, a, b));
+		
+		// nothing is printed for a tick without changes
+		Assert.assertEquals("", this.tick(3, a, b));
+		
+		// agents that did not run are listed in keyframes too
+		b._changed = true;
+		Assert.assertEquals("KEYFRAME 4.0|a state|b state|", this.tick(4, b));
+		
+		Assert.assertEquals("TICK 5.0|b changes|", this.tick(5, a, b));
+		a._changed = true;
+		Assert.assertEquals("TICK 6.0|a changes|b changes|", this.tick(6, a, b));
+	}
+}
\ No newline at end of file
@@ -1,5 +1,4 @@
 package simulator.animator;
-import java.util.Observable;
 import simulator.agent.TimeAgent;
 
 public class TextAnimator implements Animator {
@@ -7,7 +6,7 @@ public class TextAnimator implements Animator {
 	public TextAnimator() {}
 	
 	@Override
-	public void update(Observable model, Object arg){
-		System.out.println(((TimeAgent) (arg)).state());
+	public void agentRan(TimeAgent agent){
+		System.out.println(agent.state());
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package simulator.intersection;
 
+import simulator.agent.AgentPhase;
 import simulator.agent.TimeAgent;
 import simulator.moveable.Moveable;
 import simulator.moveable.Orientation;
@@ -7,9 +8,29 @@ import simulator.road.Road;
 
 public interface Intersection extends TimeAgent {
 	public IntersectionStatus statusAlongOrientation (Orientation orientation);
+	
+	/*
+	 * The status shown by the light along an orientation, whether or not the
+	 * intersection is occupied; null if there is no light along it.
+	 */
+	public default IntersectionStatus lightStatusAlongOrientation (Orientation orientation) {
+		return null;
+	}
+	
 	public double frontPositionAlongOrientation (Orientation orientation);
 	public double rearPositionAlongOrientation (Orientation orientation);
 	public void intersectAlongOrientation (Road road, double startingPosition);
 	public void intersectAlongOrientation (Moveable mobile);
 	public double lengthAlongOrientation (Orientation orientation);
+	
+	/*
+	 * Forgets a moveable caught in the intersection, before it is released.
+	 */
+	public default void vacate (Moveable mobile) {
+	}
+	
+	@Override
+	public default AgentPhase phase() {
+		return AgentPhase.INTERSECTION;
+	}
 }
\ No newline at end of file
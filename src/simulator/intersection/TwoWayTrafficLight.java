@@ -4,7 +4,8 @@ import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Random;
+import java.util.SplittableRandom;
+import simulator.agent.RandomStreams;
 import simulator.moveable.Moveable;
 import simulator.moveable.Orientation;
 import simulator.road.Road;
@@ -26,9 +27,12 @@ public class TwoWayTrafficLight implements Intersection {
 			new EnumMap<>(Orientation.class);
 	private final EnumMap<Orientation, ArrayList<Moveable>> _mobiles = 
 			new EnumMap<>(Orientation.class);
+	// time steps to catch up on at the next run
+	private int _pendingSteps = 1;
+	// whether a light changed status at the last run
+	private boolean _changed = true;
 	
 	// instantiation parameters
-	private final Random _random = new Random();
 	public static final double MIN_LENGTH = 10;
 	public static final double MAX_LENGTH = 15;
 	public static final double MIN_GO_DURATION = 30;
@@ -78,6 +82,22 @@ public class TwoWayTrafficLight implements Intersection {
 			}
 		}
 		
+		/*
+		 * The number of updates at the given tempo factor after which the
+		 * light changes status.
+		 */
+		int stepsUntilChange(double tempoFactor) {
+			if (tempoFactor <= 0)
+				return 1;
+			double timer = this._timer - tempoFactor;
+			int steps = 1;
+			while (timer >= 1) {
+				timer -= tempoFactor;
+				steps++;
+			}
+			return steps;
+		}
+		
 		IntersectionStatus status() {
 			return this._status;
 		}
@@ -93,9 +113,16 @@ public class TwoWayTrafficLight implements Intersection {
 	}
 	
 	public TwoWayTrafficLight() {
-		this._length = MIN_LENGTH  + (MAX_LENGTH - MIN_LENGTH) * this._random.nextDouble();
-		this._yellowDuration = MIN_CAUTION_DURATION  + (MAX_CAUTION_DURATION - MIN_CAUTION_DURATION) * this._random.nextDouble();
-		this._greenDuration = MIN_GO_DURATION  + (MAX_GO_DURATION - MIN_GO_DURATION) * this._random.nextDouble();
+		this(RandomStreams.split());
+	}
+	
+	/*
+	 * A light with its length and durations drawn from random.
+	 */
+	public TwoWayTrafficLight(SplittableRandom random) {
+		this._length = RandomStreams.between(random, MIN_LENGTH, MAX_LENGTH);
+		this._yellowDuration = RandomStreams.between(random, MIN_CAUTION_DURATION, MAX_CAUTION_DURATION);
+		this._greenDuration = RandomStreams.between(random, MIN_GO_DURATION, MAX_GO_DURATION);
 		this._redDuration = this._greenDuration + this._yellowDuration;
 	}
 	
@@ -103,19 +130,26 @@ public class TwoWayTrafficLight implements Intersection {
 	 * for testing
 	 */
 	public TwoWayTrafficLight (double length, double greenDuration, double yellowDuration) {
+		this(length, greenDuration, yellowDuration, RandomStreams.split());
+	}
+	
+	/*
+	 * Values of 0 are drawn from random.
+	 */
+	public TwoWayTrafficLight (double length, double greenDuration, double yellowDuration, SplittableRandom random) {
 		if (length <0 || greenDuration < 0 || yellowDuration <0)
 			throw new IllegalArgumentException ();
 		
 		if (length == 0) 
-			this._length = MIN_LENGTH  + (MAX_LENGTH - MIN_LENGTH) * this._random.nextDouble();
+			this._length = RandomStreams.between(random, MIN_LENGTH, MAX_LENGTH);
 		else this._length = length;
 		
 		if (greenDuration == 0)
-			this._greenDuration = MIN_GO_DURATION  + (MAX_GO_DURATION - MIN_GO_DURATION) * this._random.nextDouble();
+			this._greenDuration = RandomStreams.between(random, MIN_GO_DURATION, MAX_GO_DURATION);
 		else this._greenDuration = greenDuration;
 		
-		if (this._yellowDuration == 0)
-			this._yellowDuration = MIN_CAUTION_DURATION  + (MAX_CAUTION_DURATION - MIN_CAUTION_DURATION) * this._random.nextDouble();
+		if (yellowDuration == 0)
+			this._yellowDuration = RandomStreams.between(random, MIN_CAUTION_DURATION, MAX_CAUTION_DURATION);
 		else this._yellowDuration = yellowDuration;
 		
 		this._redDuration = this._greenDuration + this._yellowDuration;
@@ -189,23 +223,56 @@ public class TwoWayTrafficLight implements Intersection {
 
 	@Override
 	public void run( double tempoFactor) {
+		this._changed = false;
 		for (Orientation o : this._lights.keySet()) {
 			//System.out.println("====================");
-			this._lights.get(o).update(tempoFactor);
+			Light light = this._lights.get(o);
+			IntersectionStatus status = light.status();
+			for (int step = 0; step < this._pendingSteps; step++)
+				light.update(tempoFactor);
+			if (light.status() != status)
+				this._changed = true;
 			this.drainIntersection(o);
 			//System.out.print("LIGHT @ " + this.frontPositionAlongOrientation(o));
 			//System.out.println(" == " + this.statusAlongOrientation(o));
 			//System.out.println("====================");
 		}
-		
+		this._pendingSteps = 1;
+	}
+	
+	@Override
+	public boolean changed() {
+		return this._changed;
 	}
 	
+	/*
+	 * A light only needs to run when one of its lights changes status; roads
+	 * drain the occupancy lists themselves when they ask for a status.
+	 */
+	@Override
+	public int stepsUntilNextRun(double tempoFactor) {
+		if (this._lightQueue.isEmpty())
+			return UNTIL_WOKEN;
+		int steps = UNTIL_WOKEN;
+		for (Light light : this._lightQueue)
+			steps = Math.min(steps, light.stepsUntilChange(tempoFactor));
+		this._pendingSteps = steps;
+		return steps;
+	}
+	
+	/*
+	 * Occupancy lists are guarded by their own monitor: the roads crossing an
+	 * intersection may be run concurrently by a parallel timeserver.
+	 */
 	private void drainIntersection (Orientation o) {
-		Iterator<Moveable> moveableIter = this._mobiles.get(o).iterator();
-		while (moveableIter.hasNext()) {
-			Moveable m = moveableIter.next();
-			if (m.currentFrontPosition().doubleValue() > this.rearPositionAlongOrientation(m.currentOrientation()))
-				moveableIter.remove();
+		ArrayList<Moveable> mobiles = this._mobiles.get(o);
+		synchronized (mobiles) {
+			Iterator<Moveable> moveableIter = mobiles.iterator();
+			while (moveableIter.hasNext()) {
+				Moveable m = moveableIter.next();
+				if (m.frontPosition() > this.rearPositionAlongOrientation(m.currentOrientation()))
+					moveableIter.remove();
+			}
 		}
 	}
 	
@@ -217,8 +284,13 @@ public class TwoWayTrafficLight implements Intersection {
 		if (this._lights.get(o) != null) {
 			IntersectionStatus otherLightStatus;
 			
-			this.drainIntersection(o);
-			if (this._mobiles.get(o).isEmpty()) {
+			boolean occupied;
+			ArrayList<Moveable> mobiles = this._mobiles.get(o);
+			synchronized (mobiles) {
+				this.drainIntersection(o);
+				occupied = !mobiles.isEmpty();
+			}
+			if (!occupied) {
 				lightStatus = this._lights.get(o)._status;
 				
 				// check other light - if not switched over, report stopped
@@ -236,6 +308,12 @@ public class TwoWayTrafficLight implements Intersection {
 		return lightStatus;
 	}
 
+	@Override
+	public IntersectionStatus lightStatusAlongOrientation (Orientation o) {
+		Light light = this._lights.get(o);
+		return (light == null) ? null : light.status();
+	}
+
 	@Override
 	public void intersectAlongOrientation(Road road, double startingPosition) {
 		double frontPosition = startingPosition;
@@ -250,10 +328,23 @@ public class TwoWayTrafficLight implements Intersection {
 			throw new NullPointerException ("Mobile argument must be not-null");
 		Orientation o = mobile.currentOrientation();
 		
-		if (mobile.currentFrontPosition().doubleValue() <= this.rearPositionAlongOrientation(o) &&
-				mobile.currentRearPosition().doubleValue() >= this.frontPositionAlongOrientation(o)) {
+		if (mobile.frontPosition() <= this.rearPositionAlongOrientation(o) &&
+				mobile.rearPosition() >= this.frontPositionAlongOrientation(o)) {
 			System.out.println("STUCK: " + mobile);
-			this._mobiles.get(o).add(mobile);	
+			ArrayList<Moveable> mobiles = this._mobiles.get(o);
+			synchronized (mobiles) {
+				mobiles.add(mobile);
+			}
+		}
+	}
+
+	@Override
+	public void vacate(Moveable mobile) {
+		ArrayList<Moveable> mobiles = this._mobiles.get(mobile.currentOrientation());
+		if (mobiles == null)
+			return;
+		synchronized (mobiles) {
+			mobiles.remove(mobile);
 		}
 	}
 
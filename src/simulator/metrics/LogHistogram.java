@@ -0,0 +1,119 @@
+package simulator.metrics;
+
+import java.util.Arrays;
+
+/*
+ * A histogram of non-negative values with a bounded relative error, laid
+ * out as an HDR histogram: values are counted in units of a resolution, the
+ * first 2 * SUB_BUCKETS units one per bucket, then each power of two split
+ * into SUB_BUCKETS buckets. A bucket is never wider than 1/SUB_BUCKETS of
+ * the values in it, so percentiles are within that of the exact ones.
+ * 
+ * The buckets are allocated up front for values up to a highest trackable
+ * one; recording a value is a few shifts and an increment.
+ */
+public final class LogHistogram {
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	private final double _resolution;
+	private final long _highestUnits;
+	private final long[] _counts;
+	private long _total;
+	private double _max = Double.NaN;
+	
+	/*
+	 * Values above highestTrackable are counted as highestTrackable.
+	 * 
+	 * @invariant resolution gt 0
+	 * @invariant highestTrackable ge resolution
+	 */
+	public LogHistogram(double resolution, double highestTrackable) {
+		if (resolution <= 0)
+			throw new IllegalArgumentException ("Resolution must be gt 0");
+		if (highestTrackable < resolution)
+			throw new IllegalArgumentException ("Highest trackable value must not be lt the resolution");
+		this._resolution = resolution;
+		this._highestUnits = (long) Math.ceil(highestTrackable / resolution);
+		this._counts = new long[bucketOf(this._highestUnits) + 1];
+	}
+	
+	/*
+	 * Negative values are counted as 0.
+	 */
+	public void record(double value) {
+		long units = Math.min(Math.max(Math.round(value / this._resolution), 0), this._highestUnits);
+		this._counts[bucketOf(units)]++;
+		this._total++;
+		if (this._total == 1 || value > this._max)
+			this._max = value;
+	}
+	
+	/*
+	 * Adds the counts of a histogram with the same resolution and range.
+	 */
+	public void add(LogHistogram other) {
+		if (other._resolution != this._resolution || other._highestUnits != this._highestUnits)
+			throw new IllegalArgumentException ("Histograms do not have the same layout");
+		for (int idx = 0; idx < this._counts.length; idx++)
+			this._counts[idx] += other._counts[idx];
+		if (other._total > 0 && (this._total == 0 || other._max > this._max))
+			this._max = other._max;
+		this._total += other._total;
+	}
+	
+	public void reset() {
+		Arrays.fill(this._counts, 0);
+		this._total = 0;
+		this._max = Double.NaN;
+	}
+	
+	public long count() {
+		return this._total;
+	}
+	
+	public double max() {
+		return this._max;
+	}
+	
+	/*
+	 * The value below or at which the given percentage of the recorded values
+	 * fall: the highest value of the bucket holding it, but never more than
+	 * the largest value recorded.
+	 * 
+	 * @return the value, or NaN if nothing was recorded
+	 * @invariant percentile in [0, 100]
+	 */
+	public double valueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException ("Percentile must be in [0, 100]");
+		if (this._total == 0)
+			return Double.NaN;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this._total));
+		long seen = 0;
+		int bucket = 0;
+		while (bucket < this._counts.length - 1 && (seen += this._counts[bucket]) < rank)
+			bucket++;
+		return Math.min(highestUnitsIn(bucket) * this._resolution, this._max);
+	}
+	
+	/*
+	 * Units below 2 * SUB_BUCKETS have a bucket each; a value in
+	 * [2^e, 2^(e+1)) is shifted down to its top SUB_BUCKET_BITS + 1 bits.
+	 */
+	static int bucketOf(long units) {
+		if (units < 2 * SUB_BUCKETS)
+			return (int) units;
+		int exponent = 63 - Long.numberOfLeadingZeros(units);
+		int shift = exponent - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (units >>> shift) - SUB_BUCKETS;
+	}
+	
+	static long highestUnitsIn(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS)
+			return bucket;
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
\ No newline at end of file
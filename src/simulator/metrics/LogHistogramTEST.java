@@ -0,0 +1,79 @@
+package simulator.metrics;
+
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+public class LogHistogramTEST extends TestCase {
+	
+	public LogHistogramTEST(String name) {
+		super(name);
+	}
+	
+	public void testBucketsAreContiguous() {
+		for (long units = 1; units < 1 << 20; units++) {
+			int bucket = LogHistogram.bucketOf(units);
+			Assert.assertTrue(bucket == LogHistogram.bucketOf(units - 1) ||
+					LogHistogram.highestUnitsIn(bucket - 1) == units - 1);
+			Assert.assertTrue(LogHistogram.highestUnitsIn(bucket) >= units);
+		}
+	}
+	
+	public void testSmallValuesAreExact() {
+		LogHistogram histogram = new LogHistogram(1, 1000);
+		for (int value = 1; value <= 100; value++)
+			histogram.record(value);
+		
+		Assert.assertEquals(100, histogram.count());
+		Assert.assertEquals(50, histogram.valueAtPercentile(50), 0);
+		Assert.assertEquals(90, histogram.valueAtPercentile(90), 0);
+		Assert.assertEquals(100, histogram.valueAtPercentile(100), 0);
+		Assert.assertEquals(1, histogram.valueAtPercentile(0), 0);
+	}
+	
+	public void testPercentilesWithinRelativeError() {
+		Random random = new Random(5);
+		double[] values = new double[10000];
+		LogHistogram histogram = new LogHistogram(0.001, 10000);
+		for (int idx = 0; idx < values.length; idx++) {
+			values[idx] = 10000 * random.nextDouble() * random.nextDouble();
+			histogram.record(values[idx]);
+		}
+		Arrays.sort(values);
+		
+		for (double percentile : new double[] {50, 90, 99, 99.9}) {
+			double exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+			Assert.assertEquals(exact, histogram.valueAtPercentile(percentile), exact / 64);
+		}
+		Assert.assertEquals(values[values.length - 1], histogram.max(), 0);
+	}
+	
+	public void testOutOfRangeValuesAreClamped() {
+		LogHistogram histogram = new LogHistogram(1, 100);
+		histogram.record(-5);
+		histogram.record(1e9);
+		
+		Assert.assertEquals(0, histogram.valueAtPercentile(50), 0);
+		Assert.assertTrue(histogram.valueAtPercentile(100) <= 1e9);
+		Assert.assertTrue(histogram.valueAtPercentile(100) >= 100);
+	}
+	
+	public void testAdd() {
+		LogHistogram first = new LogHistogram(1, 1000);
+		LogHistogram second = new LogHistogram(1, 1000);
+		first.record(10);
+		second.record(20);
+		second.record(30);
+		first.add(second);
+		
+		Assert.assertEquals(3, first.count());
+		Assert.assertEquals(20, first.valueAtPercentile(50), 0);
+		Assert.assertEquals(30, first.max(), 0);
+		
+		try {
+			first.add(new LogHistogram(1, 10));
+			Assert.fail();
+		} catch (IllegalArgumentException e) {}
+	}
+}
\ No newline at end of file
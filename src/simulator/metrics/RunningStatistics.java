@@ -0,0 +1,89 @@
+package simulator.metrics;
+
+/*
+ * The count, mean, variance and range of a stream of values, kept with
+ * Welford's method: each value updates the running mean and the sum of
+ * squared differences from it, so nothing is stored and the variance does
+ * not lose precision as sums of squares would.
+ */
+public final class RunningStatistics {
+	private long _count;
+	private double _mean;
+	// sum of squared differences from the running mean
+	private double _m2;
+	private double _min = Double.NaN;
+	private double _max = Double.NaN;
+	
+	public void add(double value) {
+		this._count++;
+		double delta = value - this._mean;
+		this._mean += delta / this._count;
+		this._m2 += delta * (value - this._mean);
+		if (this._count == 1 || value < this._min)
+			this._min = value;
+		if (this._count == 1 || value > this._max)
+			this._max = value;
+	}
+	
+	/*
+	 * Adds the values seen by other, as if they had been added one by one
+	 * (Chan et al.'s pairwise update).
+	 */
+	public void add(RunningStatistics other) {
+		if (other._count == 0)
+			return;
+		if (this._count == 0) {
+			this._count = other._count;
+			this._mean = other._mean;
+			this._m2 = other._m2;
+			this._min = other._min;
+			this._max = other._max;
+			return;
+		}
+		long count = this._count + other._count;
+		double delta = other._mean - this._mean;
+		this._mean += delta * other._count / count;
+		this._m2 += other._m2 + delta * delta * this._count * other._count / count;
+		this._count = count;
+		this._min = Math.min(this._min, other._min);
+		this._max = Math.max(this._max, other._max);
+	}
+	
+	public void reset() {
+		this._count = 0;
+		this._mean = 0;
+		this._m2 = 0;
+		this._min = Double.NaN;
+		this._max = Double.NaN;
+	}
+	
+	public long count() {
+		return this._count;
+	}
+	
+	/*
+	 * @return the mean, or NaN if no value was added
+	 */
+	public double mean() {
+		return (this._count == 0) ? Double.NaN : this._mean;
+	}
+	
+	/*
+	 * @return the sample variance, or NaN with fewer than two values
+	 */
+	public double variance() {
+		return (this._count < 2) ? Double.NaN : this._m2 / (this._count - 1);
+	}
+	
+	public double standardDeviation() {
+		return Math.sqrt(this.variance());
+	}
+	
+	public double min() {
+		return this._min;
+	}
+	
+	public double max() {
+		return this._max;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package simulator.metrics;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+public class RunningStatisticsTEST extends TestCase {
+	
+	public RunningStatisticsTEST(String name) {
+		super(name);
+	}
+	
+	public void testEmpty() {
+		RunningStatistics statistics = new RunningStatistics();
+		Assert.assertEquals(0, statistics.count());
+		Assert.assertTrue(Double.isNaN(statistics.mean()));
+		Assert.assertTrue(Double.isNaN(statistics.variance()));
+	}
+	
+	public void testMatchesTwoPassComputation() {
+		Random random = new Random(3);
+		double[] values = new double[1000];
+		RunningStatistics statistics = new RunningStatistics();
+		for (int idx = 0; idx < values.length; idx++) {
+			values[idx] = 1e6 + random.nextGaussian();
+			statistics.add(values[idx]);
+		}
+		
+		double mean = 0;
+		for (double value : values)
+			mean += value / values.length;
+		double variance = 0;
+		for (double value : values)
+			variance += (value - mean) * (value - mean) / (values.length - 1);
+		
+		Assert.assertEquals(values.length, statistics.count());
+		Assert.assertEquals(mean, statistics.mean(), 1e-6);
+		Assert.assertEquals(variance, statistics.variance(), 1e-6);
+	}
+	
+	public void testMergeMatchesSingleStream() {
+		RunningStatistics all = new RunningStatistics();
+		RunningStatistics first = new RunningStatistics();
+		RunningStatistics second = new RunningStatistics();
+		for (int value = 0; value < 100; value++) {
+			all.add(value);
+			if (value < 30)
+				first.add(value);
+			else second.add(value);
+		}
+		first.add(second);
+		first.add(new RunningStatistics());
+		
+		Assert.assertEquals(all.count(), first.count());
+		Assert.assertEquals(all.mean(), first.mean(), 1e-9);
+		Assert.assertEquals(all.variance(), first.variance(), 1e-9);
+		Assert.assertEquals(0, first.min(), 0);
+		Assert.assertEquals(99, first.max(), 0);
+	}
+}
\ No newline at end of file
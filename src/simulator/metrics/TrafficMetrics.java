@@ -0,0 +1,255 @@
+package simulator.metrics;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+import simulator.intersection.Intersection;
+import simulator.road.Road;
+import simulator.road.RoadListener;
+import simulator.road.RoutePlanner;
+
+/*
+ * A headless animator that prints nothing as the model runs, and instead
+ * keeps streaming statistics of it for a summary at the end:
+ * 	- the moveables that left each road, and their travel times
+ * 	- the share of moveable steps spent stopped
+ * 	- the queue of stopped moveables at each light, sampled every tick
+ * 	- the trips planned, if any: route cache hits and planning latency
+ * 
+ * Means are kept with Welford's method and percentiles with log-bucketed
+ * histograms, all allocated when the model is observed: running the model
+ * allocates nothing more.
+ * 
+ * Roads report from the threads that run them, so what they report is kept
+ * apart for each road and only merged on the timeserver's thread.
+ */
+public final class TrafficMetrics implements Animator, RoadListener {
+	private static final double TRAVEL_TIME_RESOLUTION = 0.001;
+	private static final double QUEUE_RESOLUTION = 1;
+	private static final double HIGHEST_QUEUE = 1 << 20;
+	private static final double SECONDS_PER_HOUR = 3600;
+	private static final double NANOS_PER_MICRO = 1000;
+	
+	private static final class RoadMeasures {
+		final Road road;
+		final RunningStatistics travelTime = new RunningStatistics();
+		final LogHistogram travelTimes;
+		// moveables on the road at each run, summed, and those stopped
+		long moveableSteps;
+		long stoppedSteps;
+		// at the last run
+		final int[] queues;
+		
+		RoadMeasures(Road road, int intersections, double duration) {
+			this.road = road;
+			this.travelTimes = new LogHistogram(TRAVEL_TIME_RESOLUTION, Math.max(duration, TRAVEL_TIME_RESOLUTION));
+			this.queues = new int[intersections];
+		}
+	}
+	
+	/*
+	 * A light is queued at from each road through it.
+	 */
+	private static final class LightMeasures {
+		final Intersection light;
+		final RunningStatistics queue = new RunningStatistics();
+		RoadMeasures[] roads = new RoadMeasures[0];
+		int[] positions = new int[0];
+		
+		LightMeasures(Intersection light) {
+			this.light = light;
+		}
+		
+		void addRoad(RoadMeasures road, int position) {
+			this.roads = Arrays.copyOf(this.roads, this.roads.length + 1);
+			this.positions = Arrays.copyOf(this.positions, this.positions.length + 1);
+			this.roads[this.roads.length - 1] = road;
+			this.positions[this.positions.length - 1] = position;
+		}
+		
+		int queued() {
+			int queued = 0;
+			for (int idx = 0; idx < this.roads.length; idx++)
+				queued += this.roads[idx].queues[this.positions[idx]];
+			return queued;
+		}
+	}
+	
+	private final IdentityHashMap<Road, RoadMeasures> _roadsByIdentity = new IdentityHashMap<>();
+	private RoadMeasures[] _roads = new RoadMeasures[0];
+	private LightMeasures[] _lights = new LightMeasures[0];
+	private final LogHistogram _queues = new LogHistogram(QUEUE_RESOLUTION, HIGHEST_QUEUE);
+	private double _duration;
+	// null if no trip is planned
+	private RoutePlanner _planner;
+	
+	/*
+	 * Starts measuring the given roads and lights, forgetting any earlier
+	 * measures, for a run of the given duration. Intersections of the roads
+	 * that are not among the lights are not measured.
+	 */
+	public void observe(Collection<? extends Road> roads, Collection<? extends Intersection> lights, double duration) {
+		this._roadsByIdentity.clear();
+		this._queues.reset();
+		this._duration = duration;
+		
+		IdentityHashMap<Intersection, LightMeasures> lightsByIdentity = new IdentityHashMap<>();
+		this._lights = new LightMeasures[lights.size()];
+		int idx = 0;
+		for (Intersection light : lights) {
+			this._lights[idx] = new LightMeasures(light);
+			lightsByIdentity.put(light, this._lights[idx++]);
+		}
+		
+		this._roads = new RoadMeasures[roads.size()];
+		idx = 0;
+		for (Road road : roads) {
+			int intersections = 0;
+			for (Iterator<? extends Intersection> iter = road.getAllIntersectionsIterator(); iter.hasNext(); iter.next())
+				intersections++;
+			
+			RoadMeasures measures = new RoadMeasures(road, intersections, duration);
+			int position = 0;
+			for (Iterator<? extends Intersection> iter = road.getAllIntersectionsIterator(); iter.hasNext(); position++) {
+				LightMeasures light = lightsByIdentity.get(iter.next());
+				if (light != null)
+					light.addRoad(measures, position);
+			}
+			this._roads[idx++] = measures;
+			this._roadsByIdentity.put(road, measures);
+			road.setListener(this);
+		}
+	}
+	
+	/*
+	 * Also reports on the trips planned by planner, if not null.
+	 */
+	public void observeRoutes(RoutePlanner planner) {
+		this._planner = planner;
+	}
+	
+	@Override
+	public void agentRan(TimeAgent agent) {}
+	
+	@Override
+	public void tickEnded(double time) {
+		for (LightMeasures light : this._lights) {
+			int queued = light.queued();
+			light.queue.add(queued);
+			this._queues.record(queued);
+		}
+	}
+	
+	@Override
+	public void moveableExited(Road road, double travelTime) {
+		RoadMeasures measures = this._roadsByIdentity.get(road);
+		measures.travelTime.add(travelTime);
+		measures.travelTimes.record(travelTime);
+	}
+	
+	@Override
+	public void roadRan(Road road, int moveables, int stopped, int[] queues) {
+		RoadMeasures measures = this._roadsByIdentity.get(road);
+		measures.moveableSteps += moveables;
+		measures.stoppedSteps += stopped;
+		System.arraycopy(queues, 0, measures.queues, 0, measures.queues.length);
+	}
+	
+	/*
+	 * Prints the totals, then a line for each road and each light, numbered
+	 * in the order they were observed.
+	 */
+	public void report(PrintStream out) {
+		RunningStatistics travelTime = new RunningStatistics();
+		LogHistogram travelTimes = new LogHistogram(TRAVEL_TIME_RESOLUTION, Math.max(this._duration, TRAVEL_TIME_RESOLUTION));
+		RunningStatistics queue = new RunningStatistics();
+		long moveableSteps = 0;
+		long stoppedSteps = 0;
+		for (RoadMeasures road : this._roads) {
+			travelTime.add(road.travelTime);
+			travelTimes.add(road.travelTimes);
+			moveableSteps += road.moveableSteps;
+			stoppedSteps += road.stoppedSteps;
+		}
+		for (LightMeasures light : this._lights)
+			queue.add(light.queue);
+		
+		StringBuilder report = new StringBuilder();
+		report.append("Traffic metrics over ").append(this._duration).append(" seconds\n");
+		
+		report.append("Cars exited                          ");
+		report.append("[").append(travelTime.count());
+		report.append(", ").append(format(this.perHour(travelTime.count()))).append("/hour]\n");
+		
+		report.append("Travel time (seconds)                ");
+		appendDistribution(report, travelTime, travelTimes).append("\n");
+		
+		report.append("Time stopped                         ");
+		report.append("[").append(format(percent(stoppedSteps, moveableSteps))).append("%");
+		report.append(" of ").append(moveableSteps).append(" car steps]\n");
+		
+		report.append("Queue at lights (cars)               ");
+		appendDistribution(report, queue, this._queues).append("\n");
+		
+		if (this._planner != null) {
+			RoutePlanner planner = this._planner;
+			report.append("Route cache                          ");
+			report.append("[lookups=").append(planner.lookups());
+			report.append(", hit rate=").append(format(100 * planner.hitRate())).append("%");
+			report.append(", refreshes=").append(planner.refreshes()).append("]\n");
+			
+			report.append("Route planning (microseconds)        ");
+			report.append("[plans=").append(planner.plans());
+			report.append(", mean=").append(format(planner.plans() > 0 ? 
+					planner.planningNanos() / NANOS_PER_MICRO / planner.plans() : Double.NaN));
+			report.append(", max=").append(format(planner.maxPlanningNanos() / NANOS_PER_MICRO)).append("]\n");
+		}
+		
+		for (int idx = 0; idx < this._roads.length; idx++) {
+			RoadMeasures road = this._roads[idx];
+			report.append("ROAD ").append(idx).append(" ").append(road.road.orientation()).append(": ");
+			report.append("exited=").append(road.travelTime.count());
+			report.append(" throughput=").append(format(this.perHour(road.travelTime.count()))).append("/hour");
+			report.append(" travel=");
+			appendDistribution(report, road.travelTime, road.travelTimes);
+			report.append(" stopped=").append(format(percent(road.stoppedSteps, road.moveableSteps))).append("%\n");
+		}
+		
+		for (int idx = 0; idx < this._lights.length; idx++) {
+			LightMeasures light = this._lights[idx];
+			report.append("LIGHT ").append(idx).append(": ");
+			report.append("queue mean=").append(format(light.queue.mean()));
+			report.append(", sd=").append(format(light.queue.standardDeviation()));
+			report.append(", max=").append(format(light.queue.max())).append("\n");
+		}
+		
+		out.print(report);
+		out.flush();
+	}
+	
+	private double perHour(long count) {
+		return (this._duration > 0) ? count * SECONDS_PER_HOUR / this._duration : Double.NaN;
+	}
+	
+	private static double percent(long part, long whole) {
+		return (whole > 0) ? 100.0 * part / whole : Double.NaN;
+	}
+	
+	private static StringBuilder appendDistribution(StringBuilder report, RunningStatistics statistics, LogHistogram histogram) {
+		report.append("[mean=").append(format(statistics.mean()));
+		report.append(", sd=").append(format(statistics.standardDeviation()));
+		report.append(", p50=").append(format(histogram.valueAtPercentile(50)));
+		report.append(", p90=").append(format(histogram.valueAtPercentile(90)));
+		report.append(", p99=").append(format(histogram.valueAtPercentile(99)));
+		report.append(", max=").append(format(statistics.max())).append("]");
+		return report;
+	}
+	
+	private static String format(double value) {
+		return Double.isNaN(value) ? "-" : String.format("%.2f", value);
+	}
+}
\ No newline at end of file
@@ -1,9 +1,16 @@
 package simulator.model;
 
+import simulator.agent.RandomStreams;
+import simulator.animator.AnimatorFactory;
+import simulator.animator.BackPressure;
 import simulator.intersection.TwoWayTrafficLight;
 import simulator.moveable.CarFactory;
 import simulator.moveable.MoveableSource;
+import simulator.road.NetworkRouter;
 import simulator.road.RoadBuilder;
+import simulator.road.RoadNetwork;
+import simulator.road.RoadStorage;
+import simulator.timeserver.TimeServerFactory;
 
 public enum ModelBuilder {
 	BUILDER {
@@ -12,9 +19,12 @@ public enum ModelBuilder {
 		
 		public Model newModel() {
 
-			return new ModelObj (_time, _timeStep, 
+			long seed = (_seed == 0) ? RandomStreams.newSeed() : _seed;
+			return new ModelObj (seed, _time, _timeStep, _timeServer, _animator, _backPressure,
 					// grid defaults
-					_grid_rows, _grid_columns, _grid_pattern,
+					_grid_rows, _grid_columns, _grid_pattern, _network,
+					// routing defaults
+					_turn_probability, _trip_share, _route_refresh_interval,
 					// source defaults
 					_min_source_rate, _max_source_rate,
 					// car defaults
@@ -23,7 +33,7 @@ public enum ModelBuilder {
 					_min_car_brake_distance, _max_car_brake_distance, 
 					_min_car_stop_distance, _max_car_stop_distance,
 					// road defaults
-					_min_road_length , _max_road_length ,
+					_min_road_length , _max_road_length , _road_storage,
 					// intersection defaults
 					_min_intersection_length, _max_intersection_length, 
 					_min_green_time, _max_green_time, 
@@ -36,9 +46,18 @@ public enum ModelBuilder {
 	 */
 	private static final double TIME = 1000;
 	private static final double TIME_STEP = 0.1;
+	private static final TimeServerFactory TIME_SERVER = TimeServerFactory.HEAP;
+	private static final AnimatorFactory ANIMATOR = AnimatorFactory.TEXT;
+	private static final BackPressure BACK_PRESSURE = BackPressure.BLOCK;
+	// 0 draws a new seed for every model
+	private static final long SEED = 0;
 	private static final int GRID_ROWS = 2;
 	private static final int GRID_COLUMNS = 3;
 	private static final TrafficPattern GRID_PATTERN = TrafficPattern.ALTERNATING;
+	private static final double TURN_PROBABILITY = NetworkRouter.TURN_PROBABILITY;
+	private static final double TRIP_SHARE = 0;
+	// 0 never refreshes route costs
+	private static final double ROUTE_REFRESH_INTERVAL = 0;
 	private static final double LIGHT_MIN_YELLOW = TwoWayTrafficLight.MIN_CAUTION_DURATION;
 	private static final double LIGHT_MAX_YELLOW = TwoWayTrafficLight.MIN_CAUTION_DURATION;
 	private static final double LIGHT_MIN_GREEN = TwoWayTrafficLight.MIN_GO_DURATION;
@@ -47,6 +66,7 @@ public enum ModelBuilder {
 	private static final double LIGHT_MAX_LENGTH = TwoWayTrafficLight.MAX_LENGTH;
 	private static final double ROAD_MIN_LENGTH = RoadBuilder.MIN_LENGTH;
 	private static final double ROAD_MAX_LENGTH = RoadBuilder.MAX_LENGTH;
+	private static final RoadStorage ROAD_STORAGE = RoadStorage.OBJECTS;
 	private static final double CAR_MIN_LENGTH = CarFactory.MIN_LENGTH;
 	private static final double CAR_MAX_LENGTH = CarFactory.MAX_LENGTH;
 	private static final double CAR_MIN_VELOCITY = CarFactory.MIN_VELOCITY;
@@ -81,6 +101,7 @@ public enum ModelBuilder {
 	 */
 	private static double _min_road_length = ROAD_MIN_LENGTH;
 	private static double _max_road_length = ROAD_MAX_LENGTH;
+	private static RoadStorage _road_storage = ROAD_STORAGE;
 	
 	/*
 	 * grid mutables initially set to defaults
@@ -88,6 +109,11 @@ public enum ModelBuilder {
 	private static int _grid_rows = GRID_ROWS;
 	private static int _grid_columns = GRID_COLUMNS;
 	private static TrafficPattern _grid_pattern = GRID_PATTERN;
+	// replaces the grid when not null
+	private static RoadNetwork _network = null;
+	private static double _turn_probability = TURN_PROBABILITY;
+	private static double _trip_share = TRIP_SHARE;
+	private static double _route_refresh_interval = ROUTE_REFRESH_INTERVAL;
 	
 	/*
 	 * light mutables  initially set to defaults
@@ -104,20 +130,128 @@ public enum ModelBuilder {
 	 */
 	private static double _time = TIME;
 	private static double _timeStep = TIME_STEP;
+	private static TimeServerFactory _timeServer = TIME_SERVER;
+	private static AnimatorFactory _animator = ANIMATOR;
+	private static BackPressure _backPressure = BACK_PRESSURE;
+	private static long _seed = SEED;
 	
 	public abstract Model newModel();
 	
+	/*
+	 * for testing
+	 */
+	static long modelSeed() {
+		return _seed;
+	}
+	
+	static double modelTime() {
+		return _time;
+	}
+	
+	static TimeServerFactory modelTimeServer() {
+		return _timeServer;
+	}
+	
+	static AnimatorFactory animator() {
+		return _animator;
+	}
+	
+	static int gridRows() {
+		return _grid_rows;
+	}
+	
+	static int gridColumns() {
+		return _grid_columns;
+	}
+	
+	static RoadNetwork modelNetwork() {
+		return _network;
+	}
+	
+	static double tripShare() {
+		return _trip_share;
+	}
+	
 	public static void changeModelTime(double time) {
 		_time = time;
 	}
 	
+	/*
+	 * Models built from now on replay the same run for the same seed; a seed
+	 * of 0 draws a new one for every model.
+	 */
+	public static void changeModelSeed (long seed) {
+		_seed = seed;
+	}
+	
 	public static void changeModelTimeStep (double timeStep) {
 		_timeStep = timeStep;
 	}
 	
+	public static void changeModelTimeServer (TimeServerFactory timeServer) {
+		if (timeServer.equals(TimeServerFactory.NOT_DEFINED))
+			timeServer = TIME_SERVER;
+		_timeServer = timeServer;
+	}
+	
+	public static void changeAnimator (AnimatorFactory animator) {
+		if (animator.equals(AnimatorFactory.NOT_DEFINED))
+			animator = ANIMATOR;
+		_animator = animator;
+	}
+	
+	public static void changeAnimatorBackPressure (BackPressure backPressure) {
+		if (backPressure.equals(BackPressure.NOT_DEFINED))
+			backPressure = BACK_PRESSURE;
+		_backPressure = backPressure;
+	}
+	
+	/*
+	 * Models built from now on are a grid again, of the given size.
+	 */
 	public static void changeModelGridSize (int row, int column) {
 		_grid_rows = row;
 		_grid_columns = column;
+		_network = null;
+	}
+	
+	/*
+	 * Models built from now on run on the network instead of a grid.
+	 */
+	public static void changeModelNetwork (RoadNetwork network) {
+		if (network == null)
+			throw new NullPointerException ("Cannot set a null network");
+		_network = network;
+	}
+	
+	/*
+	 * The probability that a car without a route turns at the end of a
+	 * network road rather than going straight on.
+	 */
+	public static void changeTurnProbability (double probability) {
+		if (!(probability >= 0 && probability <= 1))
+			throw new IllegalArgumentException ("Turn probability must be between 0 and 1");
+		_turn_probability = probability;
+	}
+	
+	/*
+	 * The share of the cars entering a network that are given a trip, along
+	 * the shortest route to a road the network is left from.
+	 */
+	public static void changeTripShare (double share) {
+		if (!(share >= 0 && share <= 1))
+			throw new IllegalArgumentException ("Trip share must be between 0 and 1");
+		_trip_share = share;
+	}
+	
+	/*
+	 * The seconds between refreshes of the route costs from the travel times
+	 * observed; 0 never refreshes them.
+	 */
+	public static void changeRouteRefreshInterval (double interval) {
+		if (!(interval >= 0))
+			throw new IllegalArgumentException ("Route refresh interval must be ge 0");
+		_route_refresh_interval = interval;
 	}
 	
 	public static void changeTrafficPatternn (TrafficPattern pattern) {
@@ -136,6 +270,12 @@ public enum ModelBuilder {
 		_max_road_length = max;
 	}
 	
+	public static void changeRoadStorage (RoadStorage storage) {
+		if (storage.equals(RoadStorage.NOT_DEFINED))
+			storage = ROAD_STORAGE;
+		_road_storage = storage;
+	}
+	
 	public static void changeIntersectionLength (double min, double max) {
 		_min_intersection_length = min;
 		_max_intersection_length = max;
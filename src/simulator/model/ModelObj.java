@@ -2,37 +2,64 @@ package simulator.model;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
-import simulator.animator.TextAnimator;
+import simulator.agent.RandomStreams;
+import simulator.animator.Animator;
+import simulator.animator.AnimatorFactory;
+import simulator.animator.BackPressure;
 import simulator.intersection.Intersection;
 import simulator.intersection.TwoWayTrafficLight;
+import simulator.metrics.TrafficMetrics;
 import simulator.moveable.CarFactory;
 import simulator.moveable.MoveableSource;
 import simulator.moveable.Orientation;
+import simulator.road.NetworkRouter;
 import simulator.road.Road;
 import simulator.road.RoadBuilder;
+import simulator.road.RoadNetwork;
+import simulator.road.RoadStorage;
+import simulator.road.RoutePlanner;
 import simulator.timeserver.TimeServer;
-import simulator.timeserver.TimeServerLinked;
+import simulator.timeserver.TimeServerFactory;
+import simulator.timeserver.TimeServerListener;
 
 public class ModelObj implements Model {
 
 	private final double DEFAULT_WAKETIME = 1;
 	private final TimeServer _timeserver;
-	private final LinkedList<Intersection> _modelLights = new LinkedList<>();
-	private final LinkedList<Road> _modelRoads = new LinkedList<>();
-	private final LinkedList<MoveableSource> _modelSources = new LinkedList<>();
+	private final Animator _animator;
+	// intersections column by column, so that the one at (row, column) is at column * rows + row
+	private final ArrayList<Intersection> _modelLights;
+	private final ArrayList<Road> _modelRoads;
+	private final ArrayList<MoveableSource> _modelSources;
 	private final double _modeltime;
+	private final int _rows;
+	// the region of every light, road and source, in the order they are held
+	private final int[] _lightRegions;
+	private final int[] _roadRegions;
+	private final int[] _sourceRegions;
+	// plans the trips of the cars entering a network; null for a grid, or if no car has a trip
+	private final RoutePlanner _planner;
+	private final double _timestep;
 	private final HashMap<String, String> _config = new HashMap<>();
 	
 	ModelObj (
+			// random variables
+			long seed,
+			
 			// timeserver variables
-			double time, double timestep,
+			double time, double timestep, TimeServerFactory timeServerFactory,
+			
+			// animator variables
+			AnimatorFactory animatorFactory, BackPressure backPressure,
+			
+			// grid  variables; a network, if not null, replaces the grid
+			int rows, int columns, TrafficPattern pattern, RoadNetwork network,
 			
-			// grid  variables
-			int rows, int columns, TrafficPattern pattern, 
+			// routing variables, for networks
+			double turnProbability, double tripShare, double routeRefreshInterval,
 			
 			// source variables
 			double entryRateMin, double entryRateMax, 
@@ -44,18 +71,26 @@ public class ModelObj implements Model {
 			double carStopDistanceMin, double carStopDistanceMax,
 			
 			// road variables
-			double minRoadLength, double maxRoadLength,
+			double minRoadLength, double maxRoadLength, RoadStorage roadStorage,
 			
 			//  intersection variables
 			double intersectionLengthMin, double intersectionLengthMax,
 			double greenTimeMin, double greenTimeMax, 
 			double yellowTimeMin, double yellowTimeMax ) {
 		
+		this._config.put("SEED", String.valueOf(seed));
 		this._config.put("TIME", String.valueOf(time));
 		this._config.put("TIME_STEP", String.valueOf(timestep));
+		this._config.put("TIME_SERVER", timeServerFactory.toString());
+		this._config.put("ANIMATOR", animatorFactory.toString());
+		this._config.put("ANIMATOR_BACK_PRESSURE", backPressure.toString());
 		this._config.put("GRID_ROWS", String.valueOf(rows));
 		this._config.put("GRID_COLUMNS", String.valueOf(columns));
 		this._config.put("GRID_PATTERN", pattern.toString());
+		this._config.put("NETWORK", (network == null) ? "grid" : network.toString());
+		this._config.put("TURN_PROBABILITY", String.valueOf(turnProbability));
+		this._config.put("TRIP_SHARE", String.valueOf(tripShare));
+		this._config.put("ROUTE_REFRESH_INTERVAL", String.valueOf(routeRefreshInterval));
 		this._config.put("SOURCE_RATE_MIN", String.valueOf(entryRateMin));
 		this._config.put("SOURCE_RATE_MAX", String.valueOf(entryRateMax));
 		this._config.put("CAR_LENGTH_MIN", String.valueOf(carLengthMin));
@@ -68,6 +103,7 @@ public class ModelObj implements Model {
 		this._config.put("CAR_STOP_DISTANCE_MAX", String.valueOf(carStopDistanceMax));
 		this._config.put("ROAD_LENGTH_MIN", String.valueOf(minRoadLength));
 		this._config.put("ROAD_LENGTH_MAX", String.valueOf(maxRoadLength));
+		this._config.put("ROAD_STORAGE", roadStorage.toString());
 		this._config.put("INTERSECTION_LENGTH_MIN", String.valueOf(intersectionLengthMin));
 		this._config.put("INTERSECTION_LENGTH_MAX", String.valueOf(intersectionLengthMax));
 		this._config.put("LIGHT_GREEN_MIN", String.valueOf(greenTimeMin));
@@ -77,97 +113,160 @@ public class ModelObj implements Model {
 		
 		// create a new timeserver
 		this._modeltime = time;
-		this._timeserver = new TimeServerLinked (timestep, new TextAnimator());
+		this._timestep = timestep;
+		this._rows = rows;
+		this._animator = animatorFactory.newAnimator(backPressure);
+		this._timeserver = timeServerFactory.newTimeServer(timestep, this._animator);
 		
 		/*
-		 * Create [column *  row] intersections
+		 * Every agent draws from a stream of its own, split from the seed in
+		 * the order agents are built, so a seed replays the same run whatever
+		 * the timeserver or the number of threads running it.
 		 */
-		Intersection intersection;
-		final ArrayList<Intersection> intersections = new ArrayList<>(rows*columns);
-		for (int idx = 0; idx < rows*columns; idx++) {
-			double length = intersectionLengthMin + (intersectionLengthMax - intersectionLengthMin) * (new Random()).nextDouble();
-			double greenTime = greenTimeMin + (greenTimeMax - greenTimeMin) * (new Random()).nextDouble();
-			double yellowTime = yellowTimeMin + (yellowTimeMax - yellowTimeMin) * (new Random()).nextDouble();
-			intersection = new TwoWayTrafficLight(length, greenTime, yellowTime); 
-			intersections.add(intersection);
-			this._modelLights.add(intersection);
-		}
+		SplittableRandom random = new SplittableRandom(seed);
+		SplittableRandom lightStreams = random.split();
+		SplittableRandom roadStreams = random.split();
+		SplittableRandom sourceStreams = random.split();
+		SplittableRandom carSettings = random.split();
+		SplittableRandom turnStreams = random.split();
 		
-		/*
-		 * Create [column + row] roads
-		 */
-		// build the columnar roads and add an intersection for each row
-		Orientation columnOrientation = Orientation.SOUTH;
-		RoadBuilder roadBuilder = RoadBuilder.BUILDER;
-		int intersectionIdx = 0;
-		for (int outer = 0; outer < columns; outer++) {
-			if (!pattern.equals(TrafficPattern.SIMPLE)) 
-				columnOrientation = columnOrientation.reverse();
-			
-			roadBuilder.setOrientation(columnOrientation);
-			roadBuilder.setLength(minRoadLength, maxRoadLength);
-			
-			for (int inner = 0; inner < rows; inner++) {
-				Intersection i = intersections.get(intersectionIdx);
-				roadBuilder.addIntersection(i);
-				intersectionIdx ++;
+		int lightCount = (network == null) ? rows*columns : enteredNodes(network);
+		int roadCount = (network == null) ? rows + columns : network.roadCount();
+		this._modelLights = new ArrayList<>(lightCount);
+		this._modelRoads = new ArrayList<>(roadCount);
+		this._modelSources = new ArrayList<>(roadCount);
+		this._lightRegions = new int[lightCount];
+		this._roadRegions = new int[roadCount];
+		this._sourceRegions = new int[roadCount];
+		
+		// every road of a grid has a source, only the roads into a network do
+		boolean[] hasSource = new boolean[roadCount];
+		// plans the trips through a network, if any
+		RoutePlanner planner = null;
+		
+		if (network == null) {
+			/*
+			 * Create [column *  row] intersections
+			 */
+			for (int idx = 0; idx < rows*columns; idx++) {
+				this._lightRegions[idx] = idx / rows;
+				this._modelLights.add(newLight(lightStreams.split(), intersectionLengthMin, intersectionLengthMax,
+						greenTimeMin, greenTimeMax, yellowTimeMin, yellowTimeMax));
 			}
 			
-			// add the new road to the internal collection
-			Road r = roadBuilder.build();
-			//System.out.println("Col road: " + r);
-			this._modelRoads.add(r);
-		}
-		
-		// build the rows roads and add an intersection for each column
-		Orientation rowOrientation = Orientation.EAST;
-		for (int outer = 0; outer < rows; outer++) {
-			if (!pattern.equals(TrafficPattern.SIMPLE)) 
-				rowOrientation = rowOrientation.reverse();
+			/*
+			 * Create [column + row] roads, wired straight from the grid index
+			 */
+			// build the columnar roads and add an intersection for each row
+			Orientation columnOrientation = Orientation.SOUTH;
+			RoadBuilder roadBuilder = RoadBuilder.BUILDER;
+			for (int outer = 0; outer < columns; outer++) {
+				if (!pattern.equals(TrafficPattern.SIMPLE)) 
+					columnOrientation = columnOrientation.reverse();
+				
+				roadBuilder.setOrientation(columnOrientation);
+				roadBuilder.setRandom(roadStreams.split());
+				roadBuilder.setLength(minRoadLength, maxRoadLength);
+				roadBuilder.setStorage(roadStorage);
+				
+				for (int inner = 0; inner < rows; inner++)
+					roadBuilder.addIntersection(this.intersectionAt(inner, outer));
+				
+				// add the new road to the internal collection
+				this._roadRegions[this._modelRoads.size()] = outer;
+				hasSource[this._modelRoads.size()] = true;
+				this._modelRoads.add(roadBuilder.build());
+			}
 			
-			roadBuilder.setOrientation(rowOrientation);
-			roadBuilder.setLength(minRoadLength, maxRoadLength);
+			// build the rows roads and add an intersection for each column
+			Orientation rowOrientation = Orientation.EAST;
+			for (int outer = 0; outer < rows; outer++) {
+				if (!pattern.equals(TrafficPattern.SIMPLE)) 
+					rowOrientation = rowOrientation.reverse();
+				
+				roadBuilder.setOrientation(rowOrientation);
+				roadBuilder.setRandom(roadStreams.split());
+				roadBuilder.setLength(minRoadLength, maxRoadLength);
+				roadBuilder.setStorage(roadStorage);
+				
+				// the row crosses every column road at the intersection in that row
+				for (int inner = 0; inner < columns; inner++)
+					roadBuilder.addIntersection(this.intersectionAt(outer, inner));
+				
+				// add the new road to the internal collection
+				this._roadRegions[this._modelRoads.size()] = outer;
+				hasSource[this._modelRoads.size()] = true;
+				this._modelRoads.add(roadBuilder.build());
+			}
+		} else {
+			/*
+			 * Create an intersection for every node entered by a road
+			 */
+			Intersection[] nodeLights = new Intersection[network.nodeCount()];
+			for (int node = 0; node < network.nodeCount(); node++) {
+				if (network.inDegree(node) == 0)
+					continue;
+				nodeLights[node] = newLight(lightStreams.split(), intersectionLengthMin, intersectionLengthMax,
+						greenTimeMin, greenTimeMax, yellowTimeMin, yellowTimeMax);
+				this._lightRegions[this._modelLights.size()] = node;
+				this._modelLights.add(nodeLights[node]);
+			}
 			
-			// for each row:
-			// lookup the column roads in sequence of creation
-			// for each column road, get its intersections
-			// iterate through intersections, getting only the intersection for that road (row 1, get intersection 1)
-			for (int roadIdx =  0; roadIdx < columns; roadIdx++) {
-				Iterator<? extends Intersection> iter = this._modelRoads.get(roadIdx).getAllIntersectionsIterator();
-				int interIdx = 0;
-				while (iter.hasNext() && interIdx < rows) {
-					Intersection i = iter.next();
-					if (interIdx == outer)  {
-						roadBuilder.addIntersection(i);
-						break;
-					}
-					interIdx++;
-				}
-			}				
+			/*
+			 * Create a road for every edge, ending at the light of the node it
+			 * runs to; a road and its light share the region of that node
+			 */
+			RoadBuilder roadBuilder = RoadBuilder.BUILDER;
+			for (int road = 0; road < network.roadCount(); road++) {
+				roadBuilder.setOrientation(network.orientation(road));
+				roadBuilder.setRandom(roadStreams.split());
+				if (network.length(road) > 0)
+					roadBuilder.setLength(network.length(road), network.length(road));
+				else roadBuilder.setLength(minRoadLength, maxRoadLength);
+				roadBuilder.setStorage(roadStorage);
+				roadBuilder.setEndsAtIntersection(true);
+				roadBuilder.addIntersection(nodeLights[network.to(road)]);
+				
+				this._roadRegions[road] = network.to(road);
+				hasSource[road] = network.inDegree(network.from(road)) == 0;
+				this._modelRoads.add(roadBuilder.build());
+			}
 			
-			// add the new road to the internal collection
-			Road r = roadBuilder.build();
-			//System.out.println("Row road: " + r);
-			this._modelRoads.add(r);
+			// cars go on from road to road through the network, some of them on trips
+			NetworkRouter router = new NetworkRouter(network, this._modelRoads, turnProbability, turnStreams);
+			router.route();
+			if (tripShare > 0)
+				planner = new RoutePlanner(network, this._modelRoads, tripShare, RoutePlanner.CACHE_CAPACITY, routeRefreshInterval);
+			router.setPlanner(planner);
 		}
+		this._planner = planner;
 		
-		// wipe temp collection
-		intersections.clear();
-		
-		// for each road created, add a moveable source
+		// add a moveable source to the roads that have one
 		// each moveable source needs to know what sort of car factory to use
+		// the car settings are shared by every source, so they are drawn once
 		CarFactory carFactory = CarFactory.CUSTOM;
 		MoveableSource source;
 		
-		for (Road r: this._modelRoads) {
-			
-			CarFactory.setBrakeDistance(carBrakeDistanceMin, carBrakeDistanceMax);
-			CarFactory.setStopDistance(carStopDistanceMin, carStopDistanceMax);
-			CarFactory.setMaxVelocity(carVelocityMin, carVelocityMax);
-			CarFactory.setLength(carLengthMin, carLengthMax);
-			
-			source = new MoveableSource (r, entryRateMin, entryRateMax, carFactory);
+		double brakeDistance = RandomStreams.between(carSettings, carBrakeDistanceMin, carBrakeDistanceMax);
+		double stopDistance = RandomStreams.between(carSettings, carStopDistanceMin, carStopDistanceMax);
+		double maxVelocity = RandomStreams.between(carSettings, carVelocityMin, carVelocityMax);
+		double carLength = RandomStreams.between(carSettings, carLengthMin, carLengthMax);
+		CarFactory.setBrakeDistance(brakeDistance, brakeDistance);
+		CarFactory.setStopDistance(stopDistance, stopDistance);
+		CarFactory.setMaxVelocity(maxVelocity, maxVelocity);
+		CarFactory.setLength(carLength, carLength);
+		
+		// cars are numbered per model, so that runs with the same seed trace the same ids
+		AtomicLong carIds = new AtomicLong();
+		for (int road = 0; road < roadCount; road++) {
+			if (!hasSource[road])
+				continue;
+			source = new MoveableSource (this._modelRoads.get(road), entryRateMin, entryRateMax, carFactory, sourceStreams.split());
+			source.setCarIds(carIds);
+			if (this._planner != null)
+				source.setPlanner(this._planner, road);
 			
+			this._sourceRegions[this._modelSources.size()] = this._roadRegions[road];
 			this._modelSources.add(source);
 		}
 	}
@@ -176,35 +275,119 @@ public class ModelObj implements Model {
 		
 	}
 	
+	/*
+	 * Has listener watch every run of the model alongside the animator.
+	 */
+	void addListener(TimeServerListener listener) {
+		this._timeserver.addListener(listener);
+	}
+	
 	@Override
 	public void simulate() {
 		// reset the timeserver
 		this._timeserver.reset();
 		
 		// enqueue model objects to re-set timeserver to continue the modeling
-		for (MoveableSource source : this._modelSources)
-			this._timeserver.enqueue(DEFAULT_WAKETIME, source);
+		for (int idx = 0; idx < this._modelSources.size(); idx++)
+			this._timeserver.enqueue(DEFAULT_WAKETIME, this._modelSources.get(idx), this._sourceRegions[idx]);
 		
-		for (Road road : this._modelRoads)
-			this._timeserver.enqueue(DEFAULT_WAKETIME, road);
+		for (int idx = 0; idx < this._modelRoads.size(); idx++) {
+			Road road = this._modelRoads.get(idx);
+			road.scheduleOn(this._timeserver, this._roadRegions[idx]);
+			this._timeserver.enqueue(DEFAULT_WAKETIME, road, this._roadRegions[idx]);
+		}
+		
+		for (int idx = 0; idx < this._modelLights.size(); idx++)
+			this._timeserver.enqueue(DEFAULT_WAKETIME, this._modelLights.get(idx), this._lightRegions[idx]);
+		
+		// the planner refreshes its costs in the tick that ends its first interval
+		if (this._planner != null) {
+			this._planner.resetStatistics();
+			if (this._planner.refreshInterval() > 0) {
+				double waketime = DEFAULT_WAKETIME;
+				while (waketime < this._planner.refreshInterval())
+					waketime += this._timestep;
+				this._planner.scheduleOn(this._timeserver);
+				this._timeserver.enqueue(waketime, this._planner);
+			}
+		}
 		
-		for (Intersection intersection : this._modelLights)
-			this._timeserver.enqueue(DEFAULT_WAKETIME, intersection);
+		// a metrics animator is told what to measure, and reports once the run is over
+		TrafficMetrics metrics = (this._animator instanceof TrafficMetrics) ? (TrafficMetrics) this._animator : null;
+		if (metrics != null) {
+			metrics.observe(this._modelRoads, this._modelLights, this._modeltime);
+			metrics.observeRoutes(this._planner);
+		}
 		
 		System.out.println("Running TS with " + this._modeltime);
 		
 		this._timeserver.run(this._modeltime);
+		
+		if (metrics != null)
+			metrics.report(System.out);
+	}
+	
+	/*
+	 * Intersections are created column by column.
+	 */
+	private Intersection intersectionAt(int row, int column) {
+		return this._modelLights.get(column * this._rows + row);
+	}
+	
+	/*
+	 * A light with its length and durations drawn from random.
+	 */
+	private static Intersection newLight(SplittableRandom random, double lengthMin, double lengthMax,
+			double greenTimeMin, double greenTimeMax, double yellowTimeMin, double yellowTimeMax) {
+		double length = RandomStreams.between(random, lengthMin, lengthMax);
+		double greenTime = RandomStreams.between(random, greenTimeMin, greenTimeMax);
+		double yellowTime = RandomStreams.between(random, yellowTimeMin, yellowTimeMax);
+		return new TwoWayTrafficLight(length, greenTime, yellowTime, random);
+	}
+	
+	/*
+	 * The number of nodes entered by a road, each of which gets a light.
+	 */
+	private static int enteredNodes(RoadNetwork network) {
+		int count = 0;
+		for (int node = 0; node < network.nodeCount(); node++) {
+			if (network.inDegree(node) > 0)
+				count++;
+		}
+		return count;
 	}
 	
 	public String toString() {
 		StringBuilder currConfig = new StringBuilder();
 		
+		currConfig.append("Simulation random seed               ");
+		currConfig.append("[").append(this._config.get("SEED")).append("]").append("\n");
+		
 		currConfig.append("Simulation time step (seconds)       ");
 		currConfig.append("[").append(this._config.get("TIME_STEP")).append("]").append("\n");
 	
 		currConfig.append("Simulation run time (seconds)        ");
 		currConfig.append("[").append(this._config.get("TIME")).append("]").append("\n");
 		
+		currConfig.append("Simulation scheduler                 ");
+		currConfig.append("[").append(this._config.get("TIME_SERVER")).append("]").append("\n");
+		
+		currConfig.append("Animator                             ");
+		currConfig.append("[").append(this._config.get("ANIMATOR"));
+		currConfig.append(", back pressure=").append(this._config.get("ANIMATOR_BACK_PRESSURE")).append("]").append("\n");
+		
+		currConfig.append("Road network                         ");
+		currConfig.append("[").append(this._config.get("NETWORK")).append("]").append("\n");
+		
+		currConfig.append("Road network turn probability        ");
+		currConfig.append("[").append(this._config.get("TURN_PROBABILITY")).append("]").append("\n");
+		
+		currConfig.append("Road network trip share              ");
+		currConfig.append("[").append(this._config.get("TRIP_SHARE")).append("]").append("\n");
+		
+		currConfig.append("Road network route refresh (seconds) ");
+		currConfig.append("[").append(this._config.get("ROUTE_REFRESH_INTERVAL")).append("]").append("\n");
+		
 		currConfig.append("Grid size (number of roads)          ");
 		currConfig.append("[row=").append(this._config.get("GRID_ROWS"));
 		currConfig.append(", column=").append(this._config.get("GRID_COLUMNS")).append("]").append("\n");
@@ -220,6 +403,9 @@ public class ModelObj implements Model {
 		currConfig.append("[min=").append(this._config.get("ROAD_LENGTH_MIN"));
 		currConfig.append(", max=").append(this._config.get("ROAD_LENGTH_MAX")).append("]").append("\n");
 		
+		currConfig.append("Road storage                         ");
+		currConfig.append("[").append(this._config.get("ROAD_STORAGE")).append("]").append("\n");
+		
 		currConfig.append("Intersection length (meters)         ");
 		currConfig.append("[min=").append(this._config.get("INTERSECTION_LENGTH_MIN"));
 		currConfig.append(", max=").append(this._config.get("INTERSECTION_LENGTH_MAX")).append("]").append("\n");
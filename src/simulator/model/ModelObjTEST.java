@@ -0,0 +1,147 @@
+package simulator.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.agent.TimeAgent;
+import simulator.animator.AnimatorFactory;
+import simulator.moveable.Moveable;
+import simulator.road.Road;
+import simulator.road.RoadNetwork;
+import simulator.road.RoadNetworkReader;
+import simulator.timeserver.TimeServerFactory;
+import simulator.timeserver.TimeServerListener;
+
+public class ModelObjTEST extends TestCase {
+	private static final long SEED = 42;
+	private static final TimeServerFactory[] BATCHED = {
+		TimeServerFactory.BATCH, TimeServerFactory.PARALLEL, TimeServerFactory.PARTITIONED };
+	
+	/*
+	 * The builder settings the tests change, put back once they are done.
+	 */
+	private long _seed;
+	private double _time;
+	private TimeServerFactory _timeServer;
+	private AnimatorFactory _animator;
+	private int _gridRows;
+	private int _gridColumns;
+	private RoadNetwork _network;
+	private double _tripShare;
+	
+	/*
+	 * Records, tick by tick, every car on the roads that ran. Agents of a
+	 * phase may run in any order, so the cars of a tick are sorted.
+	 */
+	class CarStates implements TimeServerListener {
+		final List<String> _ticks = new ArrayList<>();
+		final List<String> _cars = new ArrayList<>();
+		int _carCount;
+		
+		@Override
+		public void agentRan(TimeAgent agent) {
+			if (!(agent instanceof Road))
+				return;
+			Iterator<Moveable> cars = ((Road) agent).getAllMoveablesIterator();
+			while (cars.hasNext()) {
+				Moveable car = cars.next();
+				this._cars.add(car.id() + " " + car.frontPosition() + " " + car.status());
+			}
+		}
+		
+		@Override
+		public void tickEnded(double time) {
+			Collections.sort(this._cars);
+			this._ticks.add(time + ": " + this._cars);
+			this._carCount += this._cars.size();
+			this._cars.clear();
+		}
+	}
+	
+	public ModelObjTEST(String name) {
+		super(name);
+	}
+	
+	@Override
+	protected void setUp() {
+		this._seed = ModelBuilder.modelSeed();
+		this._time = ModelBuilder.modelTime();
+		this._timeServer = ModelBuilder.modelTimeServer();
+		this._animator = ModelBuilder.animator();
+		this._gridRows = ModelBuilder.gridRows();
+		this._gridColumns = ModelBuilder.gridColumns();
+		this._network = ModelBuilder.modelNetwork();
+		this._tripShare = ModelBuilder.tripShare();
+	}
+	
+	@Override
+	protected void tearDown() {
+		ModelBuilder.changeModelSeed(this._seed);
+		ModelBuilder.changeModelTime(this._time);
+		ModelBuilder.changeModelTimeServer(this._timeServer);
+		ModelBuilder.changeAnimator(this._animator);
+		ModelBuilder.changeModelGridSize(this._gridRows, this._gridColumns);
+		if (this._network != null)
+			ModelBuilder.changeModelNetwork(this._network);
+		ModelBuilder.changeTripShare(this._tripShare);
+	}
+	
+	private static CarStates simulate(TimeServerFactory timeServer) {
+		ModelBuilder.changeModelTimeServer(timeServer);
+		ModelObj model = (ModelObj) ModelBuilder.BUILDER.newModel();
+		CarStates states = new ModelObjTEST("states").new CarStates();
+		model.addListener(states);
+		model.simulate();
+		return states;
+	}
+	
+	private static void assertSameCarStates() {
+		CarStates expected = simulate(BATCHED[0]);
+		Assert.assertTrue(expected._carCount > 0);
+		for (int idx = 1; idx < BATCHED.length; idx++)
+			Assert.assertEquals(BATCHED[idx].toString(), expected._ticks, simulate(BATCHED[idx])._ticks);
+	}
+	
+	public void testBatchedTimeServersAgreeOnAGrid() {
+		// enough lights and roads for the parallel phases to be forked
+		ModelBuilder.changeModelSeed(SEED);
+		ModelBuilder.changeModelTime(30);
+		ModelBuilder.changeAnimator(AnimatorFactory.NONE);
+		ModelBuilder.changeModelGridSize(35, 35);
+		assertSameCarStates();
+	}
+	
+	public void testBatchedTimeServersAgreeOnANetwork() throws IOException {
+		// cars are handed from road to road, some of them on planned trips
+		StringBuilder edges = new StringBuilder("# one-way grid, 4x4 nodes\n");
+		for (int row = 0; row < 4; row++) {
+			for (int column = 0; column < 3; column++) {
+				int node = row * 4 + column;
+				if (row % 2 == 0)
+					edges.append(node).append(" ").append(node + 1).append(" EAST 200\n");
+				else edges.append(node + 1).append(" ").append(node).append(" WEST 200\n");
+			}
+		}
+		for (int column = 0; column < 4; column++) {
+			for (int row = 0; row < 3; row++) {
+				int node = row * 4 + column;
+				if (column % 2 == 0)
+					edges.append(node).append(" ").append(node + 4).append(" SOUTH 150\n");
+				else edges.append(node + 4).append(" ").append(node).append(" NORTH 150\n");
+			}
+		}
+		
+		ModelBuilder.changeModelSeed(SEED);
+		ModelBuilder.changeModelTime(150);
+		ModelBuilder.changeAnimator(AnimatorFactory.NONE);
+		ModelBuilder.changeModelNetwork(RoadNetworkReader.read(new BufferedReader(new StringReader(edges.toString()))));
+		ModelBuilder.changeTripShare(0.5);
+		assertSameCarStates();
+	}
+}
\ No newline at end of file
@@ -3,32 +3,52 @@ package simulator.moveable;
 import java.awt.Color;
 import java.math.BigDecimal;
 import java.util.Iterator;
-import java.util.Random;
 
 import simulator.intersection.Intersection;
 import simulator.intersection.IntersectionStatus;
 import simulator.road.Road;
 
+/*
+ * Cars are pooled by the factory that made them: a car that leaves the
+ * model is released to its factory, which re-initializes it for a new road
+ * instead of allocating another.
+ */
 final class Car implements Moveable {
+	/* the id of a car no source has numbered */
+	static final long UNNUMBERED = -1;
+	
 	/*
-	 * immutable members
+	 * members fixed for one life of the car
 	 */
+	/* set by the source that emits the car */
+	private long _id;
 	/** @invariant greater than 0 */
-	private final BigDecimal _maxVelocity;
+	private BigDecimal _maxVelocity;
 	/** @invariant greater than 0*/
-	private final BigDecimal _brakeDistance;
+	private BigDecimal _brakeDistance;
 	/** @invariant greater than 0*/
-	private final BigDecimal _stopDistance;
+	private BigDecimal _stopDistance;
 	/** @invariant greater than 0 */
-	private final BigDecimal _length;
-	/** @invariant not null */
-	private final Color _color;
-	/* @invariant not null */
-	private final Road _road;
+	private BigDecimal _length;
+	/* @invariant not null; the road and orientation change when the car is handed to another road */
+	private Road _road;
 	/* enumeration */
-	private final Orientation _orientation;
-	/* random generation */
-	private final Random _random = new Random();
+	private Orientation _orientation;
+	/* primitive copies of the above, for the double fast path */
+	private double _maxVelocityValue;
+	private double _brakeDistanceValue;
+	private double _stopDistanceValue;
+	private double _lengthValue;
+	/* move with BigDecimal arithmetic, for regression comparison */
+	private boolean _exact;
+	/* index of the car's color in the CarPalette */
+	private int _colorIndex;
+	
+	/*
+	 * members fixed for every life of the car
+	 */
+	/* the factory the car is released to */
+	private final CarFactory _factory;
 	
 	/*
 	 * mutable members
@@ -38,6 +58,15 @@ final class Car implements Moveable {
 	/** @invariant not negative */
 	private double _frontPosition;
 	private MoveableStatus _status;
+	/* whether the last move changed the position or status */
+	private boolean _changed;
+	/* maintained by the road */
+	private long _roadSlot;
+	/* maintained by the road's router; null if the car turns as it goes */
+	private int[] _route;
+	private int _routeLeg;
+	/* maintained by the factory: true while the car waits in its pool */
+	boolean _pooled;
 	
 	/*
 	 * Constructs a car object with a specific Maximum Velocity, Brake Distance,
@@ -45,9 +74,20 @@ final class Car implements Moveable {
 	 * 
 	 */
 	protected Car (BigDecimal maxVelocity, BigDecimal brakeDistance, BigDecimal stopDistance, BigDecimal length, 
-			Road road) {
+			Road road, boolean exact, CarFactory factory) {
+		
+		this._factory = factory;
+		
+		this.initialize(maxVelocity, brakeDistance, stopDistance, length, road, exact);
+	}
+	
+	/*
+	 * Starts a new life of the car, stopped at the start of a road.
+	 */
+	void initialize (BigDecimal maxVelocity, BigDecimal brakeDistance, BigDecimal stopDistance, BigDecimal length, 
+			Road road, boolean exact) {
 		
-		// check that constructor arguments with object references are not null
+		// check that arguments with object references are not null
 		if (road == null)
 			throw new NullPointerException ("Car's Road argument cannnot be null");
 		
@@ -55,28 +95,69 @@ final class Car implements Moveable {
 		this._brakeDistance = brakeDistance;
 		this._stopDistance = stopDistance;
 		this._length =  length;
+		this._maxVelocityValue = maxVelocity.doubleValue();
+		this._brakeDistanceValue = brakeDistance.doubleValue();
+		this._stopDistanceValue = stopDistance.doubleValue();
+		this._lengthValue = length.doubleValue();
+		this._exact = exact;
 		this._rearPosition = 0;
 		this._frontPosition = 0;
 		this._orientation = road.orientation();
 		this._road = road;
-		
-		// color generation @http://stackoverflow.com/questions/4246351/creating-random-colour-in-java
-		float hue = this._random.nextFloat();
-		float saturation = 0.9f;//1.0 for brilliant, 0.0 for dull
-		float luminance = 1.0f; //1.0 for brighter, 0.0 for black
-		Color randomColor = Color.getHSBColor(hue, saturation, luminance);
-		
-		// do not create cars with the same color as lights
-		while (randomColor.equals(Color.RED) ||
-				randomColor.equals(Color.YELLOW) ||
-				randomColor.equals(Color.GREEN) ) {
-			hue = this._random.nextFloat();
-			randomColor = Color.getHSBColor(hue, saturation, luminance);
-		}
-		
-		this._color = Color.getHSBColor(hue, saturation, luminance);
+		this._roadSlot = 0;
+		this._route = null;
+		this._routeLeg = 0;
+		this._colorIndex = CarPalette.nextIndex();
+		this._id = UNNUMBERED;
 		
 		this._status = MoveableStatus.STOP;		
+		this._changed = true;
+	}
+	
+	@Override
+	public void release() {
+		if (this._factory != null)
+			this._factory.release(this);
+	}
+
+	@Override
+	public void enter(Road road) {
+		if (road == null)
+			throw new NullPointerException ("Car's Road argument cannnot be null");
+		this._rearPosition = 0;
+		this._frontPosition = 0;
+		this._orientation = road.orientation();
+		this._road = road;
+		this._roadSlot = 0;
+		this._status = MoveableStatus.STOP;
+		this._changed = true;
+	}
+	
+	@Override
+	public int[] route() {
+		return this._route;
+	}
+	
+	@Override
+	public int routeLeg() {
+		return this._routeLeg;
+	}
+	
+	@Override
+	public void setRoute(int[] route, int leg) {
+		if (route != null && (leg < 0 || leg >= route.length))
+			throw new IllegalArgumentException ("Route leg out of range: " + leg);
+		this._route = route;
+		this._routeLeg = leg;
+	}
+
+	@Override
+	public long id() {
+		return this._id;
+	}
+	
+	void number(long id) {
+		this._id = id;
 	}
 
 	@Override
@@ -89,6 +170,16 @@ final class Car implements Moveable {
 		return BigDecimal.valueOf(this._frontPosition);
 	}
 
+	@Override
+	public double rearPosition() {
+		return this._rearPosition;
+	}
+	
+	@Override
+	public double frontPosition() {
+		return this._frontPosition;
+	}
+
 	@Override
 	public BigDecimal maxVelocity() {
 		return this._maxVelocity;
@@ -111,7 +202,7 @@ final class Car implements Moveable {
 	
 	@Override
 	public Color color() {
-		return this._color;
+		return CarPalette.color(this._colorIndex);
 	}
 	
 	public BigDecimal computeStatus(BigDecimal occupiedPosition) {
@@ -123,16 +214,138 @@ final class Car implements Moveable {
 	 * can only move if there are no obstacles in its path, it asks the road
 	 * for the furthest forward position that is occupied.
 	 * 
+	 * Motion is computed in doubles unless the car was created in exact mode.
+	 * Each move rounds after every operation rather than once at the end, so
+	 * positions drift from the exact path by a few ulps per move (well under
+	 * 1e-9 meters over a road's lifetime); a car only takes a different
+	 * decision when a distance falls within that margin of a threshold.
+	 * 
 	 * @see simulator.moveable.Moveable#move()
 	 */
 	public MoveableStatus move(double speedGovernor) {
+		return this.move(speedGovernor, this._road.getClosestOccupiedPosition(this));
+	}
+	
+	@Override
+	public MoveableStatus move(double speedGovernor, double closestOccupiedPosition) {
+		double frontPosition = this._frontPosition;
+		MoveableStatus status = this._status;
+		MoveableStatus rval = this._exact ? this.moveExact(speedGovernor, closestOccupiedPosition) :
+			this.moveFast(speedGovernor, closestOccupiedPosition);
+		this._changed = this._frontPosition != frontPosition || this._status != status;
+		return rval;
+	}
+	
+	@Override
+	public void moveTo(double frontPosition, MoveableStatus status) {
+		this._changed = this._frontPosition != frontPosition || this._status != status;
+		this._frontPosition = frontPosition;
+		this._rearPosition = this._frontPosition -  this._lengthValue;
+		this._status = status;
+	}
+	
+	@Override
+	public void stayPut() {
+		this._changed = false;
+	}
+	
+	@Override
+	public boolean changed() {
+		return this._changed;
+	}
+	
+	@Override
+	public MoveableStatus status() {
+		return this._status;
+	}
+	
+	@Override
+	public long roadSlot() {
+		return this._roadSlot;
+	}
+	
+	@Override
+	public void setRoadSlot(long slot) {
+		this._roadSlot = slot;
+	}
+	
+	/*
+	 * The double path; allocates nothing apart from what the road and its
+	 * intersections allocate.
+	 */
+	private MoveableStatus moveFast(double speedGovernor, double closestOccupiedPosition) {
+		double governedMaxSpeed = this._maxVelocityValue * speedGovernor;
+		
+		// distance between nose of car and the next obstacle (could be anything)
+		double frontPosition = this._frontPosition;
+		double unoccupiedDistance = closestOccupiedPosition - frontPosition;
+		
+		// the computed best forward jump based on an evaluation of obstacles
+		// pessimistic default
+		double bestAvailableFreePosition = frontPosition;
+		
+		if (unoccupiedDistance <= this._stopDistanceValue) {
+			return MoveableStatus.STOP;
+		} else if (unoccupiedDistance > governedMaxSpeed) {
+			bestAvailableFreePosition += governedMaxSpeed;
+			this._status = MoveableStatus.ACCELERATE;
+		} else if (unoccupiedDistance <= this._brakeDistanceValue) {
+			bestAvailableFreePosition += Math.min(governedMaxSpeed, unoccupiedDistance / 2);
+			this._status = MoveableStatus.BRAKE;
+		} else {
+			bestAvailableFreePosition += Math.min(governedMaxSpeed, unoccupiedDistance / 2);
+			this._status = MoveableStatus.SLOWDOWN;
+		}
+		
+		// probe the intersections forward of the front position to determine if they are navigable
+		Iterator<? extends Intersection> sortedIter = this._road.getRemainingIntersectionsIterator(this);
+		while (sortedIter.hasNext()) {
+			Intersection currIntersection = sortedIter.next();
+			
+			double intersectionFrontPosition = currIntersection.frontPositionAlongOrientation(this._orientation);
+			double intersectionRearPosition = currIntersection.rearPositionAlongOrientation(this._orientation);
+			IntersectionStatus intersectionLightColor = currIntersection.statusAlongOrientation(this._orientation);
+			
+			// we are in or past the intersection; stop probing
+			if (intersectionFrontPosition <= frontPosition) break;
+			
+			// intersection is not the next obstacle; stop probing
+			if (!(intersectionFrontPosition < bestAvailableFreePosition)) break;
+			
+			// determine correct response based on intersection's status
+			if (intersectionLightColor == IntersectionStatus.STOP) {
+				if (bestAvailableFreePosition > intersectionFrontPosition) {
+					this._status = MoveableStatus.STOP;
+				}
+				bestAvailableFreePosition = Math.min(bestAvailableFreePosition, intersectionFrontPosition);
+			} else if (intersectionLightColor == IntersectionStatus.CAUTION &&
+					intersectionFrontPosition - frontPosition <= this._brakeDistanceValue) {
+				bestAvailableFreePosition = Math.min(bestAvailableFreePosition, intersectionFrontPosition);
+				this._status = MoveableStatus.BRAKE;
+			} else if (bestAvailableFreePosition <= intersectionRearPosition) {
+				// GO, or CAUTION too far ahead to brake for: the car will be stuck in the intersection
+				currIntersection.intersectAlongOrientation(this);
+			}
+		}
+		
+		this.moveForwardToPosition(bestAvailableFreePosition - frontPosition);
+		
+		return this._status;
+	}
+	
+	/*
+	 * The original BigDecimal path, kept as it was; a CAUTION light too far
+	 * ahead to brake for falls through to GO.
+	 */
+	@SuppressWarnings("fallthrough")
+	private MoveableStatus moveExact(double speedGovernor, double closestOccupiedPosition) {
 		BigDecimal governedMaxSpeed = this._maxVelocity.multiply(BigDecimal.valueOf(speedGovernor));
 		//System.out.println("********************************");
 		//System.out.println("    Move() started :" + this);
 		//System.out.println("Road report: max v = " + this._maxVelocity + " governed = " + governedMaxSpeed);
 		
-		// ask the road for the position of the next obstacle (could be anything)
-		BigDecimal nextOccupiedPosition = BigDecimal.valueOf(this._road.getClosestOccupiedPosition(this));
+		// the position of the next obstacle (could be anything)
+		BigDecimal nextOccupiedPosition = BigDecimal.valueOf(closestOccupiedPosition);
 		BigDecimal frontPosition = BigDecimal.valueOf(this._frontPosition);
 		
 		// distance between nose of car and the next occupied position
@@ -266,7 +479,7 @@ final class Car implements Moveable {
 	 */
 	protected void moveForwardToPosition (double position) {
 		this._frontPosition = this._frontPosition + position;
-		this._rearPosition = this._frontPosition -  this._length.doubleValue();
+		this._rearPosition = this._frontPosition -  this._lengthValue;
 	}
 
 	@Override
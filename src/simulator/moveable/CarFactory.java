@@ -1,31 +1,32 @@
 package simulator.moveable;
 
 import java.math.BigDecimal;
-import java.util.Random;
+import java.util.SplittableRandom;
 
+import simulator.agent.RandomStreams;
 import simulator.road.Road;
 
 public enum CarFactory {
 	RANDOM {
 		
 		@Override
-		public Car newCar(Road road) {
-			BigDecimal maxVelocity = BigDecimal.valueOf(MIN_VELOCITY + (MAX_VELOCITY - MIN_VELOCITY)* RANDOM_FACTORY.nextDouble());
-			BigDecimal brakeDistance = BigDecimal.valueOf(MIN_BRAKE + (MAX_BRAKE - MIN_BRAKE)* RANDOM_FACTORY.nextDouble());
-			BigDecimal stopDistance = BigDecimal.valueOf(MIN_STOP + (MAX_STOP - MIN_STOP)* RANDOM_FACTORY.nextDouble());
-			BigDecimal length = BigDecimal.valueOf(MIN_LENGTH + (MAX_LENGTH - MIN_LENGTH)* RANDOM_FACTORY.nextDouble());
+		public Car newCar(Road road, SplittableRandom random) {
+			BigDecimal maxVelocity = BigDecimal.valueOf(MIN_VELOCITY + (MAX_VELOCITY - MIN_VELOCITY)* random.nextDouble());
+			BigDecimal brakeDistance = BigDecimal.valueOf(MIN_BRAKE + (MAX_BRAKE - MIN_BRAKE)* random.nextDouble());
+			BigDecimal stopDistance = BigDecimal.valueOf(MIN_STOP + (MAX_STOP - MIN_STOP)* random.nextDouble());
+			BigDecimal length = BigDecimal.valueOf(MIN_LENGTH + (MAX_LENGTH - MIN_LENGTH)* random.nextDouble());
 			
-			return new Car(maxVelocity, brakeDistance, stopDistance, length, road);
+			return this.obtain(maxVelocity, brakeDistance, stopDistance, length, road);
 		}
 	},
 	CUSTOM {
 
 		@Override
-		public Car newCar(Road road) {
-			BigDecimal maxVelocity = BigDecimal.valueOf(MIN_VELOCITY + (MAX_VELOCITY - MIN_VELOCITY)* RANDOM_FACTORY.nextDouble());
-			BigDecimal brakeDistance = BigDecimal.valueOf(MIN_BRAKE + (MAX_BRAKE - MIN_BRAKE)* RANDOM_FACTORY.nextDouble());
-			BigDecimal stopDistance = BigDecimal.valueOf(MIN_STOP + (MAX_STOP - MIN_STOP)* RANDOM_FACTORY.nextDouble());
-			BigDecimal length = BigDecimal.valueOf(MIN_LENGTH + (MAX_LENGTH - MIN_LENGTH)* RANDOM_FACTORY.nextDouble());
+		public Car newCar(Road road, SplittableRandom random) {
+			BigDecimal maxVelocity = BigDecimal.valueOf(MIN_VELOCITY + (MAX_VELOCITY - MIN_VELOCITY)* random.nextDouble());
+			BigDecimal brakeDistance = BigDecimal.valueOf(MIN_BRAKE + (MAX_BRAKE - MIN_BRAKE)* random.nextDouble());
+			BigDecimal stopDistance = BigDecimal.valueOf(MIN_STOP + (MAX_STOP - MIN_STOP)* random.nextDouble());
+			BigDecimal length = BigDecimal.valueOf(MIN_LENGTH + (MAX_LENGTH - MIN_LENGTH)* random.nextDouble());
 			
 			if (!_maxVelocity.equals(BigDecimal.ZERO))
 				maxVelocity = _maxVelocity;
@@ -39,7 +40,7 @@ public enum CarFactory {
 			if (stopDistance.compareTo(brakeDistance) > 0)
 				throw new IllegalStateException ("Stop: " + stopDistance + " > Brake: " + brakeDistance);
 			
-			return new Car(maxVelocity, brakeDistance, stopDistance, length, road);
+			return this.obtain(maxVelocity, brakeDistance, stopDistance, length, road);
 		}
 	};
 
@@ -52,41 +53,122 @@ public enum CarFactory {
 	public static final double MAX_STOP = 5;
 	public static final double MIN_BRAKE = 9;
 	public static final double MAX_BRAKE = 10;
-	private static final Random RANDOM_FACTORY = new Random();
+	// the fixed values of the setters below are drawn from here
+	private static final SplittableRandom SETTINGS_RANDOM = RandomStreams.split();
 	
 	/* mutator variables to create a car */
 	private static BigDecimal _maxVelocity = BigDecimal.ZERO;
 	private static BigDecimal _brakeDistance = BigDecimal.ZERO;
 	private static BigDecimal _stopDistance = BigDecimal.ZERO;
 	private static BigDecimal _length = BigDecimal.ZERO;
+	private static boolean _exactArithmetic = false;
 	
-	public abstract Car newCar(Road road);
+	/* cars released by roads, kept for reuse */
+	public static final int DEFAULT_POOL_CAPACITY = 1024;
+	private final CarPool _pool = new CarPool(DEFAULT_POOL_CAPACITY);
+	
+	/*
+	 * A car with the values not set below drawn from random.
+	 */
+	public abstract Car newCar(Road road, SplittableRandom random);
+	
+	/*
+	 * A car drawn from a stream of its own.
+	 */
+	public Car newCar(Road road) {
+		return this.newCar(road, RandomStreams.split());
+	}
+	
+	/*
+	 * Re-initializes a pooled car if there is one, otherwise creates a new car.
+	 */
+	Car obtain(BigDecimal maxVelocity, BigDecimal brakeDistance, BigDecimal stopDistance, BigDecimal length,
+			Road road) {
+		Car car = this._pool.take();
+		if (car == null)
+			return new Car(maxVelocity, brakeDistance, stopDistance, length, road, _exactArithmetic, this);
+		car.initialize(maxVelocity, brakeDistance, stopDistance, length, road, _exactArithmetic);
+		return car;
+	}
+	
+	/*
+	 * Returns a car that has left the model to the pool; cars beyond the
+	 * pool's capacity are left to the garbage collector.
+	 * 
+	 * @precondition nothing references the car any longer
+	 */
+	void release(Car car) {
+		this._pool.give(car);
+	}
+	
+	/*
+	 * Sets the number of released cars kept for reuse; 0 turns pooling off.
+	 */
+	public void setPoolCapacity (int capacity) {
+		this._pool.setCapacity(capacity);
+	}
+	
+	/*
+	 * pool metrics
+	 */
+	public int pooledCars() {
+		return this._pool.size();
+	}
+	
+	public int poolCapacity() {
+		return this._pool.capacity();
+	}
+	
+	public long createdCars() {
+		return this._pool.created();
+	}
+	
+	public long reusedCars() {
+		return this._pool.reused();
+	}
+	
+	public long releasedCars() {
+		return this._pool.released();
+	}
+	
+	public long discardedCars() {
+		return this._pool.discarded();
+	}
 	
 	public static void setLength (double min, double max){
 		if (min <= 0 || min > max)
 			throw new IllegalArgumentException ();
 		
-		_length = BigDecimal.valueOf(min + (max - min)* RANDOM_FACTORY.nextDouble());
+		_length = BigDecimal.valueOf(RandomStreams.between(SETTINGS_RANDOM, min, max));
 	};
 	
 	public static void setMaxVelocity (double min, double  max){
 		if (min <= 0 || min > max)
 			throw new IllegalArgumentException ();
 		
-		_maxVelocity = BigDecimal.valueOf(min + (max - min)* RANDOM_FACTORY.nextDouble());
+		_maxVelocity = BigDecimal.valueOf(RandomStreams.between(SETTINGS_RANDOM, min, max));
 	};
 	
 	public static void setBrakeDistance (double min, double max){
 		if (min <= 0 || min > max)
 			throw new IllegalArgumentException ();
 		
-		_brakeDistance = BigDecimal.valueOf(min + (max - min)* RANDOM_FACTORY.nextDouble());
+		_brakeDistance = BigDecimal.valueOf(RandomStreams.between(SETTINGS_RANDOM, min, max));
 	};
 
+	/*
+	 * Cars created from now on move using BigDecimal arithmetic instead of
+	 * doubles; slower, but the reference against which the double path is
+	 * compared.
+	 */
+	public static void setExactArithmetic (boolean exact) {
+		_exactArithmetic = exact;
+	}
+	
 	public static void setStopDistance (double min, double max){
 		if (min <= 0 || min > max)
 			throw new IllegalArgumentException ();
 		
-		_stopDistance = BigDecimal.valueOf(min + (max - min)* RANDOM_FACTORY.nextDouble());
+		_stopDistance = BigDecimal.valueOf(RandomStreams.between(SETTINGS_RANDOM, min, max));
 	};
 }
\ No newline at end of file
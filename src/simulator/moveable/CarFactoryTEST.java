@@ -4,12 +4,18 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Random;
+import java.util.SplittableRandom;
 import junit.framework.TestCase;
 import org.junit.Assert;
 import simulator.intersection.Intersection;
 import simulator.intersection.IntersectionStatus;
+import simulator.intersection.TwoWayTrafficLight;
 import simulator.road.Road;
 import simulator.road.RoadBuilder;
+import simulator.road.RoadListener;
+import simulator.road.RoadRouter;
+import simulator.timeserver.TimeServer;
 
 public class CarFactoryTEST extends TestCase {
 	
@@ -123,6 +129,30 @@ public class CarFactoryTEST extends TestCase {
 			return null;
 		}
 
+		@Override
+		public void scheduleOn(TimeServer timeserver, int region) {
+			// TODO Auto-generated method stub
+			
+		}
+
+		@Override
+		public void setListener(RoadListener listener) {
+			// TODO Auto-generated method stub
+			
+		}
+
+		@Override
+		public void setRouter(RoadRouter router, int index) {
+			// TODO Auto-generated method stub
+			
+		}
+
+		@Override
+		public void transfer(Moveable mobile, int feeder, double time) {
+			// TODO Auto-generated method stub
+			
+		}
+
 		@Override
 		public void run(double tempoFactor) {
 			// TODO Auto-generated method stub
@@ -511,4 +541,39 @@ public class CarFactoryTEST extends TestCase {
 		System.out.println("Car moves to @ " + c.currentFrontPosition() + " speed = " + c.maxVelocity());
 		System.out.println("******************************** ");
 	}
+	
+	/*
+	 * Moves the same seeded cars once, from the same place and in front of a
+	 * light in every state, in doubles and in exact arithmetic. Positions
+	 * stay under 16 m, where an ulp is under 1.8e-15 m, and a move in doubles
+	 * is off by no more than that.
+	 */
+	public void testDoublesMoveLikeExactArithmetic() {
+		TwoWayTrafficLight light = new TwoWayTrafficLight(2, 3, 2);
+		rf.setOrientation(Orientation.EAST).setLength(4, 4);
+		Road road = rf.addIntersection(light).build();
+		Random random = new Random(1);
+		
+		try {
+			for (int trial = 0; trial < 1000; trial++) {
+				light.run(1);
+				double frontPosition = random.nextDouble();
+				double closestOccupiedPosition = frontPosition + 16 * random.nextDouble();
+				
+				CarFactory.setExactArithmetic(false);
+				Car fast = cf.newCar(road, new SplittableRandom(trial));
+				CarFactory.setExactArithmetic(true);
+				Car exact = cf.newCar(road, new SplittableRandom(trial));
+				fast.moveTo(frontPosition, MoveableStatus.ACCELERATE);
+				exact.moveTo(frontPosition, MoveableStatus.ACCELERATE);
+				
+				Assert.assertEquals(exact.move(0.5, closestOccupiedPosition), fast.move(0.5, closestOccupiedPosition));
+				Assert.assertEquals(exact.status(), fast.status());
+				Assert.assertEquals(exact.frontPosition(), fast.frontPosition(), 1.8e-15);
+				Assert.assertEquals(exact.rearPosition(), fast.rearPosition(), 1.8e-15);
+			}
+		} finally {
+			CarFactory.setExactArithmetic(false);
+		}
+	}
 }
\ No newline at end of file
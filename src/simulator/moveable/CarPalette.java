@@ -0,0 +1,65 @@
+package simulator.moveable;
+
+import java.awt.Color;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * The colors cars are drawn in. A car only holds an index into the palette;
+ * the Color objects are built the first time an animator asks for one, so a
+ * headless run never builds them.
+ *
+ * Hues are spread by the golden ratio, so that cars created one after the
+ * other get clearly different colors, and hues close to the light colors
+ * (red, yellow and green) are left out.
+ */
+final class CarPalette {
+	static final int SIZE = 64;
+	private static final double GOLDEN_RATIO_CONJUGATE = 0.6180339887498949;
+	// hues within this distance of a light color are left out
+	static final double LIGHT_HUE_MARGIN = 1.0 / 48;
+	static final double[] LIGHT_HUES = { 0, 1.0 / 6, 1.0 / 3, 1 };
+	private static final float SATURATION = 0.9f; //1.0 for brilliant, 0.0 for dull
+	private static final float LUMINANCE = 1.0f; //1.0 for brighter, 0.0 for black
+
+	private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+	/*
+	 * Initialization-on-demand holder for the table
+	 */
+	private static final class Table {
+		static final Color[] COLORS = build();
+	}
+
+	private CarPalette() {}
+
+	/*
+	 * @return the palette index for the next car
+	 */
+	static int nextIndex() {
+		return NEXT_INDEX.getAndIncrement() & (SIZE - 1);
+	}
+
+	static Color color(int index) {
+		return Table.COLORS[index];
+	}
+
+	private static Color[] build() {
+		Color[] colors = new Color[SIZE];
+		double hue = 0;
+		int size = 0;
+		while (size < SIZE) {
+			hue = (hue + GOLDEN_RATIO_CONJUGATE) % 1;
+			if (!nearLightHue(hue))
+				colors[size++] = Color.getHSBColor((float) hue, SATURATION, LUMINANCE);
+		}
+		return colors;
+	}
+
+	private static boolean nearLightHue(double hue) {
+		for (double lightHue : LIGHT_HUES) {
+			if (Math.abs(hue - lightHue) < LIGHT_HUE_MARGIN)
+				return true;
+		}
+		return false;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package simulator.moveable;
+
+import java.awt.Color;
+import java.util.HashSet;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+public class CarPaletteTEST extends TestCase {
+	// colors are 8 bits a channel, so a hue read back is only this close
+	private static final double HUE_TOLERANCE = 1.0 / 255;
+	
+	public CarPaletteTEST(String name) {
+		super(name);
+	}
+	
+	public void testNoColorNearALight() {
+		Set<Color> colors = new HashSet<>();
+		for (int index = 0; index < CarPalette.SIZE; index++) {
+			Color color = CarPalette.color(index);
+			colors.add(color);
+			float hue = Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), null)[0];
+			for (double lightHue : CarPalette.LIGHT_HUES)
+				Assert.assertTrue(Math.abs(hue - lightHue) >= CarPalette.LIGHT_HUE_MARGIN - HUE_TOLERANCE);
+		}
+		
+		// and no two entries alike
+		Assert.assertEquals(colors.size(), CarPalette.SIZE);
+	}
+	
+	public void testIndexesWrapAtSize() {
+		int first = CarPalette.nextIndex();
+		int previous = first;
+		for (int count = 1; count < CarPalette.SIZE; count++) {
+			int index = CarPalette.nextIndex();
+			Assert.assertTrue(index >= 0 && index < CarPalette.SIZE);
+			Assert.assertEquals(index, (previous + 1) % CarPalette.SIZE);
+			previous = index;
+		}
+		Assert.assertEquals(CarPalette.nextIndex(), first);
+	}
+}
\ No newline at end of file
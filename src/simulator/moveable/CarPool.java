@@ -0,0 +1,93 @@
+package simulator.moveable;
+
+/*
+ * A bounded stack of released cars, with counters of its traffic.
+ *
+ * Roads run in parallel release cars concurrently, so every operation holds
+ * the pool's monitor.
+ */
+final class CarPool {
+	private Car[] _cars;
+	private int _size;
+	private int _capacity;
+	private long _created;
+	private long _reused;
+	private long _released;
+	private long _discarded;
+
+	CarPool(int capacity) {
+		this.setCapacity(capacity);
+	}
+
+	/*
+	 * Cars above the new capacity are discarded.
+	 */
+	synchronized void setCapacity(int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException ("Capacity must be ge 0");
+		Car[] cars = new Car[capacity];
+		int size = Math.min(this._size, capacity);
+		if (size > 0)
+			System.arraycopy(this._cars, 0, cars, 0, size);
+		for (int idx = size; idx < this._size; idx++)
+			this._cars[idx]._pooled = false;
+		this._discarded += this._size - size;
+		this._cars = cars;
+		this._size = size;
+		this._capacity = capacity;
+	}
+
+	/*
+	 * @return a released car, or null if there is none and the caller must create one
+	 */
+	synchronized Car take() {
+		if (this._size == 0) {
+			this._created++;
+			return null;
+		}
+		Car car = this._cars[--this._size];
+		this._cars[this._size] = null;
+		car._pooled = false;
+		this._reused++;
+		return car;
+	}
+
+	/*
+	 * Cars released twice are only pooled once.
+	 */
+	synchronized void give(Car car) {
+		if (car._pooled)
+			return;
+		this._released++;
+		if (this._size == this._capacity) {
+			this._discarded++;
+			return;
+		}
+		car._pooled = true;
+		this._cars[this._size++] = car;
+	}
+
+	synchronized int size() {
+		return this._size;
+	}
+
+	synchronized int capacity() {
+		return this._capacity;
+	}
+
+	synchronized long created() {
+		return this._created;
+	}
+
+	synchronized long reused() {
+		return this._reused;
+	}
+
+	synchronized long released() {
+		return this._released;
+	}
+
+	synchronized long discarded() {
+		return this._discarded;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package simulator.moveable;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.road.Road;
+import simulator.road.RoadBuilder;
+
+public class CarPoolTEST extends TestCase {
+	
+	RoadBuilder rf = RoadBuilder.BUILDER;
+	
+	public CarPoolTEST(String name) {
+		super(name);
+	}
+	
+	private Car newCar(Road road) {
+		return new Car(BigDecimal.TEN, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, road, false, null);
+	}
+	
+	public void testTakeAndGive() {
+		Road road = rf.setOrientation(Orientation.SOUTH).build();
+		CarPool pool = new CarPool(2);
+		
+		// an empty pool has the caller create a car
+		Assert.assertNull(pool.take());
+		Assert.assertEquals(pool.created(), 1);
+		
+		// cars beyond the capacity are discarded
+		Car first = this.newCar(road);
+		Car second = this.newCar(road);
+		Car third = this.newCar(road);
+		pool.give(first);
+		pool.give(second);
+		pool.give(third);
+		Assert.assertEquals(pool.size(), 2);
+		Assert.assertEquals(pool.released(), 3);
+		Assert.assertEquals(pool.discarded(), 1);
+		
+		// a car released twice is only pooled once
+		pool.give(second);
+		Assert.assertEquals(pool.size(), 2);
+		Assert.assertEquals(pool.released(), 3);
+		
+		// the car released last is reused first, and can be released again
+		Assert.assertSame(pool.take(), second);
+		Assert.assertEquals(pool.reused(), 1);
+		Assert.assertEquals(pool.size(), 1);
+		pool.give(second);
+		Assert.assertEquals(pool.size(), 2);
+		Assert.assertEquals(pool.released(), 4);
+	}
+	
+	public void testSetCapacity() {
+		Road road = rf.setOrientation(Orientation.SOUTH).build();
+		CarPool pool = new CarPool(3);
+		Car[] cars = new Car[3];
+		for (int idx = 0; idx < cars.length; idx++) {
+			cars[idx] = this.newCar(road);
+			pool.give(cars[idx]);
+		}
+		
+		// shrinking the pool discards the cars above the new capacity
+		pool.setCapacity(1);
+		Assert.assertEquals(pool.capacity(), 1);
+		Assert.assertEquals(pool.size(), 1);
+		Assert.assertEquals(pool.discarded(), 2);
+		
+		// which are no longer pooled, so another pool takes them
+		CarPool other = new CarPool(1);
+		other.give(cars[2]);
+		Assert.assertEquals(other.size(), 1);
+		
+		// a capacity of 0 turns pooling off
+		pool.setCapacity(0);
+		pool.give(cars[1]);
+		Assert.assertEquals(pool.size(), 0);
+		Assert.assertNull(pool.take());
+		
+		try {
+			pool.setCapacity(-1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+	}
+	
+	public void testReusedCarStartsAfresh() {
+		CarFactory cf = CarFactory.RANDOM;
+		Road south = rf.setOrientation(Orientation.SOUTH).build();
+		Road east = rf.setOrientation(Orientation.EAST).build();
+		
+		// a car that has been driven, numbered and routed leaves the model
+		Car car = cf.newCar(south, new SplittableRandom(1));
+		car.number(7);
+		car.setRoute(new int[] {0, 1}, 1);
+		car.setRoadSlot(5);
+		car.moveTo(20, MoveableStatus.ACCELERATE);
+		int pooled = cf.pooledCars();
+		long released = cf.releasedCars();
+		long reused = cf.reusedCars();
+		car.release();
+		Assert.assertEquals(cf.pooledCars(), pooled + 1);
+		Assert.assertEquals(cf.releasedCars(), released + 1);
+		
+		// the next car made is the same object, with nothing left of its last life
+		Car next = cf.newCar(east, new SplittableRandom(2));
+		Assert.assertSame(next, car);
+		Assert.assertEquals(cf.reusedCars(), reused + 1);
+		Assert.assertEquals(cf.pooledCars(), pooled);
+		Assert.assertEquals(next.id(), Car.UNNUMBERED);
+		Assert.assertNull(next.route());
+		Assert.assertEquals(next.routeLeg(), 0);
+		Assert.assertEquals(next.roadSlot(), 0);
+		Assert.assertTrue(next.frontPosition() == 0);
+		Assert.assertTrue(next.rearPosition() == 0);
+		Assert.assertEquals(next.status(), MoveableStatus.STOP);
+		Assert.assertEquals(next.currentOrientation(), Orientation.EAST);
+		Assert.assertTrue(next.changed());
+		
+		// and the values drawn for its new life
+		Car fresh = cf.newCar(east, new SplittableRandom(2));
+		Assert.assertNotSame(fresh, next);
+		Assert.assertEquals(next.maxVelocity(), fresh.maxVelocity());
+		Assert.assertEquals(next.brakeDistance(), fresh.brakeDistance());
+		Assert.assertEquals(next.stopDistance(), fresh.stopDistance());
+		Assert.assertEquals(next.length(), fresh.length());
+	}
+}
\ No newline at end of file
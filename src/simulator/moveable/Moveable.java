@@ -3,18 +3,84 @@ package simulator.moveable;
 import java.awt.Color;
 import java.math.BigDecimal;
 
+import simulator.road.Road;
+
 /**
  * A physical presence with the following attributes:
  * 	- an orientation (one of the cardinal directions)
  *  - its rear-most position on a 1D number line
  *  - its front-most position on a 1D number line
  *  
+ * Positions are also available as primitive doubles, which the simulation
+ * loop uses so that reading them allocates nothing.
  */
 public interface Moveable {
+	/*
+	 * Identifies one life of the moveable within its model: the sources of
+	 * a model number the moveables they emit from 0 up, and a moveable that
+	 * is reused gets a new id. A moveable no source emitted has id -1.
+	 */
+	public long id();
 	public BigDecimal currentRearPosition();
 	public BigDecimal currentFrontPosition();
+	public double rearPosition();
+	public double frontPosition();
 	public Orientation currentOrientation();
+	public MoveableStatus status();
 	public MoveableStatus move(double speedGovernor);
+	
+	/*
+	 * Moves given the closest position occupied ahead of the moveable, for
+	 * roads that already know it; move(speedGovernor) asks the road for it.
+	 */
+	public MoveableStatus move(double speedGovernor, double closestOccupiedPosition);
+	
+	/*
+	 * Places the moveable where its road has moved it, for roads that compute
+	 * the motion of their moveables themselves.
+	 */
+	public void moveTo(double frontPosition, MoveableStatus status);
+	
+	/*
+	 * Leaves the moveable as it is, for roads that find it within stopping
+	 * range of the next obstacle, as move does.
+	 */
+	public void stayPut();
+	
+	/*
+	 * Whether the moveable moved or changed status the last time it was
+	 * moved; a moveable that has not been moved yet has changed.
+	 */
+	public boolean changed();
+	
+	/*
+	 * Called by the road a moveable leaves the model from. The moveable may
+	 * then be reused for another, so nothing may keep a reference to it.
+	 */
+	public void release();
+	
+	/*
+	 * Called by the road a moveable is handed to from the end of another
+	 * road: the moveable starts again, stopped, at the start of that road.
+	 * It keeps its id, as this is the same trip.
+	 */
+	public void enter(Road road);
+	
+	/*
+	 * The ids of the roads of the moveable's trip, in order, or null if it
+	 * has no route and turns as it goes; the array may be shared and is not
+	 * changed. The leg is the index in the route of the road it is on.
+	 */
+	public int[] route();
+	public int routeLeg();
+	public void setRoute(int[] route, int leg);
+	
+	/*
+	 * The slot given to the moveable by the road it is on, which the road
+	 * uses to find it without a search.
+	 */
+	public long roadSlot();
+	public void setRoadSlot(long slot);
 	public BigDecimal maxVelocity();
 	public BigDecimal brakeDistance();
 	public BigDecimal stopDistance();
@@ -1,18 +1,32 @@
 package simulator.moveable;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import simulator.agent.AgentPhase;
+import simulator.agent.RandomStreams;
 import simulator.agent.TimeAgent;
 import simulator.road.Road;
+import simulator.road.RoutePlanner;
 
 public final class MoveableSource implements TimeAgent {
 	
 	private static final double DEFAULT_TEMPO = 1.0;
+	private static final String NO_ACTION_STATE = "Source: { NO ACTION }";
 	public static final double MIN_DELAY = 2;
 	public static final double MAX_DELAY = 25;
 	private final double DELAY;
 	private final Road _road;
 	private final CarFactory _carFactory;
+	// the delay and every car emitted are drawn from here
+	private final SplittableRandom _random;
+	// plans the trips of the cars emitted, from the road with index _origin; may be null
+	private RoutePlanner _planner;
+	private int _origin;
+	// numbers the cars emitted; shared by the sources of a model
+	private AtomicLong _carIds = new AtomicLong();
 	private double _timer;
+	// time steps to catch up on at the next run
+	private int _pendingSteps = 1;
 	private boolean _fired;
 	private String _state;
 	
@@ -29,13 +43,38 @@ public final class MoveableSource implements TimeAgent {
 	}
 	
 	public MoveableSource (Road road, double minDelay, double maxDelay, CarFactory carFactory) {
-		this.DELAY = minDelay + (maxDelay - minDelay) * (new Random()).nextDouble();
+		this(road, minDelay, maxDelay, carFactory, RandomStreams.split());
+	}
+	
+	public MoveableSource (Road road, double minDelay, double maxDelay, CarFactory carFactory,
+			SplittableRandom random) {
+		this._random = random;
+		this.DELAY = RandomStreams.between(random, minDelay, maxDelay);
 		this._timer = this.DELAY;
 		this._road = road;
 		this._fired = false;
 		this._carFactory = carFactory;
 	}
 	
+	/*
+	 * Has planner give the cars emitted their trips, from the road with the
+	 * given index in its network; a null planner lets them turn as they go.
+	 */
+	public void setPlanner(RoutePlanner planner, int origin) {
+		this._planner = planner;
+		this._origin = origin;
+	}
+	
+	/*
+	 * Has the source number the cars it emits from ids, shared with the
+	 * other sources of its model; a source on its own numbers them from 0.
+	 */
+	public void setCarIds(AtomicLong ids) {
+		if (ids == null)
+			throw new NullPointerException ("Ids argument cannot be null");
+		this._carIds = ids;
+	}
+	
 	public Road road() {
 		return this._road;
 	}
@@ -52,20 +91,40 @@ public final class MoveableSource implements TimeAgent {
 	public void run (double tempoFactor) {
 		this._fired = false;
 		
-		this._timer -= (DEFAULT_TEMPO*tempoFactor);
-		
-		StringBuilder state = new StringBuilder();
-		state.append("Source: ");
+		for (int step = 0; step < this._pendingSteps; step++)
+			this._timer -= (DEFAULT_TEMPO*tempoFactor);
+		this._pendingSteps = 1;
 		
+		// the state is only built when the source fires
+		this._state = NO_ACTION_STATE;
 		if (this._timer <=0) {
 			this._timer = this.DELAY;
 			//Moveable car = CarFactory.RANDOM.newCar(this._road);
-			Moveable car = this._carFactory.newCar(this._road);
+			Car car = this._carFactory.newCar(this._road, this._random);
+			car.number(this._carIds.getAndIncrement());
+			if (this._planner != null)
+				car.setRoute(this._planner.trip(this._origin, this._random), 0);
 			this._road.addMoveable(car);
 			this._fired = true;
-			state.append("created { ").append(car).append(" }");
-		} else state.append("{ NO ACTION }");
-		this._state = state.toString();
+			this._state = new StringBuilder().append("Source: created { ").append(car).append(" }").toString();
+		}
+	}
+	
+	/*
+	 * A source sleeps until its next emission.
+	 */
+	@Override
+	public int stepsUntilNextRun(double tempoFactor) {
+		if (tempoFactor <= 0)
+			return 1;
+		double timer = this._timer - DEFAULT_TEMPO*tempoFactor;
+		int steps = 1;
+		while (timer > 0) {
+			timer -= DEFAULT_TEMPO*tempoFactor;
+			steps++;
+		}
+		this._pendingSteps = steps;
+		return steps;
 	}
 	
 	/*
@@ -79,4 +138,17 @@ public final class MoveableSource implements TimeAgent {
 	public String state() {
 		return this._state;
 	}
+	
+	/*
+	 * A source only changes when it fires.
+	 */
+	@Override
+	public boolean changed() {
+		return this._fired;
+	}
+	
+	@Override
+	public AgentPhase phase() {
+		return AgentPhase.SOURCE;
+	}
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package simulator.moveable;
 
+import java.util.SplittableRandom;
+
 import junit.framework.TestCase;
 
 import org.junit.Assert;
@@ -59,4 +61,33 @@ public class MoveableSourceTEST extends TestCase {
 		// the source has to fire at least once
 		if (!fired) Assert.fail();
 	}
+	
+	public void testSameSeedEmitsSameCars() {
+		// two sources seeded alike, each on a road of its own
+		MoveableSource first = new MoveableSource(RoadBuilder.BUILDER.setOrientation(o).build(),
+				MoveableSource.MIN_DELAY, MoveableSource.MAX_DELAY, CarFactory.RANDOM, new SplittableRandom(42));
+		MoveableSource second = new MoveableSource(RoadBuilder.BUILDER.setOrientation(o).build(),
+				MoveableSource.MIN_DELAY, MoveableSource.MAX_DELAY, CarFactory.RANDOM, new SplittableRandom(42));
+		Assert.assertTrue(first.sourceDelay()==second.sourceDelay());
+		
+		// they fire together
+		for (int step = 0; step < 100; step++) {
+			first.run(1);
+			second.run(1);
+			Assert.assertEquals(first.fired(), second.fired());
+		}
+		
+		// and cars drawn from streams seeded alike are the same
+		Road r = RoadBuilder.BUILDER.setOrientation(o).build();
+		SplittableRandom firstRandom = new SplittableRandom(42);
+		SplittableRandom secondRandom = new SplittableRandom(42);
+		for (int count = 0; count < 10; count++) {
+			Car firstCar = CarFactory.RANDOM.newCar(r, firstRandom);
+			Car secondCar = CarFactory.RANDOM.newCar(r, secondRandom);
+			Assert.assertEquals(firstCar.maxVelocity(), secondCar.maxVelocity());
+			Assert.assertEquals(firstCar.brakeDistance(), secondCar.brakeDistance());
+			Assert.assertEquals(firstCar.stopDistance(), secondCar.stopDistance());
+			Assert.assertEquals(firstCar.length(), secondCar.length());
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package simulator.road;
+
+import simulator.moveable.Moveable;
+
+/*
+ * The state of the moveables on a road in parallel primitive arrays, head
+ * first, in a power-of-two ring buffer indexed like the road's MoveableQueue.
+ *
+ * The arrays are read and written directly by the road as it moves its
+ * moveables; each moveable is told its new position once it has moved, so
+ * that intersections and animators see the same state as with OBJECTS
+ * storage.
+ */
+final class CarLane {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	double[] _frontPositions = new double[DEFAULT_CAPACITY];
+	double[] _lengths = new double[DEFAULT_CAPACITY];
+	double[] _maxVelocities = new double[DEFAULT_CAPACITY];
+	double[] _brakeDistances = new double[DEFAULT_CAPACITY];
+	double[] _stopDistances = new double[DEFAULT_CAPACITY];
+	// MoveableStatus ordinals
+	byte[] _statuses = new byte[DEFAULT_CAPACITY];
+	Moveable[] _moveables = new Moveable[DEFAULT_CAPACITY];
+	private int _mask = DEFAULT_CAPACITY - 1;
+	private int _head;
+	private int _size;
+
+	int size() {
+		return this._size;
+	}
+
+	/*
+	 * @return the array index of the moveable at the given index, counting from the head
+	 */
+	int slot(int idx) {
+		return (this._head + idx) & this._mask;
+	}
+
+	void add(Moveable mobile) {
+		if (this._size == this._moveables.length)
+			this.grow();
+		int slot = this.slot(this._size);
+		this._frontPositions[slot] = mobile.frontPosition();
+		this._lengths[slot] = mobile.length().doubleValue();
+		this._maxVelocities[slot] = mobile.maxVelocity().doubleValue();
+		this._brakeDistances[slot] = mobile.brakeDistance().doubleValue();
+		this._stopDistances[slot] = mobile.stopDistance().doubleValue();
+		this._statuses[slot] = (byte) mobile.status().ordinal();
+		this._moveables[slot] = mobile;
+		this._size++;
+	}
+
+	void removeHead() {
+		this._moveables[this._head] = null;
+		this._head = (this._head + 1) & this._mask;
+		this._size--;
+	}
+
+	private void grow() {
+		int capacity = this._moveables.length * 2;
+		double[] frontPositions = new double[capacity];
+		double[] lengths = new double[capacity];
+		double[] maxVelocities = new double[capacity];
+		double[] brakeDistances = new double[capacity];
+		double[] stopDistances = new double[capacity];
+		byte[] statuses = new byte[capacity];
+		Moveable[] moveables = new Moveable[capacity];
+		for (int idx = 0; idx < this._size; idx++) {
+			int slot = this.slot(idx);
+			frontPositions[idx] = this._frontPositions[slot];
+			lengths[idx] = this._lengths[slot];
+			maxVelocities[idx] = this._maxVelocities[slot];
+			brakeDistances[idx] = this._brakeDistances[slot];
+			stopDistances[idx] = this._stopDistances[slot];
+			statuses[idx] = this._statuses[slot];
+			moveables[idx] = this._moveables[slot];
+		}
+		this._frontPositions = frontPositions;
+		this._lengths = lengths;
+		this._maxVelocities = maxVelocities;
+		this._brakeDistances = brakeDistances;
+		this._stopDistances = stopDistances;
+		this._statuses = statuses;
+		this._moveables = moveables;
+		this._mask = capacity - 1;
+		this._head = 0;
+	}
+}
\ No newline at end of file
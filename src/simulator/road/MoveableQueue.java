@@ -0,0 +1,118 @@
+package simulator.road;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import simulator.moveable.Moveable;
+
+/*
+ * The moveables on a road, head (furthest along) first, in a power-of-two
+ * ring buffer.
+ *
+ * Moveables enter at the tail and leave from the head, so each one is given
+ * the next slot number on entry and keeps it while on the road. Its index in
+ * the queue is its slot less the slot of the head, which makes finding it,
+ * and the moveable ahead of it, O(1).
+ * 
+ * The time each moveable was added is kept alongside it.
+ */
+final class MoveableQueue implements Iterable<Moveable> {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private Moveable[] _moveables = new Moveable[DEFAULT_CAPACITY];
+	private double[] _entryTimes = new double[DEFAULT_CAPACITY];
+	private int _mask = DEFAULT_CAPACITY - 1;
+	// array index of the head
+	private int _head;
+	private int _size;
+	// slot of the head; the tail's slot is _headSlot + _size - 1
+	private long _headSlot;
+
+	int size() {
+		return this._size;
+	}
+
+	boolean isEmpty() {
+		return this._size == 0;
+	}
+
+	/*
+	 * @return the moveable at the given index, counting from the head
+	 */
+	Moveable get(int idx) {
+		if (idx < 0 || idx >= this._size)
+			throw new IndexOutOfBoundsException ("Index: " + idx + " Size: " + this._size);
+		return this._moveables[(this._head + idx) & this._mask];
+	}
+
+	Moveable head() {
+		if (this._size == 0)
+			throw new NoSuchElementException();
+		return this._moveables[this._head];
+	}
+
+	/*
+	 * @return the time the head was added
+	 */
+	double headEntryTime() {
+		if (this._size == 0)
+			throw new NoSuchElementException();
+		return this._entryTimes[this._head];
+	}
+	
+	void add(Moveable mobile, double entryTime) {
+		if (this._size == this._moveables.length)
+			this.grow();
+		this._moveables[(this._head + this._size) & this._mask] = mobile;
+		this._entryTimes[(this._head + this._size) & this._mask] = entryTime;
+		mobile.setRoadSlot(this._headSlot + this._size);
+		this._size++;
+	}
+
+	Moveable removeHead() {
+		Moveable head = this.head();
+		this._moveables[this._head] = null;
+		this._head = (this._head + 1) & this._mask;
+		this._headSlot++;
+		this._size--;
+		return head;
+	}
+
+	/*
+	 * @return the index of the moveable counting from the head, or -1 if it is not queued
+	 */
+	int indexOf(Moveable mobile) {
+		long idx = mobile.roadSlot() - this._headSlot;
+		if (idx < 0 || idx >= this._size || this.get((int) idx) != mobile)
+			return -1;
+		return (int) idx;
+	}
+
+	boolean contains(Moveable mobile) {
+		return this.indexOf(mobile) != -1;
+	}
+
+	/*
+	 * A snapshot of the queue, so callers may keep it while the road runs
+	 */
+	@Override
+	public Iterator<Moveable> iterator() {
+		ArrayList<Moveable> moveables = new ArrayList<>(this._size);
+		for (int idx = 0; idx < this._size; idx++)
+			moveables.add(this.get(idx));
+		return moveables.iterator();
+	}
+
+	private void grow() {
+		Moveable[] moveables = new Moveable[this._moveables.length * 2];
+		double[] entryTimes = new double[this._moveables.length * 2];
+		for (int idx = 0; idx < this._size; idx++) {
+			moveables[idx] = this.get(idx);
+			entryTimes[idx] = this._entryTimes[(this._head + idx) & this._mask];
+		}
+		this._moveables = moveables;
+		this._entryTimes = entryTimes;
+		this._mask = moveables.length - 1;
+		this._head = 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+package simulator.road;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import junit.framework.TestCase;
+
+import org.junit.Assert;
+
+import simulator.moveable.CarFactory;
+import simulator.moveable.Moveable;
+import simulator.moveable.Orientation;
+
+public class MoveableQueueTEST extends TestCase {
+
+	public MoveableQueueTEST (String name) {
+		super(name);
+	}
+
+	private static Moveable[] newCars(int count) {
+		RoadBuilder.BUILDER.setOrientation(Orientation.EAST);
+		Road road = RoadBuilder.BUILDER.build();
+		Moveable[] cars = new Moveable[count];
+		for (int idx = 0; idx < count; idx++)
+			cars[idx] = CarFactory.RANDOM.newCar(road);
+		return cars;
+	}
+
+	public void testEmptyQueue() {
+		MoveableQueue queue = new MoveableQueue();
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertEquals(0, queue.size());
+		Assert.assertFalse(queue.iterator().hasNext());
+
+		try {queue.head(); Assert.fail();} catch (NoSuchElementException e) {};
+		try {queue.headEntryTime(); Assert.fail();} catch (NoSuchElementException e) {};
+		try {queue.removeHead(); Assert.fail();} catch (NoSuchElementException e) {};
+		try {queue.get(0); Assert.fail();} catch (IndexOutOfBoundsException e) {};
+	}
+
+	public void testAddAndRemoveHead() {
+		Moveable[] cars = newCars(3);
+		MoveableQueue queue = new MoveableQueue();
+		for (int idx = 0; idx < cars.length; idx++)
+			queue.add(cars[idx], idx * 10.0);
+
+		Assert.assertEquals(3, queue.size());
+		Assert.assertSame(cars[0], queue.head());
+		Assert.assertEquals(0.0, queue.headEntryTime(), 0);
+		for (int idx = 0; idx < cars.length; idx++)
+			Assert.assertSame(cars[idx], queue.get(idx));
+		try {queue.get(-1); Assert.fail();} catch (IndexOutOfBoundsException e) {};
+		try {queue.get(3); Assert.fail();} catch (IndexOutOfBoundsException e) {};
+
+		Assert.assertSame(cars[0], queue.removeHead());
+		Assert.assertSame(cars[1], queue.head());
+		Assert.assertEquals(10.0, queue.headEntryTime(), 0);
+		Assert.assertSame(cars[1], queue.removeHead());
+		Assert.assertEquals(20.0, queue.headEntryTime(), 0);
+		Assert.assertSame(cars[2], queue.removeHead());
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	/*
+	 * Slots keep counting as the head moves, so a moveable is found, and the
+	 * one ahead of it, by its slot alone.
+	 */
+	public void testIndexOfBySlot() {
+		Moveable[] cars = newCars(5);
+		MoveableQueue queue = new MoveableQueue();
+		for (int idx = 0; idx < cars.length; idx++)
+			queue.add(cars[idx], idx);
+		for (int idx = 0; idx < cars.length; idx++)
+			Assert.assertEquals(cars[0].roadSlot() + idx, cars[idx].roadSlot());
+
+		queue.removeHead();
+		queue.removeHead();
+		Assert.assertEquals(-1, queue.indexOf(cars[0]));
+		Assert.assertFalse(queue.contains(cars[1]));
+		for (int idx = 2; idx < cars.length; idx++) {
+			Assert.assertEquals(idx - 2, queue.indexOf(cars[idx]));
+			Assert.assertTrue(queue.contains(cars[idx]));
+		}
+		// the leader of a moveable is the one at the index before it
+		Assert.assertSame(cars[3], queue.get(queue.indexOf(cars[4]) - 1));
+
+		// a moveable from another queue, even with a slot in range, is not found
+		Moveable[] others = newCars(3);
+		MoveableQueue other = new MoveableQueue();
+		for (Moveable car : others)
+			other.add(car, 0);
+		Assert.assertEquals(2, others[2].roadSlot());
+		Assert.assertEquals(-1, queue.indexOf(others[2]));
+	}
+
+	/*
+	 * Wraps the ring before it grows, so that growing has to unwrap it, and
+	 * checks that order, entry times and slots all survive.
+	 */
+	public void testGrowWrappedRing() {
+		Moveable[] cars = newCars(40);
+		MoveableQueue queue = new MoveableQueue();
+		for (int idx = 0; idx < 10; idx++)
+			queue.add(cars[idx], idx);
+		for (int idx = 0; idx < 8; idx++)
+			queue.removeHead();
+		for (int idx = 10; idx < cars.length; idx++)
+			queue.add(cars[idx], idx);
+
+		Assert.assertEquals(32, queue.size());
+		Iterator<Moveable> moveables = queue.iterator();
+		for (int idx = 8; idx < cars.length; idx++) {
+			Assert.assertSame(cars[idx], moveables.next());
+			Assert.assertEquals(idx - 8, queue.indexOf(cars[idx]));
+		}
+		Assert.assertFalse(moveables.hasNext());
+
+		for (int idx = 8; idx < cars.length; idx++) {
+			Assert.assertEquals(idx, queue.headEntryTime(), 0);
+			Assert.assertSame(cars[idx], queue.removeHead());
+		}
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	/*
+	 * The iterator is a snapshot, so the queue may change while it is used.
+	 */
+	public void testIteratorIsASnapshot() {
+		Moveable[] cars = newCars(3);
+		MoveableQueue queue = new MoveableQueue();
+		queue.add(cars[0], 0);
+		queue.add(cars[1], 1);
+		Iterator<Moveable> moveables = queue.iterator();
+		queue.removeHead();
+		queue.add(cars[2], 2);
+		Assert.assertSame(cars[0], moveables.next());
+		Assert.assertSame(cars[1], moveables.next());
+		Assert.assertFalse(moveables.hasNext());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,115 @@
+package simulator.road;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import simulator.moveable.Moveable;
+
+/*
+ * Routes moveables through the intersections of a road network, whose
+ * roads are given in network order.
+ * 
+ * A moveable with a route follows it, road by road, and leaves the model at
+ * the end of its last road. A moveable without one turns as it goes: at the
+ * end of a road it goes straight on, along the same orientation, unless it
+ * turns, which it does with the turn probability, onto one of the other
+ * roads leaving the node, picked uniformly. Where no road goes straight on
+ * it always turns, and where no road leaves the node it leaves the model.
+ * 
+ * Every road draws its turns from a stream of its own, so that roads run
+ * on different threads do not share one.
+ * 
+ * A router with a planner tells it the travel time of every moveable that
+ * reaches the end of a road.
+ */
+public final class NetworkRouter implements RoadRouter {
+	public static final double TURN_PROBABILITY = 0.25;
+	
+	private final RoadNetwork _network;
+	private final List<? extends Road> _roads;
+	private final double _turnProbability;
+	private final SplittableRandom[] _randoms;
+	private RoutePlanner _planner;
+	
+	/*
+	 * @invariant roads holds a road for every road of the network, in network order
+	 */
+	public NetworkRouter(RoadNetwork network, List<? extends Road> roads, double turnProbability, SplittableRandom random) {
+		if (roads.size() != network.roadCount())
+			throw new IllegalArgumentException ("Expected " + network.roadCount() + " roads, got " + roads.size());
+		if (!(turnProbability >= 0 && turnProbability <= 1))
+			throw new IllegalArgumentException ("Turn probability must be between 0 and 1");
+		this._network = network;
+		this._roads = roads;
+		this._turnProbability = turnProbability;
+		this._randoms = new SplittableRandom[network.roadCount()];
+		for (int road = 0; road < this._randoms.length; road++)
+			this._randoms[road] = random.split();
+	}
+	
+	/*
+	 * Has every road of the network hand its moveables over through this router.
+	 */
+	public void route() {
+		for (int road = 0; road < this._network.roadCount(); road++)
+			this._roads.get(road).setRouter(this, road);
+	}
+	
+	/*
+	 * Has the router tell planner the travel times observed; null stops it.
+	 */
+	public void setPlanner(RoutePlanner planner) {
+		this._planner = planner;
+	}
+	
+	@Override
+	public void moveableExited(int road, double time, double travelTime) {
+		if (this._planner != null)
+			this._planner.observe(road, time, travelTime);
+	}
+	
+	@Override
+	public Road next(int road, Moveable mobile) {
+		int[] route = mobile.route();
+		int next = (route == null) ? this.turn(road) : this.follow(road, route, mobile);
+		return (next < 0) ? null : this._roads.get(next);
+	}
+	
+	/*
+	 * @return the next road of the route, or -1 at the end of it
+	 */
+	private int follow(int road, int[] route, Moveable mobile) {
+		int leg = mobile.routeLeg() + 1;
+		if (leg == route.length)
+			return -1;
+		int next = route[leg];
+		if (this._network.from(next) != this._network.to(road))
+			throw new IllegalStateException ("Route leaves road " + road + " for road " + next + ", which does not follow it");
+		mobile.setRoute(route, leg);
+		return next;
+	}
+	
+	/*
+	 * @return the road turned onto, or -1 if no road leaves the node
+	 */
+	private int turn(int road) {
+		int node = this._network.to(road);
+		int roadsOut = this._network.outDegree(node);
+		if (roadsOut == 0)
+			return -1;
+		
+		int straight = -1;
+		for (int idx = 0; idx < roadsOut; idx++) {
+			if (this._network.orientation(this._network.outRoad(node, idx)) == this._network.orientation(road))
+				straight = idx;
+		}
+		if (straight >= 0 && (roadsOut == 1 || this._randoms[road].nextDouble() >= this._turnProbability))
+			return this._network.outRoad(node, straight);
+		
+		// one of the roads that turns, skipping the one straight on
+		int turns = (straight >= 0) ? roadsOut - 1 : roadsOut;
+		int idx = (turns == 1) ? 0 : this._randoms[road].nextInt(turns);
+		if (straight >= 0 && idx >= straight)
+			idx++;
+		return this._network.outRoad(node, idx);
+	}
+}
\ No newline at end of file
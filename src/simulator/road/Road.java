@@ -2,10 +2,12 @@ package simulator.road;
 
 import java.util.Iterator;
 
+import simulator.agent.AgentPhase;
 import simulator.agent.TimeAgent;
 import simulator.intersection.Intersection;
 import simulator.moveable.Moveable;
 import simulator.moveable.Orientation;
+import simulator.timeserver.TimeServer;
 
 public interface Road extends TimeAgent {
 	public double getLength();
@@ -15,4 +17,36 @@ public interface Road extends TimeAgent {
 	public Iterator<? extends Intersection> getRemainingIntersectionsIterator (Moveable mobile);
 	public Iterator<? extends Intersection> getAllIntersectionsIterator();
 	public Iterator<Moveable> getAllMoveablesIterator();
+	
+	/*
+	 * Tells the road which timeserver runs it, and in which region, so that
+	 * an empty road can sleep until a moveable is added or handed to it.
+	 */
+	public void scheduleOn(TimeServer timeserver, int region);
+	
+	/*
+	 * Has the road report to listener as it runs; null stops the reports.
+	 */
+	public void setListener(RoadListener listener);
+	
+	/*
+	 * Has the road hand the moveables that reach its end to the road chosen
+	 * by router instead of releasing them; index is the road's index for the
+	 * router. A null router releases them again.
+	 */
+	public void setRouter(RoadRouter router, int index);
+	
+	/*
+	 * Hands over a moveable that reached the end of another road, whose
+	 * index for the router is feeder, to enter this road at the given time.
+	 * The moveable enters on the road's first run at or after that time,
+	 * behind the moveables handed over before it; feeders hand over in the
+	 * order of their index.
+	 */
+	public void transfer(Moveable mobile, int feeder, double time);
+	
+	@Override
+	public default AgentPhase phase() {
+		return AgentPhase.ROAD;
+	}
 }
\ No newline at end of file
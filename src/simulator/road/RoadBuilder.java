@@ -1,7 +1,8 @@
 package simulator.road;
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
+import simulator.agent.RandomStreams;
 import simulator.intersection.Intersection;
 import simulator.moveable.Orientation;
 
@@ -23,6 +24,9 @@ public enum RoadBuilder {
 			_orientation = null;
 			_segmentLength = 0;
 			_scaleLength = 0;
+			_storage = RoadStorage.OBJECTS;
+			_random = DEFAULT_RANDOM;
+			_endsAtIntersection = false;
 		}
 
 		@Override
@@ -38,11 +42,14 @@ public enum RoadBuilder {
 				if (_scaleLength == 0)
 					_scaleLength = _segmentLength;
 				
-				newRoad = new RoadObj(_orientation, _segmentLength, _scaleLength);
+				newRoad = new RoadObj(_orientation, _segmentLength, _scaleLength, _storage);
 				
 				for (Intersection i: _listOfIntersections){
 					newRoad.addIntersection(i);
 				}
+				if (_endsAtIntersection)
+					newRoad.endAtLastIntersection();
+				newRoad.freezeGeometry();
 					 
 			} else {
 				throw new IllegalStateException ("Cannot build an incomplete road");
@@ -64,7 +71,21 @@ public enum RoadBuilder {
 			if (min<=0 || min > max)
 				throw new IllegalArgumentException ();
 			
-			_segmentLength = min + (max-min) * (new Random()).nextDouble();
+			_segmentLength = RandomStreams.between(_random, min, max);
+			return this;
+		}
+
+		@Override
+		public RoadBuilder setEndsAtIntersection(boolean endsAtIntersection) {
+			_endsAtIntersection = endsAtIntersection;
+			return this;
+		}
+
+		@Override
+		public RoadBuilder setRandom(SplittableRandom random) {
+			if (random == null)
+				throw new NullPointerException ("Cannot set a null random");
+			_random = random;
 			return this;
 		}
 
@@ -73,12 +94,28 @@ public enum RoadBuilder {
 			_scaleLength = length;
 			return this;
 		}
+
+		@Override
+		public RoadBuilder setStorage(RoadStorage storage) {
+			if (storage == null)
+				throw new NullPointerException ("Cannot set a null storage");
+			if (storage.equals(RoadStorage.NOT_DEFINED))
+				throw new IllegalArgumentException ("Storage must be defined");
+			_storage = storage;
+			return this;
+		}
 	};
 	
 	private static ArrayList<Intersection> _listOfIntersections = new ArrayList<>();
 	private static Orientation _orientation;
 	private static double _segmentLength;
 	private static double _scaleLength;
+	private static RoadStorage _storage = RoadStorage.OBJECTS;
+	// lengths are drawn from here; a model sets a stream per road before its length
+	private static final SplittableRandom DEFAULT_RANDOM = RandomStreams.split();
+	private static SplittableRandom _random = DEFAULT_RANDOM;
+	// whether the road ends at the rear of its last intersection, rather than a segment after it
+	private static boolean _endsAtIntersection = false;
 	
 	/* default seeding constant */
 	public static final double MIN_LENGTH = 200;
@@ -88,5 +125,8 @@ public enum RoadBuilder {
 	public abstract RoadBuilder addIntersection (Intersection intersection);
 	public abstract Road build();
 	public abstract RoadBuilder setLength(double min, double max);
+	public abstract RoadBuilder setRandom (SplittableRandom random);
+	public abstract RoadBuilder setEndsAtIntersection (boolean endsAtIntersection);
 	public abstract RoadBuilder setScaleLength (double length);
+	public abstract RoadBuilder setStorage (RoadStorage storage);
 }
\ No newline at end of file
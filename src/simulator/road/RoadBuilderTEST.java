@@ -82,10 +82,12 @@ public class RoadBuilderTEST extends TestCase {
 		Iterator<? extends Intersection> iterRoad = r.getAllIntersectionsIterator();
 		Iterator<Intersection> iterArray = intersections.listIterator();
 		while (iterRoad.hasNext()) {
+			iterRoad.next();
 			iterRoadCount++;
 		}
 		
 		while (iterArray.hasNext()) {
+			iterArray.next();
 			iterArrayCount++;
 		}
 		
@@ -95,26 +97,42 @@ public class RoadBuilderTEST extends TestCase {
 		intersections.clear();
 		
 		// verify that each intersection exists b/w two valid segments
-		double cumLength = 0;
+		double previousRear = 0;
 		iterRoad = r.getAllIntersectionsIterator();
 		while (iterRoad.hasNext()) {
 			Intersection tl = iterRoad.next();
 			double front = tl.frontPositionAlongOrientation(o);
-			double rear = tl.frontPositionAlongOrientation(o);
-			double length = rear - front;
+			double rear = tl.rearPositionAlongOrientation(o);
 			
-			// calculate previous segment length
-			cumLength = Math.max(cumLength, rear) - length;
-			cumLength = (cumLength - front <= 0) ? cumLength : cumLength - front;
-			
-			Assert.assertTrue(cumLength<=500);
-			Assert.assertTrue(cumLength>=200);
-			
-			// calculate next segment length if this was the last iteration
-			cumLength = r.getLength() - rear;
-			
-			Assert.assertTrue(cumLength<=500);
-			Assert.assertTrue(cumLength>=200);
+			// the segment before this intersection
+			Assert.assertTrue(front - previousRear <= 500);
+			Assert.assertTrue(front - previousRear >= 200);
+			previousRear = rear;
 		}
+		
+		// the segment after the last intersection
+		Assert.assertTrue(r.getLength() - previousRear <= 500);
+		Assert.assertTrue(r.getLength() - previousRear >= 200);
+	}
+	
+	public void testIntersectionSpansRoadOnce() {
+		RoadObj r = new RoadObj(Orientation.SOUTH, 200, 200, RoadStorage.OBJECTS);
+		Intersection first = new TwoWayTrafficLight(10, 30, 4);
+		Intersection second = new TwoWayTrafficLight(10, 30, 4);
+		r.addIntersection(first);
+		r.addIntersection(second);
+		
+		// the same intersection cannot be added twice
+		try {
+			r.addIntersection(first);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+		
+		// once frozen, intersections are iterated in the order they were added
+		r.freezeGeometry();
+		Iterator<? extends Intersection> iter = r.getAllIntersectionsIterator();
+		Assert.assertSame(first, iter.next());
+		Assert.assertSame(second, iter.next());
+		Assert.assertFalse(iter.hasNext());
 	}
 }
\ No newline at end of file
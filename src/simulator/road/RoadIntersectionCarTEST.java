@@ -61,6 +61,45 @@ public class RoadIntersectionCarTEST extends TestCase {
 		}
 	}
 	
+	class MockListener implements RoadListener {
+		int _exited;
+		int _moveables;
+		int _stopped;
+		int[] _queues;
+		
+		@Override
+		public void moveableExited(Road road, double travelTime) {
+			Assert.assertTrue(travelTime >= 0);
+			this._exited++;
+		}
+
+		@Override
+		public void roadRan(Road road, int moveables, int stopped, int[] queues) {
+			this._moveables = moveables;
+			this._stopped = stopped;
+			this._queues = queues;
+		}
+	}
+	
+	public void testListenerReportsExitsAndQueues() {
+		RoadBuilder.BUILDER.setOrientation(Orientation.SOUTH);
+		Road r = RoadBuilder.BUILDER.addIntersection(new TwoWayTrafficLight()).build();
+		MoveableSource ms = new MoveableSource(r);
+		MockListener listener = new MockListener();
+		r.setListener(listener);
+		
+		for (int counter = 0; counter < 200; counter++) {
+			this.testFireSource(ms);
+			r.run(1);
+			
+			Assert.assertEquals(((RoadObj) r).moveableCount(), listener._moveables);
+			Assert.assertTrue(listener._stopped <= listener._moveables);
+			Assert.assertEquals(1, listener._queues.length);
+			Assert.assertTrue(listener._queues[0] <= listener._stopped);
+		}
+		Assert.assertTrue(listener._exited > 0);
+	}
+	
 	public void testFireSource(MoveableSource ms) {
 		// add a car to the road
 		int counter = 0; 
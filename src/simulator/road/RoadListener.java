@@ -0,0 +1,25 @@
+package simulator.road;
+
+/*
+ * Measures a road as it runs. Callbacks are made on the thread running the
+ * road, which is not the same for every road with a parallel timeserver, so
+ * a listener shared by roads keeps what it gathers apart for each road.
+ */
+public interface RoadListener {
+	
+	/*
+	 * A moveable left the road at its end, travelTime after it was added to
+	 * the road: it left the model, or was handed over to the next road. A
+	 * road with a router tells once it has run, on the thread running the
+	 * timeserver.
+	 */
+	public void moveableExited(Road road, double travelTime);
+	
+	/*
+	 * The road has moved its moveables: how many there are, how many of them
+	 * are stopped, and how many stopped moveables are queued before each of
+	 * its intersections, in position order. The array belongs to the road
+	 * and is only valid during the call.
+	 */
+	public void roadRan(Road road, int moveables, int stopped, int[] queues);
+}
\ No newline at end of file
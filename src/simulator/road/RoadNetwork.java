@@ -0,0 +1,146 @@
+package simulator.road;
+
+import java.util.Arrays;
+import simulator.moveable.Orientation;
+
+/*
+ * The topology of a road network. Intersections are nodes numbered from 0;
+ * every road runs from one node to another and ends at the light of the
+ * node it runs to. Roads are numbered in the order they were read; nodes
+ * keep the order of the numbers they were read with, which nodeId gives.
+ * 
+ * Roads are kept in compact adjacency arrays (CSR): the roads leaving node n
+ * are outRoad(n, 0) to outRoad(n, outDegree(n) - 1), in road order, and
+ * likewise for the roads entering it. A network takes a few dozen bytes per
+ * road and no object per road or node; roads and lights are only built from
+ * it with the model.
+ * 
+ * A TwoWayTrafficLight has at most two lights, one per orientation, so a
+ * node is entered by at most two roads, along different orientations.
+ */
+public final class RoadNetwork {
+	private static final Orientation[] ORIENTATIONS = Orientation.values();
+	public static final int MAX_ROADS_IN = 2;
+	
+	// the number each node was read with, in increasing order
+	private final int[] _nodeIds;
+	private final int[] _from;
+	private final int[] _to;
+	private final byte[] _orientations;
+	// 0 for a road whose length is drawn when the model is built
+	private final double[] _lengths;
+	// the roads leaving node n are _outRoads[_outOffsets[n]] to _outRoads[_outOffsets[n + 1] - 1]
+	private final int[] _outOffsets;
+	private final int[] _outRoads;
+	private final int[] _inOffsets;
+	private final int[] _inRoads;
+	
+	/*
+	 * @invariant the road arrays are as long as there are roads
+	 * @invariant nodeIds is increasing
+	 */
+	RoadNetwork(int[] nodeIds, int[] from, int[] to, byte[] orientations, double[] lengths) {
+		int nodeCount = nodeIds.length;
+		for (int road = 0; road < from.length; road++) {
+			if (from[road] < 0 || from[road] >= nodeCount || to[road] < 0 || to[road] >= nodeCount)
+				throw new IllegalArgumentException ("Road " + road + " runs to an unknown node");
+			if (from[road] == to[road])
+				throw new IllegalArgumentException ("Road " + road + " runs from node " + nodeIds[from[road]] + " to itself");
+			if (lengths[road] < 0)
+				throw new IllegalArgumentException ("Road " + road + " has a negative length");
+		}
+		
+		this._nodeIds = nodeIds;
+		this._from = from;
+		this._to = to;
+		this._orientations = orientations;
+		this._lengths = lengths;
+		this._outOffsets = offsets(nodeCount, from);
+		this._outRoads = adjacency(this._outOffsets, from);
+		this._inOffsets = offsets(nodeCount, to);
+		this._inRoads = adjacency(this._inOffsets, to);
+		
+		for (int node = 0; node < nodeCount; node++) {
+			if (this.inDegree(node) > MAX_ROADS_IN)
+				throw new IllegalArgumentException ("Node " + nodeIds[node] + " is entered by more than " + MAX_ROADS_IN + " roads");
+			if (this.inDegree(node) == MAX_ROADS_IN && 
+					this._orientations[this.inRoad(node, 0)] == this._orientations[this.inRoad(node, 1)])
+				throw new IllegalArgumentException ("Node " + nodeIds[node] + " is entered by two roads along the same orientation");
+		}
+	}
+	
+	/*
+	 * The start of the roads of each node, counted then summed: one pass per array.
+	 */
+	private static int[] offsets(int nodeCount, int[] ends) {
+		int[] offsets = new int[nodeCount + 1];
+		for (int end : ends)
+			offsets[end + 1]++;
+		for (int node = 0; node < nodeCount; node++)
+			offsets[node + 1] += offsets[node];
+		return offsets;
+	}
+	
+	private static int[] adjacency(int[] offsets, int[] ends) {
+		int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+		int[] roads = new int[ends.length];
+		for (int road = 0; road < ends.length; road++)
+			roads[next[ends[road]]++] = road;
+		return roads;
+	}
+	
+	public int nodeCount() {
+		return this._nodeIds.length;
+	}
+	
+	/*
+	 * @return the number the node was read with
+	 */
+	public int nodeId(int node) {
+		return this._nodeIds[node];
+	}
+	
+	public int roadCount() {
+		return this._from.length;
+	}
+	
+	public int from(int road) {
+		return this._from[road];
+	}
+	
+	public int to(int road) {
+		return this._to[road];
+	}
+	
+	public Orientation orientation(int road) {
+		return ORIENTATIONS[this._orientations[road]];
+	}
+	
+	/*
+	 * @return the length of the road up to its light, or 0 if it is drawn when the model is built
+	 */
+	public double length(int road) {
+		return this._lengths[road];
+	}
+	
+	public int outDegree(int node) {
+		return this._outOffsets[node + 1] - this._outOffsets[node];
+	}
+	
+	public int outRoad(int node, int idx) {
+		return this._outRoads[this._outOffsets[node] + idx];
+	}
+	
+	public int inDegree(int node) {
+		return this._inOffsets[node + 1] - this._inOffsets[node];
+	}
+	
+	public int inRoad(int node, int idx) {
+		return this._inRoads[this._inOffsets[node] + idx];
+	}
+	
+	public String toString() {
+		return new StringBuilder().append(this.nodeCount()).append(" intersections, ")
+				.append(this.roadCount()).append(" roads").toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package simulator.road;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import simulator.moveable.Orientation;
+
+/*
+ * Reads a road network from an edge list, one road per line:
+ * 
+ *     <from node> <to node> <orientation> [<length>]
+ * 
+ * Nodes are numbered with integers from 0, not necessarily without gaps,
+ * and the orientation is one of NORTH, EAST, SOUTH or WEST. A road without
+ * a length has one drawn when the model is built. Blank lines and lines
+ * starting with # are skipped.
+ * 
+ * The list is streamed: each line is parsed in place into growing primitive
+ * arrays, so memory stays at a few dozen bytes per road however large the
+ * file is. Once read, the nodes are renumbered from 0 in the order of their
+ * numbers, so that memory does not grow with the largest number used; a list
+ * numbered without gaps keeps its numbers.
+ */
+public final class RoadNetworkReader {
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final Orientation[] ORIENTATIONS = Orientation.values();
+	
+	private int _roads;
+	private int[] _from = new int[INITIAL_CAPACITY];
+	private int[] _to = new int[INITIAL_CAPACITY];
+	private byte[] _orientations = new byte[INITIAL_CAPACITY];
+	private double[] _lengths = new double[INITIAL_CAPACITY];
+	
+	// the line being parsed, and the position of the next token in it
+	private String _line;
+	private int _lineNumber;
+	private int _position;
+	
+	private RoadNetworkReader() {}
+	
+	public static RoadNetwork read(Path path) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(path)) {
+			return read(reader);
+		}
+	}
+	
+	/*
+	 * @throws IllegalArgumentException if a line is malformed, or the roads
+	 * read do not make a network; the message gives the line or the node
+	 */
+	public static RoadNetwork read(BufferedReader reader) throws IOException {
+		RoadNetworkReader networkReader = new RoadNetworkReader();
+		String line;
+		while ((line = reader.readLine()) != null)
+			networkReader.parse(line);
+		return networkReader.toRoadNetwork();
+	}
+	
+	private void parse(String line) {
+		this._line = line;
+		this._lineNumber++;
+		this._position = 0;
+		if (!this.hasToken() || line.charAt(this._position) == '#')
+			return;
+		
+		if (this._roads == this._from.length)
+			this.grow();
+		
+		int from = this.nextNode();
+		int to = this.nextNode();
+		this._from[this._roads] = from;
+		this._to[this._roads] = to;
+		this._orientations[this._roads] = (byte) this.nextOrientation().ordinal();
+		this._lengths[this._roads] = this.hasToken() ? this.nextLength() : 0;
+		if (this.hasToken())
+			throw this.error("unexpected " + this.nextToken());
+		this._roads++;
+	}
+	
+	private RoadNetwork toRoadNetwork() {
+		int[] from = Arrays.copyOf(this._from, this._roads);
+		int[] to = Arrays.copyOf(this._to, this._roads);
+		
+		// the distinct node numbers, in order
+		int[] nodeIds = Arrays.copyOf(from, 2 * this._roads);
+		System.arraycopy(to, 0, nodeIds, this._roads, this._roads);
+		Arrays.sort(nodeIds);
+		int nodeCount = 0;
+		for (int nodeId : nodeIds) {
+			if (nodeCount == 0 || nodeId != nodeIds[nodeCount - 1])
+				nodeIds[nodeCount++] = nodeId;
+		}
+		nodeIds = Arrays.copyOf(nodeIds, nodeCount);
+		
+		// nodes numbered without gaps keep their numbers
+		if (nodeCount > 0 && nodeIds[nodeCount - 1] != nodeCount - 1) {
+			for (int road = 0; road < this._roads; road++) {
+				from[road] = Arrays.binarySearch(nodeIds, from[road]);
+				to[road] = Arrays.binarySearch(nodeIds, to[road]);
+			}
+		}
+		return new RoadNetwork(nodeIds, from, to, Arrays.copyOf(this._orientations, this._roads),
+				Arrays.copyOf(this._lengths, this._roads));
+	}
+	
+	private void grow() {
+		int capacity = this._from.length * 2;
+		this._from = Arrays.copyOf(this._from, capacity);
+		this._to = Arrays.copyOf(this._to, capacity);
+		this._orientations = Arrays.copyOf(this._orientations, capacity);
+		this._lengths = Arrays.copyOf(this._lengths, capacity);
+	}
+	
+	/*
+	 * Skips the whitespace before the next token.
+	 * 
+	 * @return whether there is a token left on the line
+	 */
+	private boolean hasToken() {
+		while (this._position < this._line.length() && Character.isWhitespace(this._line.charAt(this._position)))
+			this._position++;
+		return this._position < this._line.length();
+	}
+	
+	/*
+	 * @return the end of the token at the current position
+	 */
+	private int tokenEnd() {
+		if (!this.hasToken())
+			throw this.error("missing value");
+		int end = this._position;
+		while (end < this._line.length() && !Character.isWhitespace(this._line.charAt(end)))
+			end++;
+		return end;
+	}
+	
+	private String nextToken() {
+		int end = this.tokenEnd();
+		String token = this._line.substring(this._position, end);
+		this._position = end;
+		return token;
+	}
+	
+	private int nextNode() {
+		int end = this.tokenEnd();
+		int node;
+		try {
+			node = Integer.parseInt(this._line, this._position, end, 10);
+		} catch (NumberFormatException e) {
+			throw this.error("bad node " + this._line.substring(this._position, end));
+		}
+		if (node < 0)
+			throw this.error("negative node " + node);
+		this._position = end;
+		return node;
+	}
+	
+	private Orientation nextOrientation() {
+		int end = this.tokenEnd();
+		for (Orientation orientation : ORIENTATIONS) {
+			String name = orientation.name();
+			if (name.length() == end - this._position && this._line.regionMatches(true, this._position, name, 0, name.length())) {
+				this._position = end;
+				return orientation;
+			}
+		}
+		throw this.error("bad orientation " + this._line.substring(this._position, end));
+	}
+	
+	private double nextLength() {
+		String token = this.nextToken();
+		double length;
+		try {
+			length = Double.parseDouble(token);
+		} catch (NumberFormatException e) {
+			throw this.error("bad length " + token);
+		}
+		if (!(length > 0) || Double.isInfinite(length))
+			throw this.error("length must be gt 0 and finite");
+		return length;
+	}
+	
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException ("Line " + this._lineNumber + ": " + message);
+	}
+}
\ No newline at end of file
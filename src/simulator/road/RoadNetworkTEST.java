@@ -0,0 +1,248 @@
+package simulator.road;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+import junit.framework.TestCase;
+
+import org.junit.Assert;
+
+import simulator.agent.TimeAgent;
+import simulator.intersection.Intersection;
+import simulator.intersection.TwoWayTrafficLight;
+import simulator.moveable.CarFactory;
+import simulator.moveable.Moveable;
+import simulator.moveable.Orientation;
+import simulator.timeserver.TimeServer;
+import simulator.timeserver.TimeServerBatch;
+import simulator.timeserver.TimeServerListener;
+
+public class RoadNetworkTEST extends TestCase {
+	
+	public RoadNetworkTEST (String name) {
+		super(name);
+	}
+	
+	private static RoadNetwork read(String edges) throws IOException {
+		return RoadNetworkReader.read(new BufferedReader(new StringReader(edges)));
+	}
+	
+	public void testReadEdgeList() throws IOException {
+		// a T: 0 -> 1 -> 2 along a row, 3 -> 1 down a column
+		RoadNetwork network = read("# from to orientation [length]\n"
+				+ "0 1 EAST 300\n"
+				+ "\n"
+				+ "  1   2 east\n"
+				+ "3 1 SOUTH 250.5\n");
+		
+		Assert.assertEquals(4, network.nodeCount());
+		Assert.assertEquals(3, network.roadCount());
+		
+		// roads keep the order they were read in
+		Assert.assertEquals(0, network.from(0));
+		Assert.assertEquals(1, network.to(0));
+		Assert.assertEquals(Orientation.EAST, network.orientation(1));
+		Assert.assertEquals(Orientation.SOUTH, network.orientation(2));
+		Assert.assertTrue(network.length(0) == 300);
+		Assert.assertTrue(network.length(1) == 0);
+		Assert.assertTrue(network.length(2) == 250.5);
+		
+		// node 1 is entered by two roads and left by one
+		Assert.assertEquals(2, network.inDegree(1));
+		Assert.assertEquals(0, network.inRoad(1, 0));
+		Assert.assertEquals(2, network.inRoad(1, 1));
+		Assert.assertEquals(1, network.outDegree(1));
+		Assert.assertEquals(1, network.outRoad(1, 0));
+		
+		// node 3 is only left, node 2 only entered
+		Assert.assertEquals(0, network.inDegree(3));
+		Assert.assertEquals(1, network.outDegree(3));
+		Assert.assertEquals(0, network.outDegree(2));
+	}
+	
+	public void testRejectMalformedLines() throws IOException {
+		String[] malformed = {
+				"0 1 EAST\n0 x EAST\n",
+				"0 1 UP\n",
+				"0 1\n",
+				"0 1 EAST 0\n",
+				"0 1 EAST 100 extra\n",
+				"-1 1 EAST\n" };
+		for (String edges : malformed) {
+			try {
+				read(edges);
+				Assert.fail();
+			} catch (IllegalArgumentException e) {};
+		}
+		
+		// the line is reported
+		try {
+			read("0 1 EAST\n# comment\n1 2 EAST abc\n");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Line 3"));
+		};
+	}
+	
+	public void testRejectNodesLightsCannotControl() throws IOException {
+		// a light controls at most two roads in
+		try {
+			read("0 3 EAST\n1 3 SOUTH\n2 3 WEST\n");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+		
+		// along different orientations
+		try {
+			read("0 2 EAST\n1 2 EAST\n");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+		
+		// a road cannot run to its own node
+		try {
+			read("0 0 EAST\n");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+	}
+	
+	public void testRenumberSparseNodes() throws IOException {
+		// node numbers far apart take no more room than numbers without gaps
+		RoadNetwork network = read("2000000000 7 EAST\n7 12 SOUTH\n40 7 NORTH\n");
+		Assert.assertEquals(4, network.nodeCount());
+		
+		// nodes are renumbered in the order of their numbers
+		Assert.assertEquals(7, network.nodeId(0));
+		Assert.assertEquals(12, network.nodeId(1));
+		Assert.assertEquals(40, network.nodeId(2));
+		Assert.assertEquals(2000000000, network.nodeId(3));
+		Assert.assertEquals(3, network.from(0));
+		Assert.assertEquals(0, network.to(0));
+		Assert.assertEquals(1, network.to(1));
+		Assert.assertEquals(2, network.inDegree(0));
+		
+		// a network numbered without gaps keeps its numbers
+		network = read("2 1 WEST\n0 1 EAST\n");
+		for (int node = 0; node < network.nodeCount(); node++)
+			Assert.assertEquals(node, network.nodeId(node));
+		Assert.assertEquals(2, network.from(0));
+		
+		// and a node is reported by the number it was read with
+		try {
+			read("5 90 EAST\n6 90 EAST\n");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Node 90 "));
+		};
+	}
+	
+	public void testRoadEndsAtIntersection() {
+		Intersection light = new TwoWayTrafficLight(10, 30, 4);
+		RoadBuilder.BUILDER.setOrientation(Orientation.EAST).setLength(300, 300);
+		Road road = RoadBuilder.BUILDER.setEndsAtIntersection(true).addIntersection(light).build();
+		
+		// the road ends at the rear of its light, with no segment after it
+		Assert.assertTrue(road.getLength() == light.rearPositionAlongOrientation(Orientation.EAST));
+		Assert.assertTrue(light.frontPositionAlongOrientation(Orientation.EAST) == 300);
+	}
+	
+	/*
+	 * Drives one car from the start of the first road of a fork, 0 -> 1 and
+	 * then east to 2 or south to 3.
+	 * 
+	 * @return the number of times the car left each road, in network order
+	 */
+	private static int[] driveThroughFork(double turnProbability, int[] route) throws IOException {
+		RoadNetwork network = read("0 1 EAST 100\n1 2 EAST 100\n1 3 SOUTH 100\n");
+		Intersection[] lights = new Intersection[network.nodeCount()];
+		for (int node = 1; node < network.nodeCount(); node++)
+			lights[node] = new TwoWayTrafficLight(10, 30, 4);
+		
+		final ArrayList<Road> roads = new ArrayList<>();
+		for (int road = 0; road < network.roadCount(); road++) {
+			RoadBuilder.BUILDER.setOrientation(network.orientation(road)).setLength(100, 100);
+			roads.add(RoadBuilder.BUILDER.setEndsAtIntersection(true).addIntersection(lights[network.to(road)]).build());
+		}
+		new NetworkRouter(network, roads, turnProbability, new SplittableRandom(1)).route();
+		
+		final int[] exits = new int[roads.size()];
+		RoadListener counter = new RoadListener() {
+			@Override
+			public void moveableExited(Road road, double travelTime) {
+				exits[roads.indexOf(road)]++;
+			}
+			
+			@Override
+			public void roadRan(Road road, int moveables, int stopped, int[] queues) {}
+		};
+		
+		TimeServer timeserver = new TimeServerBatch(1, null);
+		for (Road road : roads) {
+			road.setListener(counter);
+			road.scheduleOn(timeserver, 0);
+			timeserver.enqueue(1, road);
+		}
+		for (int node = 1; node < network.nodeCount(); node++)
+			timeserver.enqueue(1, (TwoWayTrafficLight) lights[node]);
+		
+		final Moveable car = CarFactory.RANDOM.newCar(roads.get(0));
+		car.setRoute(route, 0);
+		roads.get(0).addMoveable(car);
+		
+		// a car handed over is on one road or the other in every tick
+		final int[] runs = new int[roads.size()];
+		timeserver.addListener(new TimeServerListener() {
+			private boolean _left;
+			
+			@Override
+			public void agentRan(TimeAgent agent) {
+				if (agent instanceof Road)
+					runs[roads.indexOf(agent)]++;
+			}
+			
+			@Override
+			public void tickEnded(double time) {
+				boolean onRoad = false;
+				for (Road road : roads) {
+					Iterator<Moveable> moveables = road.getAllMoveablesIterator();
+					while (moveables.hasNext())
+						onRoad |= moveables.next() == car;
+				}
+				Assert.assertFalse(onRoad && this._left);
+				this._left |= !onRoad;
+			}
+		});
+		timeserver.run(1000);
+		
+		// the car has left the model
+		for (Road road : roads)
+			Assert.assertFalse(road.getAllMoveablesIterator().hasNext());
+		
+		// roads sleep while empty: one the car never went on ran once, in the first tick
+		for (int road = 0; road < roads.size(); road++) {
+			if (exits[road] == 0)
+				Assert.assertEquals(1, runs[road]);
+		}
+		return exits;
+	}
+	
+	public void testCarsGoOnFromRoadToRoad() throws IOException {
+		// without a route, a car that never turns goes straight on
+		Assert.assertArrayEquals(new int[] {1, 1, 0}, driveThroughFork(0, null));
+		
+		// and one that always turns takes the other road
+		Assert.assertArrayEquals(new int[] {1, 0, 1}, driveThroughFork(1, null));
+		
+		// a car with a route follows it whatever the turn probability
+		Assert.assertArrayEquals(new int[] {1, 0, 1}, driveThroughFork(0, new int[] {0, 2}));
+		Assert.assertArrayEquals(new int[] {1, 0, 0}, driveThroughFork(1, new int[] {0}));
+		
+		// and cannot go onto a road that does not follow its own
+		try {
+			driveThroughFork(0, new int[] {0, 0});
+			Assert.fail();
+		} catch (IllegalStateException e) {};
+	}
+}
\ No newline at end of file
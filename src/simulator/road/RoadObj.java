@@ -1,13 +1,18 @@
 package simulator.road;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import simulator.intersection.Intersection;
+import simulator.intersection.IntersectionStatus;
 import simulator.moveable.Moveable;
+import simulator.moveable.MoveableStatus;
 import simulator.moveable.Orientation;
+import simulator.timeserver.TimeServer;
 
 /*
  * A road is an agent of timeserver. It has a source that emits moveables, 
@@ -17,6 +22,26 @@ import simulator.moveable.Orientation;
  * road proper until there is room enough on the road. 
  *  
  * The road can be intersected by zero, one, or more intersections. 
+ * 
+ * Once built, the geometry of the road is frozen: its length is cached and
+ * the intersections are indexed by position, so that finding the ones ahead
+ * of a moveable is a binary search.
+ * 
+ * With ARRAYS storage the road also keeps the state of its moveables in a
+ * CarLane and moves them itself, in one loop over primitive arrays, instead
+ * of asking each moveable to move. Motion is computed as by a car in double
+ * mode, and gives the same results.
+ * 
+ * A road with a listener reports each moveable that leaves it, and after
+ * each run the moveables that are stopped and where they are queued.
+ * 
+ * A road with a router hands the moveables that reach its end to the next
+ * road instead of releasing them. They leave once the road has run and been
+ * seen by the listeners of the timeserver, on the thread running it, and
+ * enter the next road at the start of its run in the next tick, the one in
+ * which they would have left: a moveable is on one road or the other in
+ * every tick, roads run in parallel never add to one another, and a transfer
+ * costs O(1) whatever the order roads run in.
  */
 public class RoadObj implements Road {
 	/*  
@@ -28,30 +53,97 @@ public class RoadObj implements Road {
 	private final double DEFAULT_TEMPO = 1;
 	private final double _segmentLength;
 	private final Orientation _orientation;
-	private final LinkedList<Intersection> _intersections;
-	private final LinkedList<Moveable> _currentMoveables;
+	private final ArrayList<Intersection> _intersections;
+	// the intersections added, to reject duplicates; null once the geometry is frozen
+	private Set<Intersection> _addedIntersections;
+	private final MoveableQueue _currentMoveables;
+	// null unless the road has ARRAYS storage
+	private final CarLane _lane;
 	
-	RoadObj (Orientation orientation, double segmentLength, double scaleLength) {
-		this._intersections = new LinkedList<>();
-		this._currentMoveables = new LinkedList<>();
+	/*
+	 * Frozen geometry
+	 */
+	private double _length;
+	// intersections in position order, with their positions along the road;
+	// null until the geometry is frozen
+	private Intersection[] _intersectionIndex;
+	private double[] _intersectionFronts;
+	private double[] _intersectionRears;
+	// stopped moveables before each intersection, counted for the listener
+	private int[] _queues;
+	private final IntersectionCursor _cursor = new IntersectionCursor();
+	
+	/*
+	 * Attributes to wake the road when it has been left empty
+	 */
+	private TimeServer _timeserver;
+	private int _region;
+	private boolean _sleeping;
+	
+	/*
+	 * Change tracking: whether a moveable entered, left, moved or changed
+	 * status at the last run, how many entered and left, and how many have
+	 * been added and handed over since
+	 */
+	private boolean _changed = true;
+	private int _enteredAtRun;
+	private int _leftAtRun;
+	private int _entered;
+	private int _left;
+	
+	private RoadListener _listener;
+	
+	/*
+	 * Moveables handed to this road, in one queue per feeding road in feeder
+	 * order, with the time each enters it
+	 */
+	private static final int[] NO_FEEDERS = new int[0];
+	private static final MoveableQueue[] NO_INCOMING = new MoveableQueue[0];
+	private RoadRouter _router;
+	private int _index;
+	private int[] _feeders = NO_FEEDERS;
+	private MoveableQueue[] _incoming = NO_INCOMING;
+	
+	RoadObj (Orientation orientation, double segmentLength, double scaleLength, RoadStorage storage) {
+		this._intersections = new ArrayList<>();
+		this._addedIntersections = Collections.newSetFromMap(new IdentityHashMap<Intersection, Boolean>());
+		this._currentMoveables = new MoveableQueue();
+		this._lane = storage.equals(RoadStorage.ARRAYS) ? new CarLane() : null;
 		this._orientation = orientation;
 		this._segmentLength = segmentLength;
 		this._scaleFactor = this._segmentLength / scaleLength;
+		this._length = segmentLength;
 	}
 	
 	/*
-	 * for testing
+	 * Iterates over the intersections from a given index to the last one.
 	 */
-	public double getLength() {
+	private final class IntersectionCursor implements Iterator<Intersection> {
+		private int _next;
 		
-		double totalLength = this._segmentLength;
+		IntersectionCursor reset(int from) {
+			this._next = from;
+			return this;
+		}
 		
-		for (Intersection i : this._intersections) {
-			totalLength += i.rearPositionAlongOrientation(this._orientation) - i.frontPositionAlongOrientation(this._orientation);
-			totalLength += this._segmentLength;
+		@Override
+		public boolean hasNext() {
+			return this._next < RoadObj.this._intersectionIndex.length;
 		}
-			
-		return totalLength;
+		
+		@Override
+		public Intersection next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException();
+			return RoadObj.this._intersectionIndex[this._next++];
+		}
+	}
+	
+	/*
+	 * The length of every segment and intersection, summed as intersections are added.
+	 */
+	public double getLength() {
+		return this._length;
 	}
 	
 	public Orientation orientation() {
@@ -68,7 +160,126 @@ public class RoadObj implements Road {
  	public void addMoveable (Moveable mobile) {
  		if (mobile == null)
 			throw new NullPointerException ("Mobile argument cannot be null");
-		this._currentMoveables.add(mobile);
+		this._currentMoveables.add(mobile, this.currentTime());
+		if (this._lane != null)
+			this._lane.add(mobile);
+		this._entered++;
+		
+		if (this._sleeping) {
+			this._sleeping = false;
+			this._timeserver.enqueue(this._timeserver.currentTime(), this, this._region);
+		}
+	}
+	
+	/*
+	 * Re-scheduling a road clears its sleeping state: the caller enqueues it.
+	 */
+	@Override
+	public void scheduleOn(TimeServer timeserver, int region) {
+		if (timeserver == null)
+			throw new NullPointerException ("Timeserver argument cannot be null");
+		this._timeserver = timeserver;
+		this._region = region;
+		this._sleeping = false;
+	}
+	
+	@Override
+	public void setListener(RoadListener listener) {
+		this._listener = listener;
+	}
+	
+	@Override
+	public void setRouter(RoadRouter router, int index) {
+		this._router = router;
+		this._index = index;
+	}
+	
+	/*
+	 * Finds the queue of the feeder, adding one in feeder order the first
+	 * time it hands a moveable over; a road has few feeders. A sleeping road
+	 * is woken for the time the moveable enters it.
+	 */
+	@Override
+	public void transfer(Moveable mobile, int feeder, double time) {
+		if (mobile == null)
+			throw new NullPointerException ("Mobile argument cannot be null");
+		int idx = 0;
+		while (idx < this._feeders.length && this._feeders[idx] < feeder)
+			idx++;
+		if (idx == this._feeders.length || this._feeders[idx] != feeder) {
+			int[] feeders = new int[this._feeders.length + 1];
+			MoveableQueue[] incoming = new MoveableQueue[feeders.length];
+			System.arraycopy(this._feeders, 0, feeders, 0, idx);
+			System.arraycopy(this._incoming, 0, incoming, 0, idx);
+			System.arraycopy(this._feeders, idx, feeders, idx + 1, this._feeders.length - idx);
+			System.arraycopy(this._incoming, idx, incoming, idx + 1, this._incoming.length - idx);
+			feeders[idx] = feeder;
+			incoming[idx] = new MoveableQueue();
+			this._feeders = feeders;
+			this._incoming = incoming;
+		}
+		this._incoming[idx].add(mobile, time);
+		
+		if (this._sleeping) {
+			this._sleeping = false;
+			this._timeserver.enqueue(time, this, this._region);
+		}
+	}
+	
+	/*
+	 * Hands the moveables that reached the end of the road at its last run
+	 * to their next roads, to enter them one time step later; the timeserver
+	 * asks on its own thread once the road has run. The time step is the
+	 * tempo factor the timeserver runs agents at.
+	 * 
+	 * A scheduled road left empty, with nothing to report and no moveable
+	 * handed to it, sleeps until a moveable is added or handed to it.
+	 */
+	@Override
+	public int stepsUntilNextRun(double tempoFactor) {
+		if (this._router != null && !this._currentMoveables.isEmpty())
+			this._left += this.leave(this.currentTime() + tempoFactor);
+		if (this._timeserver == null || !this._currentMoveables.isEmpty() ||
+				this._left > 0 || this.expectsMoveables())
+			return 1;
+		this._sleeping = true;
+		return UNTIL_WOKEN;
+	}
+	
+	private boolean expectsMoveables() {
+		for (MoveableQueue queue : this._incoming) {
+			if (!queue.isEmpty())
+				return true;
+		}
+		return false;
+	}
+	
+	/*
+	 * Adds the moveables handed over to enter by the current time, earliest
+	 * first, and in feeder order when handed over for the same time.
+	 */
+	private void admit() {
+		double now = this.currentTime();
+		while (true) {
+			MoveableQueue first = null;
+			for (MoveableQueue queue : this._incoming) {
+				if (!queue.isEmpty() && queue.headEntryTime() <= now &&
+						(first == null || queue.headEntryTime() < first.headEntryTime()))
+					first = queue;
+			}
+			if (first == null)
+				return;
+			Moveable mobile = first.removeHead();
+			mobile.enter(this);
+			this.addMoveable(mobile);
+		}
+	}
+	
+	/*
+	 * The time of the timeserver running the road, or 0 if it is not scheduled.
+	 */
+	private double currentTime() {
+		return (this._timeserver == null) ? 0 : this._timeserver.currentTime();
 	}
 	
  	/*
@@ -83,9 +294,9 @@ public class RoadObj implements Road {
 	void addIntersection (Intersection intersection) {
 		if (intersection == null)
 			throw new NullPointerException ("Intersection argument cannot be null");
-		if  (!this._currentMoveables.isEmpty())
+		if  (!this._currentMoveables.isEmpty() || this._intersectionIndex != null)
 			throw new IllegalStateException("Road already initialized  - cannot add more intersections");
-		if (this._intersections.contains(intersection))
+		if (!this._addedIntersections.add(intersection))
 			throw new IllegalArgumentException("One intersection cannot span a road more than once");
 		
 		double startingPosition = this.getLength();
@@ -97,6 +308,39 @@ public class RoadObj implements Road {
 		intersection.intersectAlongOrientation(this, startingPosition);
 		
 		this._intersections.add(intersection);
+		
+		this._length += intersection.rearPositionAlongOrientation(this._orientation) - 
+				intersection.frontPositionAlongOrientation(this._orientation);
+		this._length += this._segmentLength;
+	}
+	
+	/*
+	 * Drops the segment after the last intersection, so that the road ends at
+	 * the rear of that intersection and moveables leave it as they clear it.
+	 */
+	void endAtLastIntersection() {
+		if (this._intersectionIndex != null)
+			throw new IllegalStateException("Road geometry is frozen");
+		if (!this._intersections.isEmpty())
+			this._length = this._intersections.get(this._intersections.size() - 1).rearPositionAlongOrientation(this._orientation);
+	}
+	
+	/*
+	 * Indexes the intersections by position; no intersection can be added afterwards.
+	 * Intersections are added one after the other along the road, so the
+	 * index is sorted by both front and rear positions.
+	 */
+	void freezeGeometry() {
+		int size = this._intersections.size();
+		this._intersectionIndex = this._intersections.toArray(new Intersection[size]);
+		this._addedIntersections = null;
+		this._intersectionFronts = new double[size];
+		this._intersectionRears = new double[size];
+		this._queues = new int[size];
+		for (int idx = 0; idx < size; idx++) {
+			this._intersectionFronts[idx] = this._intersectionIndex[idx].frontPositionAlongOrientation(this._orientation);
+			this._intersectionRears[idx] = this._intersectionIndex[idx].rearPositionAlongOrientation(this._orientation);
+		}
 	}
 
 	/*
@@ -112,27 +356,204 @@ public class RoadObj implements Road {
 		double speedFactor = tempoFactor*DEFAULT_TEMPO * this._scaleFactor; 
 		//System.out.println("Road running...");
 		
+		if (this._incoming.length > 0)
+			this.admit();
+		
+		this._enteredAtRun = this._entered;
+		this._leftAtRun = this._left;
+		this._changed = this._entered > 0 || this._left > 0;
+		this._entered = 0;
+		this._left = 0;
+		
 		// no need to continue if no moveables are queued up for processing
 		if (this._currentMoveables.isEmpty()) return;
 		
-		// remove moveables that have moved off the road; starting with head
-		BigDecimal roadLength = BigDecimal.valueOf(this.getLength());
-		Iterator<Moveable> iter = this._currentMoveables.iterator();
-		while (iter.hasNext()) {
-			Moveable m = iter.next();
-			if (m.currentFrontPosition().compareTo(roadLength) >= 0) {
-				iter.remove();
-			}
-		}		
+		// remove moveables that have moved off the road; a road with a router
+		// hands them over once it has run
+		if (this._router == null) {
+			int left = this.leave(this.currentTime());
+			this._leftAtRun += left;
+			if (left > 0)
+				this._changed = true;
+		}
 		
+		double roadLength = this.getLength();
+		if (this._lane != null) {
+			this.moveLane(speedFactor, roadLength);
+		} else {
+			this.moveMoveables(speedFactor, roadLength);
+		}
 		
-		// process the existing moveables; since only the current list of moveables 
-		// are used for determining whether (and how far) a moveable can move,
-		// this is essentially a list of moveables on the road right now
-		for (Moveable m : this._currentMoveables) {
-			//System.out.println("MOVING CURR:: " + m.toString());
-			m.move(speedFactor);
-			//System.out.println(m);
+		if (this._listener != null)
+			this.measure();
+	}
+	
+	/*
+	 * Process the existing moveables, head first; since only the current list of moveables 
+	 * are used for determining whether (and how far) a moveable can move,
+	 * this is essentially a list of moveables on the road right now.
+	 * Each moveable is handed the rear of the one ahead, which has already moved.
+	 */
+	private void moveMoveables(double speedFactor, double roadLength) {
+		double closestOccupiedPosition = roadLength * 2;
+		for (int idx = 0; idx < this._currentMoveables.size(); idx++) {
+			Moveable m = this._currentMoveables.get(idx);
+			m.move(speedFactor, closestOccupiedPosition);
+			if (m.changed())
+				this._changed = true;
+			
+			closestOccupiedPosition = m.rearPosition();
+			if (closestOccupiedPosition <= 0) closestOccupiedPosition = 0;
+		}
+	}
+	
+	/*
+	 * Reports the moveables that are stopped after a run: at a light, or held
+	 * where they are by the moveable ahead, in which case they neither moved
+	 * nor changed status. A stopped moveable is queued at the first
+	 * intersection whose front is not behind it; moveables are in position
+	 * order, so one pass over them and the intersections counts the queues.
+	 */
+	private void measure() {
+		int[] queues = this._queues;
+		double[] fronts = this._intersectionFronts;
+		Arrays.fill(queues, 0);
+		
+		int next = fronts.length - 1;
+		int stopped = 0;
+		int size = this._currentMoveables.size();
+		for (int idx = 0; idx < size; idx++) {
+			Moveable m = this._currentMoveables.get(idx);
+			if (m.status() != MoveableStatus.STOP && m.changed())
+				continue;
+			
+			stopped++;
+			double frontPosition = m.frontPosition();
+			while (next > 0 && frontPosition <= fronts[next - 1])
+				next--;
+			if (next >= 0 && frontPosition <= fronts[next])
+				queues[next]++;
+		}
+		this._listener.roadRan(this, size, stopped, queues);
+	}
+	
+	/*
+	 * Removes the moveables that have moved off the road, starting with the
+	 * head, and releases them or hands them to their next road at time.
+	 * 
+	 * @return the number of moveables removed
+	 */
+	private int leave(double time) {
+		double roadLength = this.getLength();
+		int left = 0;
+		while (!this._currentMoveables.isEmpty() && 
+				this._currentMoveables.head().frontPosition() >= roadLength) {
+			double travelTime = time - this._currentMoveables.headEntryTime();
+			if (this._listener != null)
+				this._listener.moveableExited(this, travelTime);
+			Moveable mobile = this._currentMoveables.removeHead();
+			Road next = null;
+			if (this._router != null) {
+				this._router.moveableExited(this._index, time, travelTime);
+				next = this._router.next(this._index, mobile);
+			}
+			if (next == null) {
+				this.release(mobile);
+			} else {
+				this.vacate(mobile);
+				next.transfer(mobile, this._index, time);
+			}
+			if (this._lane != null)
+				this._lane.removeHead();
+			left++;
+		}
+		return left;
+	}
+	
+	/*
+	 * Moveables leave the model at the end of the road. Intersections may
+	 * still hold ones caught in them, to be drained lazily.
+	 */
+	private void release(Moveable mobile) {
+		this.vacate(mobile);
+		mobile.release();
+	}
+	
+	private void vacate(Moveable mobile) {
+		for (Intersection intersection : this._intersectionIndex)
+			intersection.vacate(mobile);
+	}
+	
+	/*
+	 * The ARRAYS counterpart of the loop in run(), and of Car.move: every
+	 * comparison and operation is the one a car in double mode makes, in the
+	 * same order, so that positions are bit for bit the same.
+	 */
+	private void moveLane(double speedGovernor, double roadLength) {
+		CarLane lane = this._lane;
+		double[] frontPositions = lane._frontPositions;
+		double[] lengths = lane._lengths;
+		double[] maxVelocities = lane._maxVelocities;
+		double[] brakeDistances = lane._brakeDistances;
+		double[] stopDistances = lane._stopDistances;
+		byte[] statuses = lane._statuses;
+		
+		double closestOccupiedPosition = roadLength * 2;
+		for (int idx = 0; idx < lane.size(); idx++) {
+			int slot = lane.slot(idx);
+			double frontPosition = frontPositions[slot];
+			double governedMaxSpeed = maxVelocities[slot] * speedGovernor;
+			double unoccupiedDistance = closestOccupiedPosition - frontPosition;
+			
+			// a moveable within stopping range of the next obstacle stays put
+			if (unoccupiedDistance > stopDistances[slot]) {
+				double bestAvailableFreePosition = frontPosition;
+				MoveableStatus status;
+				if (unoccupiedDistance > governedMaxSpeed) {
+					bestAvailableFreePosition += governedMaxSpeed;
+					status = MoveableStatus.ACCELERATE;
+				} else if (unoccupiedDistance <= brakeDistances[slot]) {
+					bestAvailableFreePosition += Math.min(governedMaxSpeed, unoccupiedDistance / 2);
+					status = MoveableStatus.BRAKE;
+				} else {
+					bestAvailableFreePosition += Math.min(governedMaxSpeed, unoccupiedDistance / 2);
+					status = MoveableStatus.SLOWDOWN;
+				}
+				
+				for (int next = this.firstIntersectionAhead(frontPosition); next < this._intersectionIndex.length; next++) {
+					Intersection intersection = this._intersectionIndex[next];
+					double intersectionFrontPosition = this._intersectionFronts[next];
+					IntersectionStatus intersectionLightColor = intersection.statusAlongOrientation(this._orientation);
+					
+					if (intersectionFrontPosition <= frontPosition) break;
+					if (!(intersectionFrontPosition < bestAvailableFreePosition)) break;
+					
+					if (intersectionLightColor.equals(IntersectionStatus.STOP)) {
+						if (bestAvailableFreePosition > intersectionFrontPosition)
+							status = MoveableStatus.STOP;
+						bestAvailableFreePosition = Math.min(bestAvailableFreePosition, intersectionFrontPosition);
+					} else if (intersectionLightColor.equals(IntersectionStatus.CAUTION) &&
+							intersectionFrontPosition - frontPosition <= brakeDistances[slot]) {
+						bestAvailableFreePosition = Math.min(bestAvailableFreePosition, intersectionFrontPosition);
+						status = MoveableStatus.BRAKE;
+					} else if (bestAvailableFreePosition <= this._intersectionRears[next]) {
+						// caught in the intersection
+						intersection.intersectAlongOrientation(lane._moveables[slot]);
+					}
+				}
+				
+				frontPositions[slot] = frontPosition + (bestAvailableFreePosition - frontPosition);
+				if (frontPositions[slot] != frontPosition || statuses[slot] != status.ordinal())
+					this._changed = true;
+				statuses[slot] = (byte) status.ordinal();
+				lane._moveables[slot].moveTo(frontPositions[slot], status);
+			} else {
+				// clears the moveable's change from its last move
+				lane._moveables[slot].stayPut();
+			}
+			
+			closestOccupiedPosition = frontPositions[slot] - lengths[slot];
+			if (closestOccupiedPosition <= 0) closestOccupiedPosition = 0;
 		}
 	}
 	
@@ -145,52 +566,62 @@ public class RoadObj implements Road {
 	public double getClosestOccupiedPosition(Moveable mobile) {
 		if (mobile == null)
 			throw new NullPointerException ("Mobile argument cannot be null");
-		if (!this._currentMoveables.contains(mobile))
+		int idx = this._currentMoveables.indexOf(mobile);
+		if (idx == -1)
 			throw new IllegalArgumentException ("Mobile argument is invalid");
 		
-		//System.out.println("        ROAD ASKED FOR POSITION - START:: "+mobile);
-		
-		// initialize variables for tracking computation
-		double closestOccupiedPosition = -1;
-		
-		// the current moveable's front-most position
-		//double currentMoveablePosition = mobile.currentFrontPosition().doubleValue();
-		
-		if (this._currentMoveables.contains(mobile)) {
-			closestOccupiedPosition = this.getLength() * 2;
-			for (Moveable m: this._currentMoveables) {
-				if (mobile.equals(m)) {
-	//				System.out.println("            mobile located @ index " + this._currentMoveables.indexOf(m) + 
-	//						" ...previous @ " + closestOccupiedPosition);
-					break;
-				}
-				
-				closestOccupiedPosition = m.currentRearPosition().doubleValue();
-				if (closestOccupiedPosition <= 0) closestOccupiedPosition = 0;
-			}
-		} else {
-			// should not be reached
-			System.out.println("problem in closest occupied!");
-		}
-		
-		//System.out.println("        ROAD ASKED FOR POSITION - END:: "+ closestOccupiedPosition);
+		// the head has nothing ahead of it
+		if (idx == 0)
+			return this.getLength() * 2;
 		
+		double closestOccupiedPosition = this._currentMoveables.get(idx - 1).rearPosition();
+		if (closestOccupiedPosition <= 0) closestOccupiedPosition = 0;
 		return closestOccupiedPosition;
 	}
 
+	/*
+	 * The intersections whose rear is not behind the front of the moveable, in
+	 * position order.
+	 * 
+	 * The iterator is owned by the road and is only valid until the next call;
+	 * moveables on one road are moved one at a time.
+	 * 
+	 * @precondition the geometry of the road is frozen
+	 */
 	public Iterator<Intersection> getRemainingIntersectionsIterator (Moveable mobile) {
-		ArrayList<Intersection> remainingIntersections = new ArrayList<>();
-		for (Intersection e: this._intersections) {
-			if (e.rearPositionAlongOrientation(mobile.currentOrientation()) >= mobile.currentFrontPosition().doubleValue())
-				remainingIntersections.add(e);
-		}
+		if (this._intersectionIndex == null)
+			throw new IllegalStateException("Road geometry is not frozen");
 		
-		return remainingIntersections.isEmpty() ? Collections.emptyIterator() :
-			remainingIntersections.iterator();
+		return this._cursor.reset(this.firstIntersectionAhead(mobile.frontPosition()));
+	}
+	
+	/*
+	 * The index of the first intersection with its rear at or ahead of a position.
+	 */
+	private int firstIntersectionAhead(double frontPosition) {
+		int low = 0;
+		int high = this._intersectionRears.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this._intersectionRears[middle] >= frontPosition)
+				high = middle;
+			else low = middle + 1;
+		}
+		return low;
+	}
+	
+	/*
+	 * for benchmarking
+	 */
+	int moveableCount() {
+		return this._currentMoveables.size();
 	}
 
 	@Override
 	public Iterator<Intersection> getAllIntersectionsIterator() {
+		if (this._intersectionIndex != null)
+			return Arrays.asList(this._intersectionIndex).iterator();
+		
 		ArrayList<Intersection> allIntersections = new ArrayList<>();
 		allIntersections.addAll(this._intersections);
 		
@@ -200,11 +631,8 @@ public class RoadObj implements Road {
 
 	@Override
 	public Iterator<Moveable> getAllMoveablesIterator() {
-		LinkedList<Moveable> moveables = new LinkedList<>();
-		moveables.addAll(this._currentMoveables);
-		
-		return moveables.isEmpty() ? Collections.emptyIterator() :
-			moveables.iterator();
+		return this._currentMoveables.isEmpty() ? Collections.emptyIterator() :
+			this._currentMoveables.iterator();
 	}
 	
 	public String toString() {
@@ -214,8 +642,13 @@ public class RoadObj implements Road {
 		
 		if (!this._intersections.isEmpty()) thisRoad.append(" intersected @");
 		
-		for (Intersection i: this._intersections) {
-			thisRoad.append(i.frontPositionAlongOrientation(this._orientation)).append(" ");
+		if (this._intersectionFronts != null) {
+			for (double front : this._intersectionFronts)
+				thisRoad.append(front).append(" ");
+		} else {
+			for (Intersection i: this._intersections) {
+				thisRoad.append(i.frontPositionAlongOrientation(this._orientation)).append(" ");
+			}
 		}
 		
 		thisRoad.append("\n");
@@ -232,4 +665,28 @@ public class RoadObj implements Road {
 			
 		return thisRoad.toString();
 	}
+	
+	@Override
+	public boolean changed() {
+		return this._changed;
+	}
+	
+	/*
+	 * The road header, then the number of moveables that left the head of
+	 * the road if any did, then each moveable that entered, moved or changed
+	 * status, numbered from the head of the road as in state().
+	 */
+	@Override
+	public String changes() {
+		StringBuilder thisRoad = new StringBuilder().append(this.toString());
+		if (this._leftAtRun > 0)
+			thisRoad.append("LEFT: ").append(this._leftAtRun).append("\n");
+		int size = this._currentMoveables.size();
+		for (int idx = 0; idx < size; idx++) {
+			Moveable m = this._currentMoveables.get(idx);
+			if (m.changed() || idx >= size - this._enteredAtRun)
+				thisRoad.append("CAR ").append(idx).append(": ").append(m).append("\n");
+		}
+		return thisRoad.toString();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package simulator.road;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Assert;
+
+import simulator.intersection.Intersection;
+import simulator.intersection.TwoWayTrafficLight;
+import simulator.moveable.CarFactory;
+import simulator.moveable.Moveable;
+import simulator.moveable.MoveableStatus;
+import simulator.moveable.Orientation;
+
+public class RoadObjTEST extends TestCase {
+	
+	public RoadObjTEST (String name) {
+		super(name);
+	}
+	
+	/*
+	 * Runs a road through two lights, storing its cars the given way, and
+	 * returns every car on it at the end of each tick. A car is added every
+	 * tick, with the same parameters on every run, so that cars back up to
+	 * the start of the road.
+	 */
+	private static List<String> driveThroughLights(RoadStorage storage) {
+		TwoWayTrafficLight first = new TwoWayTrafficLight(10, 20, 4);
+		TwoWayTrafficLight second = new TwoWayTrafficLight(12, 15, 3);
+		RoadBuilder.BUILDER.setOrientation(Orientation.EAST).setLength(150, 150).setStorage(storage);
+		Road road = RoadBuilder.BUILDER.addIntersection(first).addIntersection(second).build();
+		RoadBuilder.BUILDER.setStorage(RoadStorage.OBJECTS);
+		
+		Random random = new Random(1);
+		List<String> ticks = new ArrayList<>();
+		for (int time = 0; time < 600; time++) {
+			double length = CarFactory.MIN_LENGTH + (CarFactory.MAX_LENGTH - CarFactory.MIN_LENGTH) * random.nextDouble();
+			double velocity = CarFactory.MIN_VELOCITY + (CarFactory.MAX_VELOCITY - CarFactory.MIN_VELOCITY) * random.nextDouble();
+			CarFactory.setLength(length, length);
+			CarFactory.setMaxVelocity(velocity, velocity);
+			CarFactory.setBrakeDistance(CarFactory.MIN_BRAKE, CarFactory.MIN_BRAKE);
+			CarFactory.setStopDistance(CarFactory.MIN_STOP, CarFactory.MIN_STOP);
+			road.addMoveable(CarFactory.CUSTOM.newCar(road));
+			first.run(1);
+			second.run(1);
+			road.run(1);
+			
+			StringBuilder tick = new StringBuilder().append(time);
+			Iterator<Moveable> moveables = road.getAllMoveablesIterator();
+			while (moveables.hasNext()) {
+				Moveable car = moveables.next();
+				tick.append(" ").append(car.frontPosition()).append("/").append(car.rearPosition());
+				tick.append(car.status());
+			}
+			ticks.add(tick.toString());
+		}
+		return ticks;
+	}
+	
+	public void testArraysMoveCarsLikeObjects() {
+		List<String> objects = driveThroughLights(RoadStorage.OBJECTS);
+		List<String> arrays = driveThroughLights(RoadStorage.ARRAYS);
+		
+		// cars queued up at the lights
+		boolean stopped = false;
+		for (String tick : objects)
+			stopped |= tick.contains("STOP");
+		Assert.assertTrue(stopped);
+		
+		// and the two storages agree on every car in every tick
+		Assert.assertEquals(objects.size(), arrays.size());
+		for (int tick = 0; tick < objects.size(); tick++)
+			Assert.assertEquals(objects.get(tick), arrays.get(tick));
+	}
+	
+	private static List<Intersection> remaining(Road road, Moveable car, double frontPosition) {
+		car.moveTo(frontPosition, MoveableStatus.ACCELERATE);
+		List<Intersection> intersections = new ArrayList<>();
+		Iterator<? extends Intersection> remaining = road.getRemainingIntersectionsIterator(car);
+		while (remaining.hasNext())
+			intersections.add(remaining.next());
+		try {remaining.next(); Assert.fail();} catch (NoSuchElementException e) {};
+		return intersections;
+	}
+	
+	/*
+	 * The cursor starts at the first intersection whose rear is at or ahead
+	 * of the front of the car, so one the car is inside is still ahead of it.
+	 */
+	public void testRemainingIntersections() {
+		TwoWayTrafficLight first = new TwoWayTrafficLight(10, 20, 4);
+		TwoWayTrafficLight second = new TwoWayTrafficLight(12, 15, 3);
+		RoadBuilder.BUILDER.setOrientation(Orientation.EAST).setLength(150, 150);
+		Road road = RoadBuilder.BUILDER.addIntersection(first).addIntersection(second).build();
+		Moveable car = CarFactory.RANDOM.newCar(road);
+		
+		double firstFront = first.frontPositionAlongOrientation(Orientation.EAST);
+		double firstRear = first.rearPositionAlongOrientation(Orientation.EAST);
+		double secondRear = second.rearPositionAlongOrientation(Orientation.EAST);
+		Assert.assertTrue(firstFront < firstRear && firstRear < secondRear);
+		
+		Assert.assertEquals(Arrays.asList(first, second), remaining(road, car, 0));
+		// inside an intersection, and right at its rear edge, it is still ahead
+		Assert.assertEquals(Arrays.asList(first, second), remaining(road, car, (firstFront + firstRear) / 2));
+		Assert.assertEquals(Arrays.asList(first, second), remaining(road, car, firstRear));
+		Assert.assertEquals(Arrays.asList(second), remaining(road, car, Math.nextUp(firstRear)));
+		Assert.assertEquals(Arrays.asList(second), remaining(road, car, secondRear));
+		Assert.assertEquals(Arrays.asList(), remaining(road, car, Math.nextUp(secondRear)));
+		Assert.assertEquals(Arrays.asList(), remaining(road, car, road.getLength()));
+		// the cursor is reset on every call
+		Assert.assertEquals(Arrays.asList(first, second), remaining(road, car, 0));
+	}
+}
\ No newline at end of file
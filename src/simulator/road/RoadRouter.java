@@ -0,0 +1,26 @@
+package simulator.road;
+
+import simulator.moveable.Moveable;
+
+/*
+ * Chooses where a moveable goes once it reaches the end of a road.
+ * 
+ * A road asks its router once it has run, on the thread running the
+ * timeserver, but roads do so in an order that depends on the timeserver;
+ * a router shared by roads keeps what it changes apart for each road.
+ */
+public interface RoadRouter {
+	
+	/*
+	 * A moveable leaves the road with the given index at time, travelTime
+	 * after it was added to the road; told before next is asked.
+	 */
+	public default void moveableExited(int road, double time, double travelTime) {
+	}
+	
+	/*
+	 * @return the road the moveable is handed to from the end of the road
+	 * with the given index, or null if it leaves the model there
+	 */
+	public Road next(int road, Moveable mobile);
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package simulator.road;
+
+/*
+ * How a road stores the state of the moveables on it.
+ */
+public enum RoadStorage {
+	/* each moveable holds its own state and moves itself */
+	OBJECTS,
+	/* the road holds its moveables' state in parallel primitive arrays and moves them */
+	ARRAYS,
+	NOT_DEFINED;
+	
+	public static RoadStorage toRoadStorage (String valueToMatch) {
+		for (RoadStorage storage : RoadStorage.values()) {
+			if (storage.name().equals(valueToMatch.toUpperCase().trim()))
+				return storage;
+		}
+		return NOT_DEFINED;
+	}
+}
\ No newline at end of file
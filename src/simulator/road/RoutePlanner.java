@@ -0,0 +1,387 @@
+package simulator.road;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import simulator.agent.TimeAgent;
+import simulator.timeserver.TimeServer;
+
+/*
+ * Plans the routes of origin-destination trips through a road network, whose
+ * roads are given in network order.
+ *
+ * A route is the shortest path from the origin road to the destination road,
+ * found with Dijkstra's algorithm over the roads: a road is followed by the
+ * roads leaving the node it runs to, and costs what it takes to drive it.
+ * The search stops as soon as the destination is reached. Its arrays are
+ * allocated once and reused, stamped with the search they belong to instead
+ * of being cleared.
+ *
+ * Routes are cached by origin and destination, up to a number of them, the
+ * least recently used being dropped first; cars on the same trip share one
+ * route array.
+ *
+ * A road costs its length until travel times have been observed. With a
+ * refresh interval, the planner is also an agent: every interval it sets
+ * the cost of each road to the mean travel time observed on it over the
+ * last whole interval, or, for a road that has never been driven, to its
+ * length at the mean pace observed over the network, and drops the cache.
+ * Travel times are kept by the interval they were observed in, so a refresh
+ * only uses intervals that are over, whatever order agents run in within a
+ * tick.
+ *
+ * Trips are planned by the sources as they emit cars, which they do one at
+ * a time on the thread running the timeserver. Travel times are observed as
+ * roads hand their cars over, from RoadObj.leave when the timeserver asks
+ * each road for its next run; it asks them one at a time, on its own thread,
+ * so the planner needs no locking even under a parallel timeserver.
+ */
+public final class RoutePlanner implements TimeAgent {
+	public static final int CACHE_CAPACITY = 4096;
+	private static final int[] NO_ROUTE = new int[0];
+
+	private final RoadNetwork _network;
+	private final double _tripShare;
+	// the roads trips end on: those leaving the network, or every road if none does
+	private final int[] _destinations;
+	private final Map<Long, int[]> _cache;
+
+	/*
+	 * Costs, and the search arrays, by road
+	 */
+	private final double[] _lengths;
+	private final double[] _costs;
+	private final double[] _distances;
+	private final int[] _previous;
+	private final int[] _stamps;
+	private int _stamp;
+	// the search frontier: a binary heap of roads by distance, which may hold a road more than once
+	private double[] _frontierDistances = new double[16];
+	private int[] _frontierRoads = new int[16];
+	private int _frontierSize;
+
+	/*
+	 * Travel times by road, for the two latest intervals: the interval each
+	 * slot holds, and the sum and count of travel times observed in it
+	 */
+	private final double _refreshInterval;
+	private final long[] _windows;
+	private final double[] _travelTimes;
+	private final int[] _travelCounts;
+	private final boolean[] _driven;
+	private TimeServer _timeserver;
+
+	/*
+	 * Statistics
+	 */
+	private long _lookups;
+	private long _hits;
+	private long _plans;
+	private long _planningNanos;
+	private long _maxPlanningNanos;
+	private long _refreshes;
+
+	/*
+	 * @param tripShare the share of the cars emitted that are given a trip
+	 * @param refreshInterval the seconds between refreshes of the costs, or 0 for none
+	 * @invariant roads holds a road for every road of the network, in network order
+	 */
+	public RoutePlanner(RoadNetwork network, List<? extends Road> roads, double tripShare,
+			final int cacheCapacity, double refreshInterval) {
+		if (roads.size() != network.roadCount())
+			throw new IllegalArgumentException ("Expected " + network.roadCount() + " roads, got " + roads.size());
+		if (!(tripShare >= 0 && tripShare <= 1))
+			throw new IllegalArgumentException ("Trip share must be between 0 and 1");
+		if (cacheCapacity < 1)
+			throw new IllegalArgumentException ("Cache capacity must be gt 0");
+		if (!(refreshInterval >= 0))
+			throw new IllegalArgumentException ("Refresh interval must be ge 0");
+
+		this._network = network;
+		this._tripShare = tripShare;
+		this._destinations = destinations(network);
+		this._cache = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+				return this.size() > cacheCapacity;
+			}
+		};
+
+		int roadCount = network.roadCount();
+		this._lengths = new double[roadCount];
+		for (int road = 0; road < roadCount; road++)
+			this._lengths[road] = roads.get(road).getLength();
+		this._costs = this._lengths.clone();
+		this._distances = new double[roadCount];
+		this._previous = new int[roadCount];
+		this._stamps = new int[roadCount];
+
+		this._refreshInterval = refreshInterval;
+		this._windows = new long[2 * roadCount];
+		Arrays.fill(this._windows, -1);
+		this._travelTimes = new double[2 * roadCount];
+		this._travelCounts = new int[2 * roadCount];
+		this._driven = new boolean[roadCount];
+	}
+
+	/*
+	 * The roads no road follows, that is those running to a node no road leaves.
+	 */
+	private static int[] destinations(RoadNetwork network) {
+		int count = 0;
+		for (int road = 0; road < network.roadCount(); road++) {
+			if (network.outDegree(network.to(road)) == 0)
+				count++;
+		}
+		if (count == 0) {
+			int[] everyRoad = new int[network.roadCount()];
+			for (int road = 0; road < everyRoad.length; road++)
+				everyRoad[road] = road;
+			return everyRoad;
+		}
+		int[] destinations = new int[count];
+		count = 0;
+		for (int road = 0; road < network.roadCount(); road++) {
+			if (network.outDegree(network.to(road)) == 0)
+				destinations[count++] = road;
+		}
+		return destinations;
+	}
+
+	/*
+	 * The route of a car entering the network on origin: with the trip share,
+	 * one to a destination drawn from random, otherwise none, and the car
+	 * turns as it goes. A car whose destination cannot be reached gets none.
+	 */
+	public int[] trip(int origin, SplittableRandom random) {
+		if (this._tripShare == 0 || (this._tripShare < 1 && random.nextDouble() >= this._tripShare))
+			return null;
+		return this.route(origin, this._destinations[random.nextInt(this._destinations.length)]);
+	}
+
+	/*
+	 * @return the roads from origin to destination, both included, or null if
+	 * destination cannot be reached from origin. The array is shared.
+	 */
+	public int[] route(int origin, int destination) {
+		this._lookups++;
+		Long key = ((long) origin << 32) | destination;
+		int[] route = this._cache.get(key);
+		if (route != null) {
+			this._hits++;
+		} else {
+			long start = System.nanoTime();
+			route = this.plan(origin, destination);
+			long nanos = System.nanoTime() - start;
+			this._plans++;
+			this._planningNanos += nanos;
+			this._maxPlanningNanos = Math.max(this._maxPlanningNanos, nanos);
+			this._cache.put(key, route);
+		}
+		return (route == NO_ROUTE) ? null : route;
+	}
+
+	/*
+	 * Dijkstra's algorithm from origin, which the car is already on, so that a
+	 * route costs the roads after it.
+	 */
+	private int[] plan(int origin, int destination) {
+		RoadNetwork network = this._network;
+		int stamp = ++this._stamp;
+		this._frontierSize = 0;
+		this.reach(origin, 0, -1, stamp);
+
+		while (this._frontierSize > 0) {
+			double distance = this._frontierDistances[0];
+			int road = this.popFrontier();
+			// a road already reached by a shorter path
+			if (distance > this._distances[road])
+				continue;
+			if (road == destination)
+				return this.path(destination);
+
+			int node = network.to(road);
+			for (int idx = 0; idx < network.outDegree(node); idx++) {
+				int next = network.outRoad(node, idx);
+				double nextDistance = distance + this._costs[next];
+				if (this._stamps[next] != stamp || nextDistance < this._distances[next])
+					this.reach(next, nextDistance, road, stamp);
+			}
+		}
+		return NO_ROUTE;
+	}
+
+	private void reach(int road, double distance, int previous, int stamp) {
+		this._stamps[road] = stamp;
+		this._distances[road] = distance;
+		this._previous[road] = previous;
+		this.pushFrontier(distance, road);
+	}
+
+	private int[] path(int destination) {
+		int length = 0;
+		for (int road = destination; road != -1; road = this._previous[road])
+			length++;
+		int[] path = new int[length];
+		for (int road = destination; road != -1; road = this._previous[road])
+			path[--length] = road;
+		return path;
+	}
+
+	private void pushFrontier(double distance, int road) {
+		if (this._frontierSize == this._frontierRoads.length) {
+			this._frontierDistances = Arrays.copyOf(this._frontierDistances, this._frontierSize * 2);
+			this._frontierRoads = Arrays.copyOf(this._frontierRoads, this._frontierSize * 2);
+		}
+		int idx = this._frontierSize++;
+		while (idx > 0) {
+			int parent = (idx - 1) / 2;
+			if (!(distance < this._frontierDistances[parent]))
+				break;
+			this._frontierDistances[idx] = this._frontierDistances[parent];
+			this._frontierRoads[idx] = this._frontierRoads[parent];
+			idx = parent;
+		}
+		this._frontierDistances[idx] = distance;
+		this._frontierRoads[idx] = road;
+	}
+
+	private int popFrontier() {
+		int top = this._frontierRoads[0];
+		int size = --this._frontierSize;
+		double distance = this._frontierDistances[size];
+		int road = this._frontierRoads[size];
+		int idx = 0;
+		int child;
+		while ((child = 2 * idx + 1) < size) {
+			if (child + 1 < size && this._frontierDistances[child + 1] < this._frontierDistances[child])
+				child++;
+			if (!(this._frontierDistances[child] < distance))
+				break;
+			this._frontierDistances[idx] = this._frontierDistances[child];
+			this._frontierRoads[idx] = this._frontierRoads[child];
+			idx = child;
+		}
+		this._frontierDistances[idx] = distance;
+		this._frontierRoads[idx] = road;
+		return top;
+	}
+
+	/*
+	 * A moveable drove the road with the given index in travelTime, leaving it
+	 * at time; ignored without a refresh interval.
+	 */
+	public void observe(int road, double time, double travelTime) {
+		if (this._refreshInterval == 0)
+			return;
+		long window = (long) Math.floor(time / this._refreshInterval);
+		int slot = 2 * road + (int) (window & 1);
+		if (this._windows[slot] != window) {
+			this._windows[slot] = window;
+			this._travelTimes[slot] = 0;
+			this._travelCounts[slot] = 0;
+		}
+		this._travelTimes[slot] += travelTime;
+		this._travelCounts[slot]++;
+	}
+
+	/*
+	 * Sets the costs from the travel times observed in the interval before the
+	 * current one, and drops the cache.
+	 */
+	void refresh(double time) {
+		long window = (long) Math.floor(time / this._refreshInterval) - 1;
+		double paceTime = 0;
+		double paceLength = 0;
+		for (int road = 0; road < this._costs.length; road++) {
+			int slot = 2 * road + (int) (window & 1);
+			if (this._windows[slot] != window || this._travelCounts[slot] == 0)
+				continue;
+			this._costs[road] = this._travelTimes[slot] / this._travelCounts[slot];
+			this._driven[road] = true;
+			paceTime += this._travelTimes[slot];
+			paceLength += this._lengths[road] * this._travelCounts[slot];
+		}
+		if (paceLength > 0) {
+			for (int road = 0; road < this._costs.length; road++) {
+				if (!this._driven[road])
+					this._costs[road] = this._lengths[road] * paceTime / paceLength;
+			}
+		}
+		this._cache.clear();
+		this._refreshes++;
+	}
+
+	/*
+	 * Tells the planner which timeserver runs it, for the time of its refreshes.
+	 */
+	public void scheduleOn(TimeServer timeserver) {
+		if (timeserver == null)
+			throw new NullPointerException ("Timeserver argument cannot be null");
+		this._timeserver = timeserver;
+	}
+
+	public double refreshInterval() {
+		return this._refreshInterval;
+	}
+
+	@Override
+	public void run(double tempoFactor) {
+		this.refresh(this._timeserver.currentTime());
+	}
+
+	@Override
+	public int stepsUntilNextRun(double tempoFactor) {
+		return (int) Math.max(1, Math.round(this._refreshInterval / tempoFactor));
+	}
+
+	/*
+	 * Statistics since the planner was built or they were last reset
+	 */
+	public long lookups() {
+		return this._lookups;
+	}
+
+	public long hits() {
+		return this._hits;
+	}
+
+	public double hitRate() {
+		return (this._lookups > 0) ? (double) this._hits / this._lookups : Double.NaN;
+	}
+
+	public long plans() {
+		return this._plans;
+	}
+
+	public long planningNanos() {
+		return this._planningNanos;
+	}
+
+	public long maxPlanningNanos() {
+		return this._maxPlanningNanos;
+	}
+
+	public long refreshes() {
+		return this._refreshes;
+	}
+
+	public void resetStatistics() {
+		this._lookups = 0;
+		this._hits = 0;
+		this._plans = 0;
+		this._planningNanos = 0;
+		this._maxPlanningNanos = 0;
+		this._refreshes = 0;
+	}
+
+	@Override
+	public String state() {
+		return new StringBuilder().append("Route planner: ").append(this._cache.size()).append(" routes cached, ")
+				.append(this._refreshes).append(" refreshes").toString();
+	}
+}
\ No newline at end of file
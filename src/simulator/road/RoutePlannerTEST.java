@@ -0,0 +1,104 @@
+package simulator.road;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import junit.framework.TestCase;
+
+import org.junit.Assert;
+
+import simulator.intersection.Intersection;
+import simulator.intersection.TwoWayTrafficLight;
+
+public class RoutePlannerTEST extends TestCase {
+	
+	public RoutePlannerTEST (String name) {
+		super(name);
+	}
+	
+	/*
+	 * A diamond: road 0 runs to node 1, from which roads 1 and 3 (long) or
+	 * roads 2 and 4 (short) lead to node 4, and road 5 out of the network.
+	 */
+	private static RoutePlanner diamond(double tripShare, double refreshInterval) throws IOException {
+		RoadNetwork network = RoadNetworkReader.read(new BufferedReader(new StringReader(
+				"0 1 EAST 100\n"
+				+ "1 2 EAST 100\n"
+				+ "1 3 SOUTH 100\n"
+				+ "2 4 SOUTH 300\n"
+				+ "3 4 EAST 100\n"
+				+ "4 5 EAST 100\n")));
+		Intersection[] lights = new Intersection[network.nodeCount()];
+		for (int node = 1; node < network.nodeCount(); node++)
+			lights[node] = new TwoWayTrafficLight(10, 30, 4);
+		
+		ArrayList<Road> roads = new ArrayList<>();
+		for (int road = 0; road < network.roadCount(); road++) {
+			RoadBuilder.BUILDER.setOrientation(network.orientation(road)).setLength(network.length(road), network.length(road));
+			roads.add(RoadBuilder.BUILDER.setEndsAtIntersection(true).addIntersection(lights[network.to(road)]).build());
+		}
+		return new RoutePlanner(network, roads, tripShare, RoutePlanner.CACHE_CAPACITY, refreshInterval);
+	}
+	
+	public void testShortestRoute() throws IOException {
+		RoutePlanner planner = diamond(1, 0);
+		Assert.assertArrayEquals(new int[] {0, 2, 4, 5}, planner.route(0, 5));
+		Assert.assertArrayEquals(new int[] {1, 3, 5}, planner.route(1, 5));
+		Assert.assertArrayEquals(new int[] {5}, planner.route(5, 5));
+		
+		// no road leads back
+		Assert.assertNull(planner.route(5, 0));
+		
+		// every trip ends on the only road out of the network
+		SplittableRandom random = new SplittableRandom(1);
+		Assert.assertArrayEquals(new int[] {0, 2, 4, 5}, planner.trip(0, random));
+		
+		// and none is planned without a trip share
+		Assert.assertNull(diamond(0, 0).trip(0, random));
+	}
+	
+	public void testRoutesAreCached() throws IOException {
+		RoutePlanner planner = diamond(1, 0);
+		int[] route = planner.route(0, 5);
+		Assert.assertSame(route, planner.route(0, 5));
+		Assert.assertNull(planner.route(5, 0));
+		Assert.assertNull(planner.route(5, 0));
+		
+		Assert.assertEquals(4, planner.lookups());
+		Assert.assertEquals(2, planner.hits());
+		Assert.assertEquals(2, planner.plans());
+		Assert.assertTrue(planner.hitRate() == 0.5);
+		
+		planner.resetStatistics();
+		Assert.assertEquals(0, planner.lookups());
+		Assert.assertTrue(Double.isNaN(planner.hitRate()));
+	}
+	
+	public void testCostsRefreshFromTravelTimes() throws IOException {
+		RoutePlanner planner = diamond(1, 10);
+		Assert.assertArrayEquals(new int[] {0, 2, 4, 5}, planner.route(0, 5));
+		
+		// the short way is slow in the first interval, the roads in and out fast
+		for (int car = 0; car < 10; car++) {
+			planner.observe(0, 5, 11);
+			planner.observe(5, 5, 11);
+		}
+		planner.observe(2, 5, 150);
+		planner.observe(4, 5, 150);
+		// and travel times from the interval that is not over yet are left for later
+		planner.observe(3, 10, 1000);
+		planner.refresh(10);
+		Assert.assertEquals(1, planner.refreshes());
+		
+		// roads 1 and 3 were not driven, and cost their length at the pace of roads 2 and 4
+		Assert.assertArrayEquals(new int[] {0, 1, 3, 5}, planner.route(0, 5));
+		Assert.assertEquals(0, planner.hits());
+		
+		// road 3 is slow in the second interval
+		planner.refresh(20);
+		Assert.assertArrayEquals(new int[] {0, 2, 4, 5}, planner.route(0, 5));
+	}
+}
\ No newline at end of file
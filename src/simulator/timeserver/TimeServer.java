@@ -5,6 +5,18 @@ import simulator.agent.TimeAgent;
 public interface TimeServer {
 	public double currentTime();
 	public void enqueue(double waketime, TimeAgent thing);
+	
+	/*
+	 * Enqueues an agent along with the region of the model it belongs to.
+	 * Agents sharing a region interact closely; timeservers that partition
+	 * the model keep them together, all others ignore the region.
+	 */
+	public default void enqueue(double waketime, TimeAgent thing, int region) {
+		this.enqueue(waketime, thing);
+	}
+	
 	public void run(double duration);
 	public void reset();
+	public void addListener(TimeServerListener listener);
+	public void removeListener(TimeServerListener listener);
 }
\ No newline at end of file
@@ -0,0 +1,318 @@
+package simulator.timeserver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import simulator.agent.AgentPhase;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+/*
+ * A tick-synchronous timeserver. Agents that share a waketime form a cohort
+ * which is dequeued, run and re-enqueued as one batch, so the queue is touched
+ * once per tick instead of once per agent.
+ *
+ * Within a cohort agents run phase by phase (by default sources, then
+ * intersections, then roads), and in insertion order within a phase.
+ *
+ * Agents that poll every time step stay in the cohort. Agents that sleep
+ * longer leave it and are enqueued on their own. An agent woken for the
+ * current time while a tick is running joins that tick if its phase has not
+ * run yet, and the next tick if it has, as it would have done had it been
+ * polling; so a phase order that runs roads before sources never starts a
+ * second tick at the same time.
+ */
+public class TimeServerBatch implements TimeServer {
+	private static final AgentPhase[] DEFAULT_PHASE_ORDER = {
+		AgentPhase.SOURCE, AgentPhase.INTERSECTION, AgentPhase.ROAD, AgentPhase.OTHER };
+
+	/*
+	 * The agents sharing one waketime, one list per phase in run order
+	 */
+	private static final class Cohort {
+		final ArrayList<ArrayList<TimeAgent>> phases;
+
+		Cohort(int numberOfPhases) {
+			this.phases = new ArrayList<>(numberOfPhases);
+			for (int idx = 0; idx < numberOfPhases; idx++)
+				this.phases.add(new ArrayList<TimeAgent>());
+		}
+
+		void addAll(Cohort other) {
+			for (int idx = 0; idx < this.phases.size(); idx++)
+				this.phases.get(idx).addAll(other.phases.get(idx));
+		}
+
+		int size() {
+			int size = 0;
+			for (ArrayList<TimeAgent> phase : this.phases)
+				size += phase.size();
+			return size;
+		}
+	}
+
+	private double _currentTime;
+	private final TimeServerListeners _listeners = new TimeServerListeners();
+	private final TreeMap<Double, Cohort> _cohorts = new TreeMap<>();
+	// the cohort being run, null between ticks or if no agent wakes this tick
+	private Cohort _tick;
+	// rank of the phase being run; -1 before the first, _phaseOrder.length between ticks
+	private int _runningRank;
+	private final AgentPhase[] _phaseOrder;
+	// position in _phaseOrder of each AgentPhase, by ordinal
+	private final int[] _phaseRank;
+	private final double _timeStep;
+
+	public TimeServerBatch (double timeStep, Animator animator) {
+		this(timeStep, animator, DEFAULT_PHASE_ORDER);
+	}
+
+	/*
+	 * Phases missing from phaseOrder run after the listed ones, in declaration order.
+	 * The animator may be null when the timeserver is driven by another one.
+	 *
+	 * @invariant a phase is listed at most once
+	 */
+	public TimeServerBatch (double timeStep, Animator animator, AgentPhase... phaseOrder) {
+		AgentPhase[] phases = AgentPhase.values();
+		_phaseOrder = new AgentPhase[phases.length];
+		_phaseRank = new int[phases.length];
+		Arrays.fill(_phaseRank, -1);
+
+		int rank = 0;
+		for (AgentPhase phase : phaseOrder) {
+			if (_phaseRank[phase.ordinal()] != -1)
+				throw new IllegalArgumentException ("Phase " + phase + " listed more than once");
+			_phaseOrder[rank] = phase;
+			_phaseRank[phase.ordinal()] = rank++;
+		}
+		for (AgentPhase phase : phases) {
+			if (_phaseRank[phase.ordinal()] == -1) {
+				_phaseOrder[rank] = phase;
+				_phaseRank[phase.ordinal()] = rank++;
+			}
+		}
+
+		_runningRank = _phaseOrder.length;
+		_timeStep = timeStep;
+		if (animator != null)
+			_listeners.add(animator);
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		String sep = "";
+		for (Map.Entry<Double, Cohort> entry : _cohorts.entrySet()) {
+			for (ArrayList<TimeAgent> phase : entry.getValue().phases) {
+				for (TimeAgent agent : phase) {
+					sb.append(sep).append("(").append(entry.getKey()).append(",");
+					sb.append(agent).append(")");
+					sep = ";";
+				}
+			}
+		}
+		sb.append("]");
+		return (sb.toString());
+	}
+
+	public double currentTime() {
+		return _currentTime;
+	}
+
+	public void addListener(TimeServerListener listener) {
+		_listeners.add(listener);
+	}
+
+	public void removeListener(TimeServerListener listener) {
+		_listeners.remove(listener);
+	}
+
+	public void enqueue(double waketime, TimeAgent agent)
+			throws IllegalArgumentException
+	{
+		if (waketime < _currentTime)
+			throw new IllegalArgumentException();
+		int rank = _phaseRank[agent.phase().ordinal()];
+		if (waketime == _currentTime && rank > _runningRank) {
+			if (_tick == null)
+				_tick = new Cohort(_phaseOrder.length);
+			_tick.phases.get(rank).add(agent);
+			return;
+		}
+		// its phase has already run this tick
+		if (waketime == _currentTime && _runningRank < _phaseOrder.length)
+			waketime = _timeStep + _currentTime;
+		Cohort cohort = _cohorts.get(waketime);
+		if (cohort == null) {
+			cohort = new Cohort(_phaseOrder.length);
+			_cohorts.put(waketime, cohort);
+		}
+		cohort.phases.get(rank).add(agent);
+	}
+
+	int size() {
+		int size = 0;
+		for (Cohort cohort : _cohorts.values())
+			size += cohort.size();
+		return size;
+	}
+
+	boolean empty() {
+		return _cohorts.isEmpty();
+	}
+
+	public void run(double duration) {
+		double endtime = _currentTime + duration;
+		while (this.nextWaketime() <= endtime) {
+
+			this.beginTick(this.nextWaketime());
+			_listeners.tickStarted(_currentTime);
+			for (int rank = 0; rank < _phaseOrder.length; rank++)
+				this.runPhase(_phaseOrder[rank], this.startPhase(rank));
+			_listeners.tickEnded(_currentTime);
+			this.endTick();
+		}
+		_currentTime = endtime;
+		_listeners.runEnded(_currentTime);
+	}
+
+	/*
+	 * Runs the agents of one phase of the current cohort in order.
+	 */
+	void runPhase(AgentPhase phase, List<TimeAgent> agents) {
+		for (TimeAgent ta : agents) {
+			ta.run(_timeStep);
+			this.agentRan(ta);
+		}
+	}
+	
+	/*
+	 * Notifies listeners that an agent of the current cohort has run.
+	 */
+	final void agentRan(TimeAgent ta) {
+		_listeners.agentRan(ta);
+	}
+	
+	final double timeStep() {
+		return _timeStep;
+	}
+	
+	/*
+	 * The waketime of the next queued cohort, or infinity if the queue is empty.
+	 */
+	final double nextWaketime() {
+		return _cohorts.isEmpty() ? Double.POSITIVE_INFINITY : _cohorts.firstKey();
+	}
+	
+	/*
+	 * Advances the clock without running anything.
+	 * 
+	 * @precondition no cohort is queued before time
+	 */
+	final void advanceTo(double time) {
+		_currentTime = time;
+	}
+	
+	/*
+	 * Advances the clock to waketime and takes the cohort queued there, if any,
+	 * as the current tick.
+	 */
+	final void beginTick(double waketime) {
+		this.advanceTo(waketime);
+		_tick = (this.nextWaketime() == waketime) ? _cohorts.pollFirstEntry().getValue() : null;
+		_runningRank = -1;
+	}
+	
+	/*
+	 * Marks the phase at the given rank as running, so that agents woken from
+	 * then on only join the later phases of the current tick.
+	 * 
+	 * @return the agents of the current tick in that phase
+	 */
+	final List<TimeAgent> startPhase(int rank) {
+		_runningRank = rank;
+		return this.tickPhase(rank);
+	}
+	
+	/*
+	 * The agents of the current tick in the phase at the given rank of the phase order.
+	 */
+	final List<TimeAgent> tickPhase(int rank) {
+		return (_tick == null) ? Collections.<TimeAgent>emptyList() : _tick.phases.get(rank);
+	}
+	
+	/*
+	 * Moves up to count agents from the end of a phase of the current tick to
+	 * the end of the same phase of another timeserver's current tick.
+	 * 
+	 * @return the number of agents moved; none if either side has no current tick
+	 */
+	final int moveTickAgents(int rank, int count, TimeServerBatch target) {
+		if (_tick == null || target._tick == null)
+			return 0;
+		List<TimeAgent> from = _tick.phases.get(rank);
+		List<TimeAgent> moved = from.subList(Math.max(0, from.size() - count), from.size());
+		int size = moved.size();
+		target._tick.phases.get(rank).addAll(moved);
+		moved.clear();
+		return size;
+	}
+	
+	/*
+	 * Re-enqueues the current tick one time step later. Agents that sleep
+	 * for longer are taken out of it first and enqueued on their own.
+	 */
+	final void endTick() {
+		if (_tick != null) {
+			for (ArrayList<TimeAgent> phase : _tick.phases)
+				this.removeSleepers(phase);
+			if (_tick.size() > 0)
+				this.enqueueCohort(_timeStep + this.currentTime(), _tick);
+		}
+		_tick = null;
+		_runningRank = _phaseOrder.length;
+	}
+	
+	/*
+	 * Compacts a phase in place to the agents that run again next time step.
+	 */
+	private void removeSleepers(ArrayList<TimeAgent> phase) {
+		int kept = 0;
+		for (int idx = 0; idx < phase.size(); idx++) {
+			TimeAgent ta = phase.get(idx);
+			int steps = ta.stepsUntilNextRun(_timeStep);
+			if (steps == 1)
+				phase.set(kept++, ta);
+			else if (steps != TimeAgent.UNTIL_WOKEN)
+				this.enqueue(Waketimes.after(this.currentTime(), _timeStep, steps), ta);
+		}
+		phase.subList(kept, phase.size()).clear();
+	}
+
+	/*
+	 * Re-enqueues a whole cohort; it is moved as is unless agents already wait
+	 * at that waketime, in which case it is appended to them.
+	 */
+	private void enqueueCohort(double waketime, Cohort cohort) {
+		Cohort existing = _cohorts.get(waketime);
+		if (existing == null)
+			_cohorts.put(waketime, cohort);
+		else existing.addAll(cohort);
+	}
+
+	/*
+	 * Resets the timeserver to its original state. Allows the object to be re-used or restarted
+	 * if original timeagents are re-enqueued.
+	 * @see simulator.timeserver.TimeServer#reset()
+	 */
+	@Override
+	public void reset() {
+		_currentTime = 0;
+		_cohorts.clear();
+		_tick = null;
+		_runningRank = _phaseOrder.length;
+	}
+}
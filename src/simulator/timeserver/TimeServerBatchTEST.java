@@ -0,0 +1,221 @@
+package simulator.timeserver;
+
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.agent.AgentPhase;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+public class TimeServerBatchTEST extends TestCase {
+	
+	class MockAgent implements TimeAgent {
+		final String _name;
+		final AgentPhase _phase;
+		final StringBuilder _order;
+		int _steps = 1;
+		int _runs;
+		
+		MockAgent(String name, AgentPhase phase, StringBuilder order) {
+			this._name = name;
+			this._phase = phase;
+			this._order = order;
+		}
+		
+		@Override
+		public void run(double tempoFactor) {
+			this._runs++;
+			this._order.append(this._name);
+		}
+
+		@Override
+		public int stepsUntilNextRun(double tempoFactor) {
+			return this._steps;
+		}
+		
+		@Override
+		public AgentPhase phase() {
+			return this._phase;
+		}
+
+		@Override
+		public String state() {
+			return null;
+		}
+	}
+	
+	class MockAnimator implements Animator {
+		int _ticks;
+		int _updates;
+		
+		@Override
+		public void tickStarted(double time) {
+			this._ticks++;
+		}
+		
+		@Override
+		public void agentRan(TimeAgent agent) {
+			this._updates++;
+		}
+	}
+	
+	public TimeServerBatchTEST(String name) {
+		super(name);
+	}
+	
+	public void testPhaseOrder() {
+		StringBuilder order = new StringBuilder();
+		TimeServerBatch ts = new TimeServerBatch(1, new MockAnimator());
+		
+		// enqueued against the default phase order, two agents per phase
+		ts.enqueue(1, new MockAgent("o", AgentPhase.OTHER, order));
+		ts.enqueue(1, new MockAgent("r", AgentPhase.ROAD, order));
+		ts.enqueue(1, new MockAgent("i", AgentPhase.INTERSECTION, order));
+		ts.enqueue(1, new MockAgent("s", AgentPhase.SOURCE, order));
+		ts.enqueue(1, new MockAgent("R", AgentPhase.ROAD, order));
+		ts.enqueue(1, new MockAgent("S", AgentPhase.SOURCE, order));
+		Assert.assertEquals(ts.size(), 6);
+		
+		// sources, intersections, roads, then the rest; insertion order within a phase
+		ts.run(2);
+		Assert.assertEquals(order.toString(), "sSirRo" + "sSirRo");
+		
+		// phases left out of the order run after the listed ones, in declaration order
+		order.setLength(0);
+		ts = new TimeServerBatch(1, new MockAnimator(), AgentPhase.ROAD, AgentPhase.SOURCE);
+		ts.enqueue(1, new MockAgent("o", AgentPhase.OTHER, order));
+		ts.enqueue(1, new MockAgent("i", AgentPhase.INTERSECTION, order));
+		ts.enqueue(1, new MockAgent("s", AgentPhase.SOURCE, order));
+		ts.enqueue(1, new MockAgent("r", AgentPhase.ROAD, order));
+		ts.run(1);
+		Assert.assertEquals(order.toString(), "rsio");
+		
+		// a phase cannot be listed twice
+		try {
+			new TimeServerBatch(1, new MockAnimator(), AgentPhase.ROAD, AgentPhase.ROAD);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+	}
+	
+	public void testRunAndReset() {
+		StringBuilder order = new StringBuilder();
+		MockAnimator animator = new MockAnimator();
+		TimeServerBatch ts = new TimeServerBatch(1, animator);
+		MockAgent first = new MockAgent("f", AgentPhase.ROAD, order);
+		MockAgent second = new MockAgent("s", AgentPhase.ROAD, order);
+		ts.enqueue(1, first);
+		ts.enqueue(1, second);
+		
+		// each agent runs once per time step and stays in the cohort
+		ts.run(10);
+		Assert.assertTrue(ts.currentTime() == 10);
+		Assert.assertEquals(first._runs, 10);
+		Assert.assertEquals(second._runs, 10);
+		Assert.assertEquals(animator._updates, 20);
+		Assert.assertEquals(animator._ticks, 10);
+		Assert.assertEquals(ts.size(), 2);
+		
+		// cannot enqueue in the past
+		try {
+			ts.enqueue(5, first);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+		
+		ts.reset();
+		Assert.assertTrue(ts.currentTime() == 0);
+		Assert.assertTrue(ts.empty());
+	}
+	
+	public void testLeaveAndRejoinTheCohort() {
+		StringBuilder order = new StringBuilder();
+		MockAnimator animator = new MockAnimator();
+		TimeServerBatch ts = new TimeServerBatch(1, animator);
+		MockAgent poller = new MockAgent("p", AgentPhase.ROAD, order);
+		MockAgent sleeper = new MockAgent("s", AgentPhase.ROAD, order);
+		MockAgent woken = new MockAgent("w", AgentPhase.ROAD, order);
+		sleeper._steps = 2;
+		woken._steps = TimeAgent.UNTIL_WOKEN;
+		ts.enqueue(1, poller);
+		ts.enqueue(1, sleeper);
+		ts.enqueue(1, woken);
+		
+		// the sleeper leaves the cohort every other tick; the woken agent is dropped
+		ts.run(4);
+		Assert.assertEquals(poller._runs, 4);
+		Assert.assertEquals(sleeper._runs, 2);
+		Assert.assertEquals(woken._runs, 1);
+		Assert.assertEquals(animator._ticks, 4);
+		Assert.assertEquals(ts.size(), 2);
+		
+		// once woken it polls; cohorts that meet are appended to those already waiting
+		woken._steps = 1;
+		ts.enqueue(6, woken);
+		order.setLength(0);
+		ts.run(2);
+		Assert.assertEquals(order.toString(), "sp" + "wp");
+		ts.run(1);
+		Assert.assertEquals(order.toString(), "sp" + "wp" + "swp");
+		Assert.assertEquals(ts.size(), 3);
+	}
+	
+	public void testWokenAgentJoinsTheRunningTick() {
+		final StringBuilder order = new StringBuilder();
+		final TimeServerBatch ts = new TimeServerBatch(1, new MockAnimator());
+		final MockAgent road = new MockAgent("r", AgentPhase.ROAD, order);
+		final MockAgent source = new MockAgent("s", AgentPhase.SOURCE, order);
+		road._steps = TimeAgent.UNTIL_WOKEN;
+		source._steps = TimeAgent.UNTIL_WOKEN;
+		
+		// an intersection that wakes a road and a source in the tick it runs in
+		MockAgent light = new MockAgent("i", AgentPhase.INTERSECTION, order) {
+			@Override
+			public void run(double tempoFactor) {
+				super.run(tempoFactor);
+				if (this._runs == 2) {
+					ts.enqueue(ts.currentTime(), road);
+					ts.enqueue(ts.currentTime() + 1, source);
+				}
+			}
+		};
+		ts.enqueue(1, light);
+		
+		// the road's phase has not run yet, so it runs in the same tick
+		ts.run(3);
+		Assert.assertEquals(order.toString(), "i" + "ir" + "si");
+		Assert.assertEquals(road._runs, 1);
+		Assert.assertEquals(source._runs, 1);
+		Assert.assertEquals(ts.size(), 1);
+	}
+	
+	public void testAgentWokenAfterItsPhaseJoinsTheNextTick() {
+		final StringBuilder order = new StringBuilder();
+		MockAnimator animator = new MockAnimator();
+		final TimeServerBatch ts = new TimeServerBatch(1, animator,
+				AgentPhase.ROAD, AgentPhase.INTERSECTION, AgentPhase.SOURCE);
+		final MockAgent road = new MockAgent("r", AgentPhase.ROAD, order);
+		final MockAgent source = new MockAgent("s", AgentPhase.SOURCE, order);
+		road._steps = TimeAgent.UNTIL_WOKEN;
+		source._steps = TimeAgent.UNTIL_WOKEN;
+		
+		// an intersection that wakes a road and a source in the tick it runs in
+		MockAgent light = new MockAgent("i", AgentPhase.INTERSECTION, order) {
+			@Override
+			public void run(double tempoFactor) {
+				super.run(tempoFactor);
+				if (this._runs == 2) {
+					ts.enqueue(ts.currentTime(), road);
+					ts.enqueue(ts.currentTime(), source);
+				}
+			}
+		};
+		ts.enqueue(1, light);
+		
+		// roads have already run, so the road runs first in the next tick,
+		// and no tick is run twice
+		ts.run(3);
+		Assert.assertEquals(order.toString(), "i" + "is" + "ri");
+		Assert.assertEquals(animator._ticks, 3);
+		Assert.assertEquals(road._runs, 1);
+		Assert.assertEquals(source._runs, 1);
+		Assert.assertEquals(ts.size(), 1);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,279 @@
+package simulator.timeserver;
+
+import java.util.IdentityHashMap;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+/*
+ * A calendar queue timeserver. Events are hashed into buckets one time step
+ * wide, so the fixed-step re-enqueue done by run() appends to the tail of a
+ * bucket and the next event is always at the head of the current bucket:
+ * both enqueue and dequeue are amortized O(1).
+ *
+ * Each bucket is a list sorted by waketime; agents that share a waketime are
+ * dequeued in the order they were first enqueued, matching TimeServerLinked.
+ */
+public final class TimeServerCalendar implements TimeServer {
+	private static final class Node {
+		double waketime;
+		long rank;
+		long bucket;
+		TimeAgent agent;
+		Node next;
+	}
+
+	private static final int MIN_BUCKETS = 16;
+
+	private double _currentTime;
+	private final TimeServerListeners _listeners = new TimeServerListeners();
+	private int _size;
+	private Node[] _heads;
+	private Node[] _tails;
+	private int _mask;
+	// virtual bucket (waketime / width) from which the next event is searched
+	private long _cursor;
+	// recycled nodes, chained through next
+	private Node _free;
+	private final IdentityHashMap<TimeAgent, Long> _ranks = new IdentityHashMap<>();
+	// rank of the agent last dequeued
+	private long _lastRank;
+	private final double _width;
+	private final double _timeStep;
+
+	/*
+	 * Invariant: every node in _heads[b] has (node.bucket & _mask) == b
+	 * Invariant: every bucket list is sorted by waketime, ties by rank
+	 * Invariant: no queued node has node.bucket < _cursor
+	 */
+	public TimeServerCalendar (double timeStep, Animator animator) {
+		if (timeStep <= 0)
+			throw new IllegalArgumentException ("Time step must be gt 0");
+		_size = 0;
+		_cursor = 0;
+		_heads = new Node[MIN_BUCKETS];
+		_tails = new Node[MIN_BUCKETS];
+		_mask = MIN_BUCKETS - 1;
+		_width = timeStep;
+		_timeStep = timeStep;
+		_listeners.add(animator);
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		String sep = "";
+		for (Node head : _heads) {
+			for (Node node = head; node != null; node = node.next) {
+				sb.append(sep).append("(").append(node.waketime).append(",");
+				sb.append(node.agent).append(")");
+				sep = ";";
+			}
+		}
+		sb.append("]");
+		return (sb.toString());
+	}
+
+	public double currentTime() {
+		return _currentTime;
+	}
+
+	public void addListener(TimeServerListener listener) {
+		_listeners.add(listener);
+	}
+
+	public void removeListener(TimeServerListener listener) {
+		_listeners.remove(listener);
+	}
+
+	public void enqueue(double waketime, TimeAgent agent)
+			throws IllegalArgumentException
+	{
+		if (waketime < _currentTime)
+			throw new IllegalArgumentException();
+		Long rank = _ranks.get(agent);
+		if (rank == null) {
+			rank = Long.valueOf(_ranks.size());
+			_ranks.put(agent, rank);
+		}
+		this.enqueue(waketime, rank.longValue(), agent);
+	}
+
+	/*
+	 * Enqueues without looking the rank up; run() re-enqueues with the rank just dequeued
+	 */
+	private void enqueue(double waketime, long rank, TimeAgent agent) {
+		Node newElement = _free;
+		if (newElement != null)
+			_free = newElement.next;
+		else newElement = new Node();
+		newElement.waketime = waketime;
+		newElement.rank = rank;
+		newElement.bucket = (long) Math.floor(waketime / _width);
+		newElement.agent = agent;
+		newElement.next = null;
+
+		// run() may have looked past the end of the last run
+		if (newElement.bucket < _cursor)
+			_cursor = newElement.bucket;
+
+		this.insert(newElement);
+		_size++;
+
+		if (_size > 2 * _heads.length)
+			this.resize(_heads.length * 2);
+	}
+
+	TimeAgent dequeue()
+	{
+		Node next = this.peek();
+		if (next == null)
+			throw new java.util.NoSuchElementException();
+
+		int idx = (int) (next.bucket & _mask);
+		_heads[idx] = next.next;
+		if (_heads[idx] == null)
+			_tails[idx] = null;
+		_size--;
+
+		TimeAgent rval = next.agent;
+		_lastRank = next.rank;
+		next.agent = null;
+		next.next = _free;
+		_free = next;
+
+		if (_size < _heads.length / 4 && _heads.length > MIN_BUCKETS)
+			this.resize(_heads.length / 2);
+		return rval;
+	}
+
+	int size() {
+		return _size;
+	}
+
+	boolean empty() {
+		return size() == 0;
+	}
+
+	public void run(double duration) {
+		double endtime = _currentTime + duration;
+		boolean inTick = false;
+		Node next;
+		while (((next = this.peek()) != null) && (next.waketime <= endtime)) {
+
+			if (!inTick || next.waketime != _currentTime) {
+				if (inTick)
+					_listeners.tickEnded(_currentTime);
+				_currentTime = next.waketime;
+				_listeners.tickStarted(_currentTime);
+				inTick = true;
+			}
+
+			TimeAgent ta = dequeue();
+			ta.run(_timeStep);
+			_listeners.agentRan(ta);
+
+			int steps = ta.stepsUntilNextRun(_timeStep);
+			if (steps != TimeAgent.UNTIL_WOKEN)
+				this.enqueue(Waketimes.after(this.currentTime(), _timeStep, steps), _lastRank, ta);
+		}
+		if (inTick)
+			_listeners.tickEnded(_currentTime);
+		_currentTime = endtime;
+		_listeners.runEnded(_currentTime);
+	}
+
+	/*
+	 * Resets the timeserver to its original state. Allows the object to be re-used or restarted
+	 * if original timeagents are re-enqueued.
+	 * @see simulator.timeserver.TimeServer#reset()
+	 */
+	@Override
+	public void reset() {
+		_currentTime = 0;
+		_size = 0;
+		_cursor = 0;
+		_heads = new Node[MIN_BUCKETS];
+		_tails = new Node[MIN_BUCKETS];
+		_mask = MIN_BUCKETS - 1;
+		_free = null;
+		_ranks.clear();
+	}
+
+	/*
+	 * Finds the earliest event without removing it, advancing the cursor to
+	 * its bucket. One pass over the calendar finds it in the common case; if
+	 * every event is more than a calendar year ahead, fall back to a direct
+	 * search of the bucket heads.
+	 */
+	private Node peek() {
+		if (_size == 0)
+			return null;
+
+		for (int step = 0; step < _heads.length; step++) {
+			long bucket = _cursor + step;
+			Node head = _heads[(int) (bucket & _mask)];
+			if (head != null && head.bucket == bucket) {
+				_cursor = bucket;
+				return head;
+			}
+		}
+
+		Node earliest = null;
+		for (Node head : _heads) {
+			if (head != null && (earliest == null || head.waketime < earliest.waketime))
+				earliest = head;
+		}
+		_cursor = earliest.bucket;
+		return earliest;
+	}
+
+	/*
+	 * Inserts after every node that wakes earlier, or at the same time with a
+	 * rank no greater; the fixed-step re-enqueue of agents that all poll lands
+	 * on the tail.
+	 */
+	private void insert(Node newElement) {
+		int idx = (int) (newElement.bucket & _mask);
+		Node tail = _tails[idx];
+		if (tail == null) {
+			_heads[idx] = newElement;
+			_tails[idx] = newElement;
+		} else if (!sortsAfter(tail, newElement)) {
+			tail.next = newElement;
+			_tails[idx] = newElement;
+		} else if (sortsAfter(_heads[idx], newElement)) {
+			newElement.next = _heads[idx];
+			_heads[idx] = newElement;
+		} else {
+			Node prevElement = _heads[idx];
+			while (!sortsAfter(prevElement.next, newElement))
+				prevElement = prevElement.next;
+			newElement.next = prevElement.next;
+			prevElement.next = newElement;
+		}
+	}
+
+	private static boolean sortsAfter(Node node, Node other) {
+		return node.waketime > other.waketime ||
+				(node.waketime == other.waketime && node.rank > other.rank);
+	}
+
+	/*
+	 * Re-hashes every event into a calendar with the given number of buckets.
+	 * Each old bucket is replayed in order, so ties keep their order.
+	 */
+	private void resize(int buckets) {
+		Node[] oldHeads = _heads;
+		_heads = new Node[buckets];
+		_tails = new Node[buckets];
+		_mask = buckets - 1;
+		for (Node head : oldHeads) {
+			Node node = head;
+			while (node != null) {
+				Node next = node.next;
+				node.next = null;
+				this.insert(node);
+				node = next;
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package simulator.timeserver;
+
+import simulator.animator.Animator;
+
+/*
+ * Selects the event queue implementation used to schedule the model's agents.
+ */
+public enum TimeServerFactory {
+	LINKED {
+		@Override
+		public TimeServer newTimeServer(double timeStep, Animator animator) {
+			return new TimeServerLinked(timeStep, animator);
+		}
+	},
+	HEAP {
+		@Override
+		public TimeServer newTimeServer(double timeStep, Animator animator) {
+			return new TimeServerHeap(timeStep, animator);
+		}
+	},
+	CALENDAR {
+		@Override
+		public TimeServer newTimeServer(double timeStep, Animator animator) {
+			return new TimeServerCalendar(timeStep, animator);
+		}
+	},
+	BATCH {
+		@Override
+		public TimeServer newTimeServer(double timeStep, Animator animator) {
+			return new TimeServerBatch(timeStep, animator);
+		}
+	},
+	PARALLEL {
+		@Override
+		public TimeServer newTimeServer(double timeStep, Animator animator) {
+			return new TimeServerParallel(timeStep, animator);
+		}
+	},
+	PARTITIONED {
+		@Override
+		public TimeServer newTimeServer(double timeStep, Animator animator) {
+			return new TimeServerPartitioned(timeStep, animator, false);
+		}
+	},
+	ADAPTIVE {
+		@Override
+		public TimeServer newTimeServer(double timeStep, Animator animator) {
+			return new TimeServerPartitioned(timeStep, animator, true);
+		}
+	},
+	NOT_DEFINED {
+		@Override
+		public TimeServer newTimeServer(double timeStep, Animator animator) {
+			throw new IllegalStateException ("Timeserver type is not defined");
+		}
+	};
+	
+	public abstract TimeServer newTimeServer(double timeStep, Animator animator);
+	
+	public static TimeServerFactory toTimeServerFactory (String valueToMatch) {
+		for (TimeServerFactory factory : TimeServerFactory.values()) {
+			if (factory.name().equals(valueToMatch.toUpperCase().trim()))
+				return factory;
+		}
+		return NOT_DEFINED;
+	}
+}
@@ -0,0 +1,214 @@
+package simulator.timeserver;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+/*
+ * A timeserver backed by an array-based d-ary min-heap. Entries are kept in
+ * parallel arrays keyed on primitive waketimes; agents that share a waketime
+ * are dequeued in the order they were first enqueued, matching TimeServerLinked.
+ * An agent keeps that rank while it sleeps, so it rejoins a tick in the place
+ * it would have had by being re-enqueued on every step.
+ *
+ * enqueue and dequeue are O(log n) instead of the O(n) list walk.
+ */
+public final class TimeServerHeap implements TimeServer {
+	private static final int ARITY = 4;
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private double _currentTime;
+	private final TimeServerListeners _listeners = new TimeServerListeners();
+	private int _size;
+	private final IdentityHashMap<TimeAgent, Long> _ranks = new IdentityHashMap<>();
+	// rank of the agent last dequeued
+	private long _lastRank;
+	private double[] _waketimes;
+	private long[] _entryRanks;
+	private TimeAgent[] _agents;
+	private final double _timeStep;
+
+	/*
+	 * Invariant: for every i > 0, entry i does not sort before entry parent(i)
+	 * Invariant: entries [0, _size) are in use, all others are empty
+	 */
+	public TimeServerHeap (double timeStep, Animator animator) {
+		_size = 0;
+		_waketimes = new double[DEFAULT_CAPACITY];
+		_entryRanks = new long[DEFAULT_CAPACITY];
+		_agents = new TimeAgent[DEFAULT_CAPACITY];
+		_timeStep = timeStep;
+		_listeners.add(animator);
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		String sep = "";
+		for (int idx = 0; idx < _size; idx++) {
+			sb.append(sep).append("(").append(_waketimes[idx]).append(",");
+			sb.append(_agents[idx]).append(")");
+			sep = ";";
+		}
+		sb.append("]");
+		return (sb.toString());
+	}
+
+	public double currentTime() {
+		return _currentTime;
+	}
+
+	public void addListener(TimeServerListener listener) {
+		_listeners.add(listener);
+	}
+
+	public void removeListener(TimeServerListener listener) {
+		_listeners.remove(listener);
+	}
+
+	public void enqueue(double waketime, TimeAgent agent)
+			throws IllegalArgumentException
+	{
+		if (waketime < _currentTime)
+			throw new IllegalArgumentException();
+		Long rank = _ranks.get(agent);
+		if (rank == null) {
+			rank = Long.valueOf(_ranks.size());
+			_ranks.put(agent, rank);
+		}
+		this.insert(waketime, rank.longValue(), agent);
+	}
+
+	/*
+	 * Enqueues without looking the rank up; run() re-enqueues with the rank just dequeued
+	 */
+	private void insert(double waketime, long rank, TimeAgent agent) {
+		if (_size == _agents.length)
+			this.grow();
+		this.siftUp(_size, waketime, rank, agent);
+		_size++;
+	}
+
+	TimeAgent dequeue()
+	{
+		if (_size < 1)
+			throw new java.util.NoSuchElementException();
+		TimeAgent rval = _agents[0];
+		_lastRank = _entryRanks[0];
+		_size--;
+		if (_size > 0)
+			this.siftDown(0, _waketimes[_size], _entryRanks[_size], _agents[_size]);
+		_agents[_size] = null;
+		return rval;
+	}
+
+	int size() {
+		return _size;
+	}
+
+	boolean empty() {
+		return size() == 0;
+	}
+
+	public void run(double duration) {
+		double endtime = _currentTime + duration;
+		boolean inTick = false;
+		while ((!empty()) && (_waketimes[0] <= endtime)) {
+
+			if (!inTick || _waketimes[0] != _currentTime) {
+				if (inTick)
+					_listeners.tickEnded(_currentTime);
+				_currentTime = _waketimes[0];
+				_listeners.tickStarted(_currentTime);
+				inTick = true;
+			}
+
+			TimeAgent ta = dequeue();
+			ta.run(_timeStep);
+			_listeners.agentRan(ta);
+
+			int steps = ta.stepsUntilNextRun(_timeStep);
+			if (steps != TimeAgent.UNTIL_WOKEN)
+				this.insert(Waketimes.after(this.currentTime(), _timeStep, steps), _lastRank, ta);
+		}
+		if (inTick)
+			_listeners.tickEnded(_currentTime);
+		_currentTime = endtime;
+		_listeners.runEnded(_currentTime);
+	}
+
+	/*
+	 * Resets the timeserver to its original state. Allows the object to be re-used or restarted
+	 * if original timeagents are re-enqueued.
+	 * @see simulator.timeserver.TimeServer#reset()
+	 */
+	@Override
+	public void reset() {
+		_currentTime = 0;
+		Arrays.fill(_agents, 0, _size, null);
+		_size = 0;
+		_ranks.clear();
+	}
+
+	/*
+	 * Orders entries by waketime, then by rank
+	 */
+	private static boolean before(double waketime, long rank,
+			double otherWaketime, long otherRank) {
+		return waketime < otherWaketime ||
+				(waketime == otherWaketime && rank < otherRank);
+	}
+
+	/*
+	 * Moves the hole at idx towards the root until the entry fits, then stores it
+	 */
+	private void siftUp(int idx, double waketime, long rank, TimeAgent agent) {
+		while (idx > 0) {
+			int parent = (idx - 1) / ARITY;
+			if (!before(waketime, rank, _waketimes[parent], _entryRanks[parent]))
+				break;
+			this.move(parent, idx);
+			idx = parent;
+		}
+		this.store(idx, waketime, rank, agent);
+	}
+
+	/*
+	 * Moves the hole at idx towards the leaves until the entry fits, then stores it
+	 */
+	private void siftDown(int idx, double waketime, long rank, TimeAgent agent) {
+		int firstChild;
+		while ((firstChild = idx * ARITY + 1) < _size) {
+			int smallest = firstChild;
+			int lastChild = Math.min(firstChild + ARITY, _size);
+			for (int child = firstChild + 1; child < lastChild; child++) {
+				if (before(_waketimes[child], _entryRanks[child], _waketimes[smallest], _entryRanks[smallest]))
+					smallest = child;
+			}
+			if (!before(_waketimes[smallest], _entryRanks[smallest], waketime, rank))
+				break;
+			this.move(smallest, idx);
+			idx = smallest;
+		}
+		this.store(idx, waketime, rank, agent);
+	}
+
+	private void move(int from, int to) {
+		_waketimes[to] = _waketimes[from];
+		_entryRanks[to] = _entryRanks[from];
+		_agents[to] = _agents[from];
+	}
+
+	private void store(int idx, double waketime, long rank, TimeAgent agent) {
+		_waketimes[idx] = waketime;
+		_entryRanks[idx] = rank;
+		_agents[idx] = agent;
+	}
+
+	private void grow() {
+		int capacity = _agents.length * 2;
+		_waketimes = Arrays.copyOf(_waketimes, capacity);
+		_entryRanks = Arrays.copyOf(_entryRanks, capacity);
+		_agents = Arrays.copyOf(_agents, capacity);
+	}
+}
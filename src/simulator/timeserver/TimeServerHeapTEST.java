@@ -0,0 +1,146 @@
+package simulator.timeserver;
+
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+public class TimeServerHeapTEST extends TestCase {
+	
+	class MockAgent implements TimeAgent {
+		int _runs;
+		
+		@Override
+		public void run(double tempoFactor) {
+			this._runs++;
+		}
+
+		@Override
+		public String state() {
+			return null;
+		}
+	}
+	
+	class MockAnimator implements Animator {
+		int _ticks;
+		int _updates;
+		
+		@Override
+		public void tickStarted(double time) {
+			this._ticks++;
+		}
+		
+		@Override
+		public void agentRan(TimeAgent agent) {
+			this._updates++;
+		}
+	}
+	
+	public TimeServerHeapTEST(String name) {
+		super(name);
+	}
+	
+	public void testDequeueOrder() {
+		TimeServerHeap ts = new TimeServerHeap(1, new MockAnimator());
+		
+		// enqueue out of order and with equal waketimes
+		MockAgent[] agents = new MockAgent[200];
+		for (int idx = 0; idx < agents.length; idx++) {
+			agents[idx] = new MockAgent();
+			ts.enqueue((idx * 7) % 10, agents[idx]);
+		}
+		Assert.assertEquals(ts.size(), agents.length);
+		
+		// agents come back sorted by waketime; ties come back in insertion order
+		for (int waketime = 0; waketime < 10; waketime++) {
+			for (int idx = 0; idx < agents.length; idx++) {
+				if ((idx * 7) % 10 == waketime)
+					Assert.assertSame(ts.dequeue(), agents[idx]);
+			}
+		}
+		Assert.assertTrue(ts.empty());
+		
+		// cannot dequeue from an empty timeserver
+		try {
+			ts.dequeue();
+			Assert.fail();
+		} catch (java.util.NoSuchElementException e) {};
+	}
+	
+	public void testRunAndReset() {
+		MockAnimator animator = new MockAnimator();
+		TimeServerHeap ts = new TimeServerHeap(1, animator);
+		MockAgent first = new MockAgent();
+		MockAgent second = new MockAgent();
+		ts.enqueue(1, first);
+		ts.enqueue(1, second);
+		
+		// each agent runs once per time step and is re-enqueued
+		ts.run(10);
+		Assert.assertTrue(ts.currentTime() == 10);
+		Assert.assertEquals(first._runs, 10);
+		Assert.assertEquals(second._runs, 10);
+		Assert.assertEquals(animator._updates, 20);
+		Assert.assertEquals(animator._ticks, 10);
+		Assert.assertEquals(ts.size(), 2);
+		
+		// cannot enqueue in the past
+		try {
+			ts.enqueue(5, first);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+		
+		ts.reset();
+		Assert.assertTrue(ts.currentTime() == 0);
+		Assert.assertTrue(ts.empty());
+	}
+	
+	public void testSleeperKeepsItsPlace() {
+		final StringBuilder order = new StringBuilder();
+		TimeServerHeap ts = new TimeServerHeap(1, new MockAnimator());
+		MockAgent poller = new MockAgent() {
+			@Override
+			public void run(double tempoFactor) {
+				order.append("p");
+			}
+		};
+		MockAgent sleeper = new MockAgent() {
+			@Override
+			public void run(double tempoFactor) {
+				order.append("s");
+			}
+			
+			@Override
+			public int stepsUntilNextRun(double tempoFactor) {
+				return 2;
+			}
+		};
+		ts.enqueue(1, poller);
+		ts.enqueue(1, sleeper);
+		
+		// the sleeper runs after the poller whenever both wake, as it would if it polled
+		ts.run(3);
+		Assert.assertEquals(order.toString(), "pspps");
+		
+		// an agent woken by another keeps the place it was first given
+		MockAgent woken = new MockAgent() {
+			@Override
+			public void run(double tempoFactor) {
+				order.append("w");
+			}
+			
+			@Override
+			public int stepsUntilNextRun(double tempoFactor) {
+				return UNTIL_WOKEN;
+			}
+		};
+		ts.reset();
+		order.setLength(0);
+		ts.enqueue(1, woken);
+		ts.enqueue(1, poller);
+		ts.run(1);
+		ts.enqueue(2, woken);
+		ts.run(1);
+		Assert.assertEquals(order.toString(), "wpwp");
+	}
+}
\ No newline at end of file
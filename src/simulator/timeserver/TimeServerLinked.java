@@ -1,26 +1,33 @@
 package simulator.timeserver;
 
-import java.util.Observable;
+import java.util.IdentityHashMap;
 import simulator.agent.TimeAgent;
 import simulator.animator.Animator;
 
-public final class TimeServerLinked extends Observable implements TimeServer {
+public final class TimeServerLinked implements TimeServer {
 	private static final class Node {
 		final double waketime;
+		final long rank;
 		final TimeAgent agent;
 		Node next;
   
-		public Node(double waketime, TimeAgent agent, Node next) {
+		public Node(double waketime, long rank, TimeAgent agent, Node next) {
 			this.waketime = waketime;
+			this.rank = rank;
 			this.agent = agent;
 			this.next = next;
 		}
 	}
 	
 	private double _currentTime;
+	private final TimeServerListeners _listeners = new TimeServerListeners();
 	private int _size;
 	private Node _head;
 	private double _timeStep;
+	// agents that share a waketime run in the order they were first enqueued
+	private final IdentityHashMap<TimeAgent, Long> _ranks = new IdentityHashMap<>();
+	// rank of the agent last dequeued
+	private long _lastRank;
 
 	/*
 	* Invariant: _head != null
@@ -29,9 +36,9 @@ public final class TimeServerLinked extends Observable implements TimeServer {
 	*/
 	public TimeServerLinked (double timeStep, Animator animator) {
 		_size = 0;
-		_head = new Node(0, null, null);
+		_head = new Node(0, 0, null, null);
 		_timeStep = timeStep;
-		super.addObserver(animator);
+		_listeners.add(animator);
 	}
 
 	public String toString() {
@@ -52,17 +59,40 @@ public final class TimeServerLinked extends Observable implements TimeServer {
 		return _currentTime;
 	}
 
+	public void addListener(TimeServerListener listener) {
+		_listeners.add(listener);
+	}
+
+	public void removeListener(TimeServerListener listener) {
+		_listeners.remove(listener);
+	}
+
 	public void enqueue(double waketime, TimeAgent agent)
 			throws IllegalArgumentException
 	{
 		if (waketime < _currentTime)
 			throw new IllegalArgumentException();
+		Long rank = _ranks.get(agent);
+		if (rank == null) {
+			rank = Long.valueOf(_ranks.size());
+			_ranks.put(agent, rank);
+		}
+		this.insert(waketime, rank.longValue(), agent);
+	}
+
+	/*
+	 * Inserts after every node that wakes earlier, or at the same time with a
+	 * rank no greater; a sleeping agent so rejoins a tick where it would have
+	 * been had it been re-enqueued on every step.
+	 */
+	private void insert(double waketime, long rank, TimeAgent agent) {
 		Node prevElement = _head;
 		while ((prevElement.next != null) &&
-				(prevElement.next.waketime <= waketime)) {
+				((prevElement.next.waketime < waketime) ||
+				(prevElement.next.waketime == waketime && prevElement.next.rank <= rank))) {
 			prevElement = prevElement.next;
 		}
-		Node newElement = new Node(waketime, agent, prevElement.next);
+		Node newElement = new Node(waketime, rank, agent, prevElement.next);
 		prevElement.next = newElement;
 		_size++;
 	}
@@ -72,6 +102,7 @@ public final class TimeServerLinked extends Observable implements TimeServer {
 		if (_size < 1)
 			throw new java.util.NoSuchElementException();
 		TimeAgent rval = _head.next.agent;
+		_lastRank = _head.next.rank;
 		_head.next = _head.next.next;
 		_size--;
 		return rval;
@@ -87,18 +118,29 @@ public final class TimeServerLinked extends Observable implements TimeServer {
 
 	public void run(double duration) {
 		double endtime = _currentTime + duration;
+		boolean inTick = false;
 		while ((!empty()) && (_head.next.waketime <= endtime)) {
 			
-			_currentTime = _head.next.waketime;
+			if (!inTick || _head.next.waketime != _currentTime) {
+				if (inTick)
+					_listeners.tickEnded(_currentTime);
+				_currentTime = _head.next.waketime;
+				_listeners.tickStarted(_currentTime);
+				inTick = true;
+			}
 		
 			TimeAgent ta = dequeue();
 			ta.run(_timeStep);
-			super.setChanged();
-			super.notifyObservers(ta);
+			_listeners.agentRan(ta);
 			
-			this.enqueue(_timeStep + this.currentTime(), ta);
+			int steps = ta.stepsUntilNextRun(_timeStep);
+			if (steps != TimeAgent.UNTIL_WOKEN)
+				this.insert(Waketimes.after(this.currentTime(), _timeStep, steps), _lastRank, ta);
 		}
+		if (inTick)
+			_listeners.tickEnded(_currentTime);
 		_currentTime = endtime;
+		_listeners.runEnded(_currentTime);
 	}
 
 	/*
@@ -110,6 +152,7 @@ public final class TimeServerLinked extends Observable implements TimeServer {
 	public void reset() {
 		_currentTime = 0;
 		_size = 0;
-		_head = new Node(0, null, null);
+		_head = new Node(0, 0, null, null);
+		_ranks.clear();
 	}
 }
\ No newline at end of file
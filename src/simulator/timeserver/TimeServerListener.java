@@ -0,0 +1,22 @@
+package simulator.timeserver;
+
+import simulator.agent.TimeAgent;
+
+/*
+ * Receives progress callbacks from a timeserver. A tick is the set of agents
+ * run at one waketime; callbacks are made on the thread that called run().
+ */
+public interface TimeServerListener {
+	
+	public default void tickStarted(double time) {}
+	
+	public void agentRan(TimeAgent agent);
+	
+	public default void tickEnded(double time) {}
+	
+	/*
+	 * Called once run() has advanced the clock to the end of the requested
+	 * duration, before it returns.
+	 */
+	public default void runEnded(double time) {}
+}
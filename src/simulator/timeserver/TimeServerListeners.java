@@ -0,0 +1,56 @@
+package simulator.timeserver;
+
+import java.util.Arrays;
+import simulator.agent.TimeAgent;
+
+/*
+ * The listeners registered with a timeserver. Listeners are kept in an array
+ * that is replaced on registration, so firing an event neither allocates nor
+ * locks, and costs nothing beyond a length check when no listener is attached.
+ * 
+ * Listeners must be registered before, not during, a run.
+ */
+final class TimeServerListeners {
+	private static final TimeServerListener[] NONE = new TimeServerListener[0];
+	private TimeServerListener[] _listeners = NONE;
+	
+	void add(TimeServerListener listener) {
+		if (listener == null)
+			throw new NullPointerException ("Listener argument cannot be null");
+		TimeServerListener[] listeners = Arrays.copyOf(_listeners, _listeners.length + 1);
+		listeners[_listeners.length] = listener;
+		_listeners = listeners;
+	}
+	
+	void remove(TimeServerListener listener) {
+		for (int idx = 0; idx < _listeners.length; idx++) {
+			if (_listeners[idx] == listener) {
+				TimeServerListener[] listeners = new TimeServerListener[_listeners.length - 1];
+				System.arraycopy(_listeners, 0, listeners, 0, idx);
+				System.arraycopy(_listeners, idx + 1, listeners, idx, listeners.length - idx);
+				_listeners = listeners;
+				return;
+			}
+		}
+	}
+	
+	void tickStarted(double time) {
+		for (TimeServerListener listener : _listeners)
+			listener.tickStarted(time);
+	}
+	
+	void agentRan(TimeAgent agent) {
+		for (TimeServerListener listener : _listeners)
+			listener.agentRan(agent);
+	}
+	
+	void tickEnded(double time) {
+		for (TimeServerListener listener : _listeners)
+			listener.tickEnded(time);
+	}
+	
+	void runEnded(double time) {
+		for (TimeServerListener listener : _listeners)
+			listener.runEnded(time);
+	}
+}
@@ -0,0 +1,95 @@
+package simulator.timeserver;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import simulator.agent.AgentPhase;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+/*
+ * A tick-synchronous timeserver that runs the intersection and road phases of
+ * each cohort across a ForkJoinPool.
+ *
+ * Within a tick a road only moves its own cars and intersections only update
+ * their own timers, so agents of those phases are independent once the
+ * intersections have run. Cars that go on to another road are handed over
+ * when the road is asked for its next run, at the end of the tick on the
+ * calling thread. Listeners are notified on the calling thread, in cohort
+ * order, once each phase has completed.
+ *
+ * Sources still run sequentially. Each source draws from its own random
+ * stream, but the order in which sources run decides which ids and colours
+ * their cars are given, and sources plan trips through the RoutePlanner,
+ * whose route cache is not thread-safe.
+ *
+ * Results are identical to a TimeServerBatch using the same phase order.
+ */
+public final class TimeServerParallel extends TimeServerBatch {
+	public static final AgentPhase[] PHASE_ORDER = {
+		AgentPhase.INTERSECTION, AgentPhase.SOURCE, AgentPhase.ROAD, AgentPhase.OTHER };
+	// below this many agents a phase is not worth forking
+	private static final int MIN_PARALLEL_AGENTS = 64;
+	// number of slices handed out per worker, so uneven roads balance out
+	private static final int SLICES_PER_WORKER = 4;
+
+	private final ForkJoinPool _pool;
+
+	/*
+	 * Splits a slice of a phase in half until it is small enough to run directly.
+	 */
+	private static final class PhaseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List<TimeAgent> _agents;
+		private final int _from;
+		private final int _to;
+		private final int _grain;
+		private final double _tempoFactor;
+
+		PhaseTask(List<TimeAgent> agents, int from, int to, int grain, double tempoFactor) {
+			this._agents = agents;
+			this._from = from;
+			this._to = to;
+			this._grain = grain;
+			this._tempoFactor = tempoFactor;
+		}
+
+		@Override
+		protected void compute() {
+			if (this._to - this._from <= this._grain) {
+				for (int idx = this._from; idx < this._to; idx++)
+					this._agents.get(idx).run(this._tempoFactor);
+			} else {
+				int middle = (this._from + this._to) >>> 1;
+				invokeAll(new PhaseTask(this._agents, this._from, middle, this._grain, this._tempoFactor),
+						new PhaseTask(this._agents, middle, this._to, this._grain, this._tempoFactor));
+			}
+		}
+	}
+
+	public TimeServerParallel (double timeStep, Animator animator) {
+		this(timeStep, animator, ForkJoinPool.commonPool());
+	}
+
+	public TimeServerParallel (double timeStep, Animator animator, ForkJoinPool pool) {
+		super(timeStep, animator, PHASE_ORDER);
+		if (pool == null)
+			throw new NullPointerException ("Pool argument cannot be null");
+		this._pool = pool;
+	}
+
+	@Override
+	void runPhase(AgentPhase phase, List<TimeAgent> agents) {
+		boolean independent = phase.equals(AgentPhase.INTERSECTION) || phase.equals(AgentPhase.ROAD);
+		if (!independent || agents.size() < MIN_PARALLEL_AGENTS) {
+			super.runPhase(phase, agents);
+			return;
+		}
+
+		int grain = Math.max(1, agents.size() / (this._pool.getParallelism() * SLICES_PER_WORKER));
+		this._pool.invoke(new PhaseTask(agents, 0, agents.size(), grain, this.timeStep()));
+
+		for (TimeAgent ta : agents)
+			this.agentRan(ta);
+	}
+}
@@ -0,0 +1,138 @@
+package simulator.timeserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.agent.AgentPhase;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+public class TimeServerParallelTEST extends TestCase {
+	// enough agents per phase for the phase to be forked
+	private static final int AGENTS = 200;
+	private static final int TICKS = 20;
+	
+	/*
+	 * Updates a value of its own every tick, and notes whether it ran on a
+	 * worker of a pool.
+	 */
+	class MockAgent implements TimeAgent {
+		final int _id;
+		final AgentPhase _phase;
+		final MockAgent _watched;
+		long _value;
+		boolean _forked;
+		
+		MockAgent(int id, AgentPhase phase, MockAgent watched) {
+			this._id = id;
+			this._phase = phase;
+			this._watched = watched;
+		}
+		
+		@Override
+		public void run(double tempoFactor) {
+			long watched = (this._watched == null) ? this._id : this._watched._value;
+			this._value = (this._value * 31 + watched) % 1000003;
+			this._forked |= Thread.currentThread() instanceof ForkJoinWorkerThread;
+		}
+		
+		@Override
+		public AgentPhase phase() {
+			return this._phase;
+		}
+
+		@Override
+		public String state() {
+			return null;
+		}
+	}
+	
+	class MockAnimator implements Animator {
+		final List<TimeAgent> _ran = new ArrayList<>();
+		
+		@Override
+		public void agentRan(TimeAgent agent) {
+			Assert.assertFalse(Thread.currentThread() instanceof ForkJoinWorkerThread);
+			this._ran.add(agent);
+		}
+	}
+	
+	public TimeServerParallelTEST(String name) {
+		super(name);
+	}
+	
+	/*
+	 * Runs a source, and lights and roads that each watch an agent of the
+	 * phase run before theirs, on a timeserver.
+	 * 
+	 * @return the agents, in the order they were enqueued
+	 */
+	private static MockAgent[] run(TimeServer ts) {
+		TimeServerParallelTEST test = new TimeServerParallelTEST("run");
+		MockAgent[] agents = new MockAgent[1 + 2 * AGENTS];
+		agents[0] = test.new MockAgent(0, AgentPhase.SOURCE, null);
+		for (int idx = 1; idx <= AGENTS; idx++)
+			agents[idx] = test.new MockAgent(idx, AgentPhase.INTERSECTION, null);
+		for (int idx = AGENTS + 1; idx < agents.length; idx++)
+			agents[idx] = test.new MockAgent(idx, AgentPhase.ROAD, agents[1 + (idx * 7) % AGENTS]);
+		
+		// enqueued against the phase order
+		for (int idx = agents.length - 1; idx >= 0; idx--)
+			ts.enqueue(1, agents[idx]);
+		ts.run(TICKS);
+		return agents;
+	}
+	
+	public void testParallelRunsLikeBatch() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			MockAnimator batchAnimator = new MockAnimator();
+			MockAgent[] batch = run(new TimeServerBatch(1, batchAnimator, TimeServerParallel.PHASE_ORDER));
+			MockAnimator parallelAnimator = new MockAnimator();
+			MockAgent[] parallel = run(new TimeServerParallel(1, parallelAnimator, pool));
+			
+			// the lights and roads ran on the pool, the source on the calling thread
+			Assert.assertFalse(parallel[0]._forked);
+			for (int idx = 1; idx < parallel.length; idx++)
+				Assert.assertTrue(parallel[idx]._forked);
+			
+			// every agent ends up as it would have run in batch, whatever the threads
+			for (int idx = 0; idx < batch.length; idx++)
+				Assert.assertEquals(batch[idx]._value, parallel[idx]._value);
+			
+			// and observers are told in the same order, on the calling thread
+			Assert.assertEquals(batchAnimator._ran.size(), TICKS * batch.length);
+			Assert.assertEquals(parallelAnimator._ran.size(), batchAnimator._ran.size());
+			for (int idx = 0; idx < batchAnimator._ran.size(); idx++) {
+				int id = ((MockAgent) batchAnimator._ran.get(idx))._id;
+				Assert.assertEquals(id, ((MockAgent) parallelAnimator._ran.get(idx))._id);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	public void testSmallPhasesRunOnTheCallingThread() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			TimeServerParallel ts = new TimeServerParallel(1, new MockAnimator(), pool);
+			MockAgent light = new MockAgent(1, AgentPhase.INTERSECTION, null);
+			MockAgent road = new MockAgent(2, AgentPhase.ROAD, light);
+			ts.enqueue(1, road);
+			ts.enqueue(1, light);
+			ts.run(3);
+			Assert.assertFalse(light._forked);
+			Assert.assertFalse(road._forked);
+		} finally {
+			pool.shutdown();
+		}
+		
+		try {
+			new TimeServerParallel(1, new MockAnimator(), null);
+			Assert.fail();
+		} catch (NullPointerException e) {};
+	}
+}
\ No newline at end of file
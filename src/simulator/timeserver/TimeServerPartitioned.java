@@ -0,0 +1,278 @@
+package simulator.timeserver;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import simulator.agent.AgentPhase;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+/*
+ * A conservative parallel timeserver. The model is split into partitions by
+ * region, each with its own tick-synchronous queue, and every partition runs
+ * its share of a phase on its own worker.
+ *
+ * Partitions only interact through the intersections at their borders: a road
+ * reads the status of intersections owned by other partitions in the same
+ * tick in which those intersections update. The lookahead between partitions
+ * is therefore one time step, and the partitions advance in synchronous
+ * windows of one tick, with a barrier after each phase. Cars handed from one
+ * road to the next cross partition borders between ticks: roads hand them over
+ * when asked for their next run, which every partition does on the calling
+ * thread at the end of the tick, so no null messages are needed. Nor does
+ * a car or a light change ever reach a partition after it has run the tick
+ * it belongs to, so an optimistic engine would never roll back.
+ *
+ * Sources run sequentially, partition by partition: the order in which they
+ * run decides which ids and colours their cars are given, and they plan trips
+ * through the RoutePlanner, whose route cache is not thread-safe. A run is
+ * reproducible for any number of workers given the same number of partitions.
+ * 
+ * Traffic is rarely spread evenly over the grid, and every phase waits for
+ * its slowest partition. With rebalancing on, the time each partition spends
+ * in the parallel phases is measured, and every REBALANCE_TICKS ticks
+ * intersections and roads are moved from the slowest partition to the fastest
+ * one. Intersections and roads do not depend on the partition they run in, so
+ * rebalancing does not change the results, only the order in which listeners
+ * see agents within a phase. Sources never move.
+ */
+public final class TimeServerPartitioned implements TimeServer {
+	public static final int REBALANCE_TICKS = 100;
+	// rebalance when the slowest partition is this much slower than the mean
+	private static final double IMBALANCE = 1.2;
+
+	private final TimeServerBatch[] _partitions;
+	private final AgentPhase[] _phaseOrder = TimeServerParallel.PHASE_ORDER;
+	private final ForkJoinPool _pool;
+	private final double _timeStep;
+	private double _currentTime;
+	private final TimeServerListeners _listeners = new TimeServerListeners();
+	// partition given to the next agent enqueued without a region
+	private int _nextPartition;
+	// ticks between rebalances; 0 if rebalancing is off
+	private final int _rebalanceTicks;
+	// time spent in the parallel phases by each partition since the last rebalance
+	private final long[] _partitionNanos;
+	private int _ticksSinceRebalance;
+	// agents moved by rebalancing since the timeserver was built
+	private int _movedAgents;
+
+	/*
+	 * Runs the phase at one rank of the phase order for a range of partitions.
+	 */
+	private final class PartitionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int _rank;
+		private final int _from;
+		private final int _to;
+		private final boolean _timed;
+
+		PartitionTask(int rank, int from, int to, boolean timed) {
+			this._rank = rank;
+			this._from = from;
+			this._to = to;
+			this._timed = timed;
+		}
+
+		@Override
+		protected void compute() {
+			if (this._to - this._from == 1) {
+				TimeServerPartitioned.this.runPartitionPhase(this._from, this._rank, this._timed);
+			} else {
+				int middle = (this._from + this._to) >>> 1;
+				invokeAll(new PartitionTask(this._rank, this._from, middle, this._timed),
+						new PartitionTask(this._rank, middle, this._to, this._timed));
+			}
+		}
+	}
+
+	public TimeServerPartitioned (double timeStep, Animator animator, boolean rebalance) {
+		this(timeStep, animator, ForkJoinPool.commonPool().getParallelism(), ForkJoinPool.commonPool(), rebalance);
+	}
+
+	public TimeServerPartitioned (double timeStep, Animator animator, int partitions, ForkJoinPool pool,
+			boolean rebalance) {
+		this(timeStep, animator, partitions, pool, rebalance ? REBALANCE_TICKS : 0);
+	}
+
+	/*
+	 * Rebalances every rebalanceTicks ticks instead, or never if it is 0.
+	 */
+	TimeServerPartitioned (double timeStep, Animator animator, int partitions, ForkJoinPool pool,
+			int rebalanceTicks) {
+		if (partitions < 1)
+			throw new IllegalArgumentException ("Need at least one partition");
+		if (pool == null)
+			throw new NullPointerException ("Pool argument cannot be null");
+
+		_partitions = new TimeServerBatch[partitions];
+		for (int idx = 0; idx < partitions; idx++)
+			_partitions[idx] = new TimeServerBatch(timeStep, null, _phaseOrder);
+		_pool = pool;
+		_timeStep = timeStep;
+		if (rebalanceTicks < 0)
+			throw new IllegalArgumentException ("Rebalance ticks cannot be negative");
+		_rebalanceTicks = rebalanceTicks;
+		_partitionNanos = new long[partitions];
+		_listeners.add(animator);
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		String sep = "";
+		for (TimeServerBatch partition : _partitions) {
+			sb.append(sep).append(partition);
+			sep = ";";
+		}
+		sb.append("]");
+		return (sb.toString());
+	}
+
+	public double currentTime() {
+		return _currentTime;
+	}
+
+	public void addListener(TimeServerListener listener) {
+		_listeners.add(listener);
+	}
+
+	public void removeListener(TimeServerListener listener) {
+		_listeners.remove(listener);
+	}
+
+	/*
+	 * Agents enqueued without a region are dealt to the partitions in turn.
+	 */
+	public void enqueue(double waketime, TimeAgent agent)
+			throws IllegalArgumentException
+	{
+		this.enqueue(waketime, agent, _nextPartition);
+		_nextPartition = (_nextPartition + 1) % _partitions.length;
+	}
+
+	@Override
+	public void enqueue(double waketime, TimeAgent agent, int region)
+			throws IllegalArgumentException
+	{
+		if (waketime < _currentTime)
+			throw new IllegalArgumentException();
+		_partitions[Math.floorMod(region, _partitions.length)].enqueue(waketime, agent);
+	}
+
+	public void run(double duration) {
+		double endtime = _currentTime + duration;
+		double waketime;
+		while ((waketime = this.nextWaketime()) <= endtime) {
+
+			_currentTime = waketime;
+			for (TimeServerBatch partition : _partitions)
+				partition.beginTick(waketime);
+			_listeners.tickStarted(waketime);
+
+			for (int rank = 0; rank < _phaseOrder.length; rank++) {
+				for (TimeServerBatch partition : _partitions)
+					partition.startPhase(rank);
+				// the barrier closing each window is the join of the phase
+				if (this.independent(_phaseOrder[rank]) && _partitions.length > 1) {
+					_pool.invoke(new PartitionTask(rank, 0, _partitions.length, _rebalanceTicks > 0));
+				} else {
+					for (int idx = 0; idx < _partitions.length; idx++)
+						this.runPartitionPhase(idx, rank, false);
+				}
+
+				for (TimeServerBatch partition : _partitions) {
+					for (TimeAgent ta : partition.tickPhase(rank))
+						_listeners.agentRan(ta);
+				}
+			}
+
+			_listeners.tickEnded(waketime);
+
+			if (_rebalanceTicks > 0 && ++_ticksSinceRebalance == _rebalanceTicks) {
+				this.rebalance();
+				_ticksSinceRebalance = 0;
+				Arrays.fill(_partitionNanos, 0);
+			}
+
+			for (TimeServerBatch partition : _partitions)
+				partition.endTick();
+		}
+		_currentTime = endtime;
+		for (TimeServerBatch partition : _partitions)
+			partition.advanceTo(endtime);
+		_listeners.runEnded(_currentTime);
+	}
+
+	/*
+	 * Each partition only adds to its own slot of _partitionNanos; the join of
+	 * the phase publishes it to the calling thread.
+	 */
+	private void runPartitionPhase(int partition, int rank, boolean timed) {
+		long start = timed ? System.nanoTime() : 0;
+		for (TimeAgent ta : _partitions[partition].tickPhase(rank))
+			ta.run(_timeStep);
+		if (timed)
+			_partitionNanos[partition] += System.nanoTime() - start;
+	}
+
+	/*
+	 * Moves the share of the slowest partition's work that is above the mean to
+	 * the fastest partition, assuming agents within a partition cost about the
+	 * same. The fastest partition is never pushed above the mean.
+	 */
+	private void rebalance() {
+		int slowest = 0;
+		int fastest = 0;
+		long total = 0;
+		for (int idx = 0; idx < _partitions.length; idx++) {
+			total += _partitionNanos[idx];
+			if (_partitionNanos[idx] > _partitionNanos[slowest])
+				slowest = idx;
+			if (_partitionNanos[idx] < _partitionNanos[fastest])
+				fastest = idx;
+		}
+
+		double mean = (double) total / _partitions.length;
+		if (_partitionNanos[slowest] <= IMBALANCE * mean)
+			return;
+
+		double share = Math.min(_partitionNanos[slowest] - mean, mean - _partitionNanos[fastest]) /
+				_partitionNanos[slowest];
+		for (int rank = 0; rank < _phaseOrder.length; rank++) {
+			if (!this.independent(_phaseOrder[rank]))
+				continue;
+			int count = (int) (_partitions[slowest].tickPhase(rank).size() * share);
+			_movedAgents += _partitions[slowest].moveTickAgents(rank, count, _partitions[fastest]);
+		}
+	}
+
+	int movedAgents() {
+		return _movedAgents;
+	}
+
+	private boolean independent(AgentPhase phase) {
+		return phase.equals(AgentPhase.INTERSECTION) || phase.equals(AgentPhase.ROAD);
+	}
+
+	private double nextWaketime() {
+		double waketime = Double.POSITIVE_INFINITY;
+		for (TimeServerBatch partition : _partitions)
+			waketime = Math.min(waketime, partition.nextWaketime());
+		return waketime;
+	}
+
+	/*
+	 * Resets the timeserver to its original state. Allows the object to be re-used or restarted
+	 * if original timeagents are re-enqueued.
+	 * @see simulator.timeserver.TimeServer#reset()
+	 */
+	@Override
+	public void reset() {
+		_currentTime = 0;
+		_nextPartition = 0;
+		_ticksSinceRebalance = 0;
+		Arrays.fill(_partitionNanos, 0);
+		for (TimeServerBatch partition : _partitions)
+			partition.reset();
+	}
+}
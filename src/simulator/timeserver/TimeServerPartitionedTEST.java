@@ -0,0 +1,155 @@
+package simulator.timeserver;
+
+import java.util.concurrent.ForkJoinPool;
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.agent.AgentPhase;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+
+public class TimeServerPartitionedTEST extends TestCase {
+	private static final int PARTITIONS = 2;
+	private static final int AGENTS = 16;
+	private static final int TICKS = 60;
+	
+	/*
+	 * Updates a value of its own every tick.
+	 */
+	class MockLight implements TimeAgent {
+		final int _id;
+		long _value;
+		
+		MockLight(int id) {
+			this._id = id;
+		}
+		
+		@Override
+		public void run(double tempoFactor) {
+			this._value = (this._value * 31 + this._id) % 1000003;
+		}
+		
+		@Override
+		public AgentPhase phase() {
+			return AgentPhase.INTERSECTION;
+		}
+
+		@Override
+		public String state() {
+			return null;
+		}
+	}
+	
+	/*
+	 * Folds the value of a light, possibly in another partition, into a value
+	 * of its own every tick; slow roads take a while about it.
+	 */
+	class MockRoad implements TimeAgent {
+		final MockLight _light;
+		final boolean _slow;
+		long _value;
+		
+		MockRoad(MockLight light, boolean slow) {
+			this._light = light;
+			this._slow = slow;
+		}
+		
+		@Override
+		public void run(double tempoFactor) {
+			if (this._slow) {
+				long until = System.nanoTime() + 50000;
+				while (System.nanoTime() < until);
+			}
+			this._value = (this._value * 31 + this._light._value) % 1000003;
+		}
+		
+		@Override
+		public AgentPhase phase() {
+			return AgentPhase.ROAD;
+		}
+
+		@Override
+		public String state() {
+			return null;
+		}
+	}
+	
+	class MockAnimator implements Animator {
+		int _updates;
+		
+		@Override
+		public void agentRan(TimeAgent agent) {
+			this._updates++;
+		}
+	}
+	
+	public TimeServerPartitionedTEST(String name) {
+		super(name);
+	}
+	
+	/*
+	 * Runs lights and roads spread over the partitions, the roads of the
+	 * first partition slow, and returns what the roads end up with.
+	 */
+	private long[] run(TimeServer ts) {
+		MockLight[] lights = new MockLight[AGENTS];
+		MockRoad[] roads = new MockRoad[AGENTS];
+		for (int idx = 0; idx < AGENTS; idx++) {
+			lights[idx] = new MockLight(idx);
+			ts.enqueue(1, lights[idx], idx % PARTITIONS);
+		}
+		for (int idx = 0; idx < AGENTS; idx++) {
+			roads[idx] = new MockRoad(lights[(idx + 3) % AGENTS], idx % PARTITIONS == 0);
+			ts.enqueue(1, roads[idx], idx % PARTITIONS);
+		}
+		ts.run(TICKS);
+		
+		long[] values = new long[AGENTS];
+		for (int idx = 0; idx < AGENTS; idx++)
+			values[idx] = roads[idx]._value;
+		return values;
+	}
+	
+	public void testPartitionsRunLikeBatch() {
+		long[] expected = this.run(new TimeServerBatch(1, new MockAnimator(), TimeServerParallel.PHASE_ORDER));
+		
+		// roads read lights of either partition after every light has run
+		ForkJoinPool pool = new ForkJoinPool(PARTITIONS);
+		try {
+			MockAnimator animator = new MockAnimator();
+			Assert.assertArrayEquals(expected, this.run(new TimeServerPartitioned(1, animator, PARTITIONS, pool, false)));
+			Assert.assertEquals(animator._updates, TICKS * 2 * AGENTS);
+			
+			// whatever the number of partitions
+			Assert.assertArrayEquals(expected, this.run(new TimeServerPartitioned(1, new MockAnimator(), 5, pool, false)));
+		} finally {
+			pool.shutdown();
+		}
+		
+		try {
+			new TimeServerPartitioned(1, new MockAnimator(), 0, ForkJoinPool.commonPool(), false);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+	}
+	
+	public void testRebalancingKeepsTheResults() {
+		ForkJoinPool pool = new ForkJoinPool(PARTITIONS);
+		try {
+			long[] expected = this.run(new TimeServerPartitioned(1, new MockAnimator(), PARTITIONS, pool, 0));
+			
+			// agents are moved off the slow partition, and every agent still runs once a tick
+			MockAnimator animator = new MockAnimator();
+			TimeServerPartitioned ts = new TimeServerPartitioned(1, animator, PARTITIONS, pool, 5);
+			Assert.assertArrayEquals(expected, this.run(ts));
+			Assert.assertTrue(ts.movedAgents() > 0);
+			Assert.assertEquals(animator._updates, TICKS * 2 * AGENTS);
+		} finally {
+			pool.shutdown();
+		}
+		
+		// rebalancing cannot be asked for a negative number of ticks
+		try {
+			new TimeServerPartitioned(1, new MockAnimator(), PARTITIONS, ForkJoinPool.commonPool(), -1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {};
+	}
+}
\ No newline at end of file
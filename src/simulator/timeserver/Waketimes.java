@@ -0,0 +1,21 @@
+package simulator.timeserver;
+
+/*
+ * Waketimes of agents that sleep for a number of time steps.
+ */
+final class Waketimes {
+	private Waketimes() {
+	}
+
+	/*
+	 * Adds the time step once per step rather than multiplying, so that an agent
+	 * sleeping n steps wakes at exactly the time it would have reached by being
+	 * re-enqueued on every step.
+	 */
+	static double after(double time, double timeStep, int steps) {
+		double waketime = time;
+		for (int step = 0; step < steps; step++)
+			waketime += timeStep;
+		return waketime;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,308 @@
+package simulator.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * A trace mapped into memory, for reading out of order. The file is mapped
+ * in segments of up to 1 GiB and the index written after the records is
+ * read when the trace is opened, so opening a trace reads nothing but the
+ * index. A trace without an index, for instance one whose run did not end,
+ * is scanned once to build it.
+ *
+ * Cursors seek to a time, or to the first record of a car, with a binary
+ * search of the index followed by a scan of at most INDEX_INTERVAL ticks.
+ * The mapped segments are only read with absolute gets, so any number of
+ * cursors may read the trace at once.
+ */
+public final class MappedTrace implements Closeable {
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+
+	private final FileChannel _channel;
+	private final MappedByteBuffer[] _segments;
+	private final long _recordsEnd;
+	// the index, one entry every TraceFormat.INDEX_INTERVAL ticks
+	private long[] _indexOffsets;
+	private long[] _indexCarIds;
+	private float[] _indexTimes;
+	private int _indexSize;
+
+	/*
+	 * A cursor over the records of the trace, initially before the first.
+	 */
+	public final class Cursor extends TraceCursor {
+		private long _offset;
+
+		private Cursor() {
+			this._offset = TraceFormat.HEADER_BYTES;
+		}
+
+		/*
+		 * Moves to the next record.
+		 * 
+		 * @return false at the end of the trace
+		 */
+		public boolean next() {
+			if (this._offset + TraceFormat.RECORD_BYTES > MappedTrace.this._recordsEnd)
+				return false;
+			ByteBuffer segment = MappedTrace.this.segment(this._offset);
+			int position = MappedTrace.position(this._offset);
+			this.decode(segment.getInt(position), segment.getFloat(position + Integer.BYTES));
+			this._offset += TraceFormat.RECORD_BYTES;
+			return true;
+		}
+
+		/*
+		 * Moves to the next tick record.
+		 * 
+		 * @return false at the end of the trace
+		 */
+		public boolean nextTick() {
+			while (this.next()) {
+				if (this.kind() == RecordKind.TICK)
+					return true;
+			}
+			return false;
+		}
+
+		/*
+		 * Moves to the next car or light record of an agent.
+		 * 
+		 * @return false at the end of the trace
+		 */
+		public boolean nextOfAgent(int agentId) {
+			while (this.next()) {
+				RecordKind kind = this.kind();
+				if ((kind == RecordKind.CAR || kind == RecordKind.LIGHT) && this.agentId() == agentId)
+					return true;
+			}
+			return false;
+		}
+
+		/*
+		 * Moves to the record of a car in the following tick. A car is recorded
+		 * in every tick of its life, so this follows it until it leaves.
+		 * 
+		 * @return false, past the following tick, if the car is not in it
+		 */
+		public boolean nextOfCar(int carId) {
+			int ticks = 0;
+			while (this.next()) {
+				RecordKind kind = this.kind();
+				if (kind == RecordKind.TICK && ++ticks > 1)
+					return false;
+				if (kind == RecordKind.CAR && this.carId() == carId)
+					return true;
+			}
+			return false;
+		}
+
+		/*
+		 * Moves to the record of the first tick at or after a time.
+		 * 
+		 * @return false, at the end of the trace, if there is no such tick
+		 */
+		public boolean seek(double time) {
+			int entry = MappedTrace.this.lastEntryBefore(time);
+			this._offset = (entry < 0) ? TraceFormat.HEADER_BYTES : MappedTrace.this._indexOffsets[entry];
+			while (this.nextTick()) {
+				if (this.time() >= (float) time)
+					return true;
+			}
+			return false;
+		}
+
+		/*
+		 * Moves to the first record of a car.
+		 * 
+		 * @return false if the car is not in the trace
+		 */
+		public boolean seekCar(long carId) {
+			if (carId < 0 || carId > TraceFormat.ID_MASK)
+				return false;
+			long[] carIds = MappedTrace.this._indexCarIds;
+			int size = MappedTrace.this._indexSize;
+			// the car is first recorded after the last entry before which only
+			// lower ids were; a car is recorded at the latest the tick after it
+			// was made, so by the end of the interval after the next
+			int from = lastBelow(carIds, size, carId);
+			int to = from + 2;
+			this._offset = (from < 0) ? TraceFormat.HEADER_BYTES : MappedTrace.this._indexOffsets[from];
+			long end = (to < size) ? MappedTrace.this._indexOffsets[to] : MappedTrace.this._recordsEnd;
+			while (this._offset < end && this.next()) {
+				if (this.kind() == RecordKind.CAR && this.carId() == carId)
+					return true;
+			}
+			return false;
+		}
+	}
+
+	public MappedTrace(Path file) throws IOException {
+		this._channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long indexOffset = TraceFormat.indexOffset(this._channel);
+			this._recordsEnd = (indexOffset < 0) ? this._channel.size() : indexOffset;
+			this._segments = this.map();
+			if (this._recordsEnd < TraceFormat.HEADER_BYTES || 
+					this.segment(0).getInt(0) != TraceFormat.MAGIC)
+				throw new IOException ("Not a trace file: " + file);
+			int version = this.segment(0).getInt(Integer.BYTES);
+			if (version != TraceFormat.VERSION)
+				throw new IOException ("Unsupported trace version " + version + " in " + file);
+
+			if (indexOffset < 0)
+				this.buildIndex();
+			else this.readIndex(indexOffset);
+		} catch (IOException e) {
+			this._channel.close();
+			throw e;
+		}
+	}
+
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/*
+	 * The time of the first tick, or NaN if the trace has none.
+	 */
+	public double firstTime() {
+		return (this._indexSize == 0) ? Double.NaN : this._indexTimes[0];
+	}
+
+	/*
+	 * The time of the last tick, or NaN if the trace has none. Scans the
+	 * ticks after the last index entry.
+	 */
+	public double lastTime() {
+		if (this._indexSize == 0)
+			return Double.NaN;
+		Cursor cursor = new Cursor();
+		cursor._offset = this._indexOffsets[this._indexSize - 1];
+		double time = Double.NaN;
+		while (cursor.nextTick())
+			time = cursor.time();
+		return time;
+	}
+
+	/*
+	 * The mappings are released when they are no longer reachable.
+	 */
+	@Override
+	public void close() throws IOException {
+		this._channel.close();
+	}
+
+	private MappedByteBuffer[] map() throws IOException {
+		int count = (int) ((this._recordsEnd + SEGMENT_BYTES - 1) >>> SEGMENT_SHIFT);
+		MappedByteBuffer[] segments = new MappedByteBuffer[count];
+		for (int idx = 0; idx < count; idx++) {
+			long start = idx * SEGMENT_BYTES;
+			long size = Math.min(SEGMENT_BYTES, this._recordsEnd - start);
+			segments[idx] = this._channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+			segments[idx].order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return segments;
+	}
+
+	/*
+	 * Records never straddle segments: both are multiples of the record width.
+	 */
+	private ByteBuffer segment(long offset) {
+		return this._segments[(int) (offset >>> SEGMENT_SHIFT)];
+	}
+
+	private static int position(long offset) {
+		return (int) (offset & (SEGMENT_BYTES - 1));
+	}
+
+	private void readIndex(long indexOffset) throws IOException {
+		int size = (int) ((this._channel.size() - TraceFormat.FOOTER_BYTES - indexOffset) / TraceFormat.INDEX_ENTRY_BYTES);
+		ByteBuffer index = ByteBuffer.allocate(size * TraceFormat.INDEX_ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		while (index.hasRemaining()) {
+			if (this._channel.read(index, indexOffset + index.position()) < 0)
+				throw new IOException ("Trace index truncated");
+		}
+		index.flip();
+		this.allocateIndex(size);
+		for (int idx = 0; idx < size; idx++) {
+			this._indexOffsets[idx] = index.getLong();
+			this._indexCarIds[idx] = index.getLong();
+			this._indexTimes[idx] = index.getFloat();
+			index.getInt();
+		}
+		this._indexSize = size;
+	}
+
+	/*
+	 * Indexes the trace as TraceWriter does, from the car ids in the records.
+	 */
+	private void buildIndex() {
+		this.allocateIndex(64);
+		long maxCarId = -1;
+		long ticks = 0;
+		Cursor cursor = new Cursor();
+		while (cursor.next()) {
+			RecordKind kind = cursor.kind();
+			if (kind == RecordKind.CAR) {
+				maxCarId = Math.max(maxCarId, cursor.carId());
+			} else if (kind == RecordKind.TICK && ticks++ % TraceFormat.INDEX_INTERVAL == 0) {
+				if (this._indexSize == this._indexOffsets.length) {
+					int capacity = 2 * this._indexSize;
+					this._indexOffsets = Arrays.copyOf(this._indexOffsets, capacity);
+					this._indexCarIds = Arrays.copyOf(this._indexCarIds, capacity);
+					this._indexTimes = Arrays.copyOf(this._indexTimes, capacity);
+				}
+				this._indexOffsets[this._indexSize] = cursor._offset - TraceFormat.RECORD_BYTES;
+				this._indexCarIds[this._indexSize] = maxCarId;
+				this._indexTimes[this._indexSize] = cursor.time();
+				this._indexSize++;
+			}
+		}
+	}
+
+	private void allocateIndex(int capacity) {
+		this._indexOffsets = new long[capacity];
+		this._indexCarIds = new long[capacity];
+		this._indexTimes = new float[capacity];
+	}
+
+	/*
+	 * @return the last index entry with a time before the given one, or -1
+	 */
+	private int lastEntryBefore(double time) {
+		int low = 0;
+		int high = this._indexSize - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (this._indexTimes[mid] < (float) time)
+				low = mid + 1;
+			else high = mid - 1;
+		}
+		return high;
+	}
+
+	/*
+	 * @return the last of the first size values that is below the given one, or -1;
+	 * the values are sorted
+	 */
+	private static int lastBelow(long[] values, int size, long value) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < value)
+				low = mid + 1;
+			else high = mid - 1;
+		}
+		return high;
+	}
+}
\ No newline at end of file
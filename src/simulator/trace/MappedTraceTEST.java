@@ -0,0 +1,130 @@
+package simulator.trace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+import simulator.intersection.TwoWayTrafficLight;
+import simulator.moveable.Moveable;
+import simulator.moveable.MoveableSource;
+import simulator.moveable.Orientation;
+import simulator.road.Road;
+import simulator.road.RoadBuilder;
+
+public class MappedTraceTEST extends TestCase {
+	// enough ticks for several index entries
+	private static final int TICKS = 5 * TraceFormat.INDEX_INTERVAL;
+	
+	class MockAnimator implements Animator {
+		int _ticks;
+		int _updates;
+		double _lastTime = -1;
+		
+		@Override
+		public void tickStarted(double time) {
+			Assert.assertTrue(time > this._lastTime);
+			this._lastTime = time;
+			this._ticks++;
+		}
+		
+		@Override
+		public void agentRan(TimeAgent agent) {
+			Assert.assertTrue(agent.state().startsWith("ROAD 0\nCAR "));
+			
+			// a replayed agent does nothing when run
+			String state = agent.state();
+			agent.run(1);
+			Assert.assertEquals(state, agent.state());
+			this._updates++;
+		}
+	}
+	
+	private Path _file;
+	private long _firstCarId;
+	private long _lastCarId;
+	
+	public MappedTraceTEST(String name) {
+		super(name);
+	}
+	
+	/*
+	 * Writes a trace of a road that gets a new car every tick; cars never
+	 * leave it, so car n is first recorded in tick n.
+	 */
+	@Override
+	protected void setUp() throws IOException {
+		RoadBuilder.BUILDER.setOrientation(Orientation.SOUTH);
+		Road road = RoadBuilder.BUILDER.addIntersection(new TwoWayTrafficLight()).build();
+		MoveableSource source = new MoveableSource(road);
+		
+		this._file = Files.createTempFile("trace", ".trace");
+		TraceWriter writer = new TraceWriter(this._file);
+		for (int tick = 0; tick < TICKS; tick++) {
+			do {
+				source.run(1);
+			} while (!source.fired());
+			writer.tickStarted(tick);
+			writer.agentRan(road);
+			writer.tickEnded(tick);
+		}
+		writer.runEnded(TICKS);
+		writer.close();
+		
+		Iterator<Moveable> cars = road.getAllMoveablesIterator();
+		this._firstCarId = cars.next().id();
+		this._lastCarId = this._firstCarId + TICKS - 1;
+	}
+	
+	@Override
+	protected void tearDown() throws IOException {
+		Files.delete(this._file);
+	}
+	
+	public void testSeek() throws IOException {
+		try (MappedTrace trace = new MappedTrace(this._file)) {
+			Assert.assertEquals(0, trace.firstTime(), 0);
+			Assert.assertEquals(TICKS - 1, trace.lastTime(), 0);
+			
+			MappedTrace.Cursor cursor = trace.cursor();
+			for (int tick = TICKS - 1; tick >= 0; tick -= 7) {
+				Assert.assertTrue(cursor.seek(tick - 0.5));
+				Assert.assertEquals(RecordKind.TICK, cursor.kind());
+				Assert.assertEquals(tick, cursor.time(), 0);
+			}
+			Assert.assertFalse(cursor.seek(TICKS));
+		}
+	}
+	
+	public void testSeekCar() throws IOException {
+		try (MappedTrace trace = new MappedTrace(this._file)) {
+			MappedTrace.Cursor cursor = trace.cursor();
+			for (long id = this._firstCarId; id <= this._lastCarId; id += 13) {
+				Assert.assertTrue(cursor.seekCar(id));
+				Assert.assertEquals(RecordKind.CAR, cursor.kind());
+				Assert.assertEquals((int) id & TraceFormat.ID_MASK, cursor.carId());
+				Assert.assertEquals(id - this._firstCarId, cursor.time(), 0);
+				
+				// the car stays on the road to the end
+				int ticks = 1;
+				while (cursor.nextOfCar((int) id & TraceFormat.ID_MASK))
+					ticks++;
+				Assert.assertEquals(TICKS - (id - this._firstCarId), ticks);
+			}
+			Assert.assertFalse(cursor.seekCar(this._lastCarId + 1));
+		}
+	}
+	
+	public void testPlay() throws IOException {
+		try (MappedTrace trace = new MappedTrace(this._file)) {
+			MockAnimator animator = new MockAnimator();
+			Assert.assertEquals(11, new TracePlayer(trace).play(animator, 10, 20, 0));
+			Assert.assertEquals(11, animator._ticks);
+			Assert.assertEquals(11, animator._updates);
+			Assert.assertEquals(20, animator._lastTime, 0);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package simulator.trace;
+
+/*
+ * The kinds of record in a trace. The ordinal is stored in the record.
+ */
+public enum RecordKind {
+	/* starts the records of a tick; its value is the time */
+	TICK,
+	/* starts the records of an agent that ran; its status is the agent's phase */
+	AGENT,
+	/* a car on the road of the last agent; its value is the front position */
+	CAR,
+	/* a light of the intersection of the last agent; its value is the front position */
+	LIGHT;
+}
\ No newline at end of file
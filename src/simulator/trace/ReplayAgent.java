@@ -0,0 +1,56 @@
+package simulator.trace;
+
+import simulator.agent.AgentPhase;
+import simulator.agent.TimeAgent;
+
+/*
+ * Stands in for a recorded agent when a trace is played back, so that
+ * animators can be handed the agents of a tick as if they had just run.
+ * Its state is the text of the records of the agent in the tick played.
+ */
+final class ReplayAgent implements TimeAgent {
+	private final int _id;
+	private final AgentPhase _phase;
+	private final StringBuilder _state = new StringBuilder();
+
+	ReplayAgent(int id, AgentPhase phase) {
+		this._id = id;
+		this._phase = phase;
+	}
+
+	/*
+	 * Starts the records of the agent in a new tick.
+	 */
+	void clear() {
+		this._state.setLength(0);
+		this._state.append(this._phase).append(" ").append(this._id);
+	}
+
+	void appendCar(TraceCursor cursor) {
+		this._state.append("\nCAR ").append(cursor.carId()).append(" ").append(cursor.carStatus());
+		this._state.append(" ").append(cursor.frontPosition());
+	}
+
+	void appendLight(TraceCursor cursor) {
+		this._state.append("\nLIGHT ").append(cursor.lightOrientation()).append(" ");
+		this._state.append(cursor.lightStatus()).append(" ").append(cursor.frontPosition());
+	}
+
+	/*
+	 * Does nothing: what the agent did is already in its records, so a
+	 * replayed agent handed to a timeserver or a listener that runs agents
+	 * leaves its state as played.
+	 */
+	@Override
+	public void run(double tempoFactor) {}
+
+	@Override
+	public String state() {
+		return this._state.toString();
+	}
+
+	@Override
+	public AgentPhase phase() {
+		return this._phase;
+	}
+}
\ No newline at end of file
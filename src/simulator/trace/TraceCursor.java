@@ -0,0 +1,106 @@
+package simulator.trace;
+
+import simulator.agent.AgentPhase;
+import simulator.intersection.IntersectionStatus;
+import simulator.moveable.MoveableStatus;
+import simulator.moveable.Orientation;
+
+/*
+ * A position in a trace, on one record whose fields are read through the
+ * accessors. The time of the current tick and the id of the current agent are
+ * carried over to the records that follow them.
+ */
+public abstract class TraceCursor {
+	private static final RecordKind[] KINDS = RecordKind.values();
+	private static final AgentPhase[] PHASES = AgentPhase.values();
+	private static final MoveableStatus[] CAR_STATUSES = MoveableStatus.values();
+	private static final IntersectionStatus[] LIGHT_STATUSES = IntersectionStatus.values();
+	private static final Orientation[] ORIENTATIONS = Orientation.values();
+
+	private int _tag;
+	private float _value;
+	private float _time;
+	private int _agentId;
+	private AgentPhase _agentPhase;
+
+	TraceCursor() {}
+
+	/*
+	 * Makes the record with the given fields the current one.
+	 */
+	final void decode(int tag, float value) {
+		this._tag = tag;
+		this._value = value;
+		switch (this.kind()) {
+			case TICK: {
+				this._time = value;
+				break;
+			}
+			case AGENT: {
+				this._agentId = TraceFormat.id(tag);
+				this._agentPhase = PHASES[TraceFormat.status(tag)];
+				break;
+			}
+			default:
+				break;
+		}
+	}
+
+	public RecordKind kind() {
+		return KINDS[TraceFormat.kind(this._tag)];
+	}
+
+	/*
+	 * The time of the tick the record belongs to.
+	 */
+	public float time() {
+		return this._time;
+	}
+
+	/*
+	 * The agent the record belongs to.
+	 */
+	public int agentId() {
+		return this._agentId;
+	}
+
+	public AgentPhase agentPhase() {
+		return this._agentPhase;
+	}
+
+	/*
+	 * @precondition kind() is CAR
+	 * @return the car id
+	 */
+	public int carId() {
+		return TraceFormat.id(this._tag);
+	}
+
+	/*
+	 * @precondition kind() is CAR
+	 */
+	public MoveableStatus carStatus() {
+		return CAR_STATUSES[TraceFormat.status(this._tag)];
+	}
+
+	/*
+	 * @precondition kind() is LIGHT
+	 */
+	public IntersectionStatus lightStatus() {
+		return LIGHT_STATUSES[TraceFormat.status(this._tag)];
+	}
+
+	/*
+	 * @precondition kind() is LIGHT
+	 */
+	public Orientation lightOrientation() {
+		return ORIENTATIONS[TraceFormat.orientation(this._tag)];
+	}
+
+	/*
+	 * The front position of a car or light.
+	 */
+	public float frontPosition() {
+		return this._value;
+	}
+}
\ No newline at end of file
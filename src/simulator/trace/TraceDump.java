@@ -0,0 +1,106 @@
+package simulator.trace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import simulator.animator.TextAnimator;
+
+/*
+ * Prints a trace as text, one line per record. Car and light records are
+ * indented under the agent they belong to, which is indented under its tick.
+ *
+ * With "count", only counts the records of each kind and reports how fast
+ * the trace was read. With "car", prints the records of one car, and with
+ * "play", plays part of the trace through a TextAnimator at a given speed;
+ * both read the trace through a MappedTrace.
+ *
+ * Usage: TraceDump [file] [count | car id | play from to [speed]]
+ */
+public final class TraceDump {
+
+	private TraceDump() {}
+
+	public static void main(String[] args) throws IOException {
+		Path file = Paths.get(args.length > 0 ? args[0] : TraceWriter.DEFAULT_FILE);
+		String mode = args.length > 1 ? args[1] : "";
+		if (mode.equals("count"))
+			count(file);
+		else if (mode.equals("car"))
+			car(file, Long.parseLong(args[2]));
+		else if (mode.equals("play"))
+			play(file, Double.parseDouble(args[2]), Double.parseDouble(args[3]),
+					args.length > 4 ? Double.parseDouble(args[4]) : 0);
+		else dump(file);
+	}
+
+	private static void dump(Path file) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+		try (TraceReader reader = new TraceReader(file)) {
+			StringBuilder line = new StringBuilder();
+			while (reader.next()) {
+				line.setLength(0);
+				switch (reader.kind()) {
+					case TICK: {
+						line.append("TICK ").append(reader.time());
+						break;
+					}
+					case AGENT: {
+						line.append("  ").append(reader.agentPhase()).append(" ").append(reader.agentId());
+						break;
+					}
+					case CAR: {
+						line.append("    CAR ").append(reader.carId()).append(" ").append(reader.carStatus());
+						line.append(" ").append(reader.frontPosition());
+						break;
+					}
+					case LIGHT: {
+						line.append("    LIGHT ").append(reader.lightOrientation()).append(" ");
+						line.append(reader.lightStatus()).append(" ").append(reader.frontPosition());
+						break;
+					}
+				}
+				out.append(line).append(System.lineSeparator());
+			}
+		}
+		out.flush();
+	}
+
+	private static void car(Path file, long carId) throws IOException {
+		try (MappedTrace trace = new MappedTrace(file)) {
+			MappedTrace.Cursor cursor = trace.cursor();
+			if (!cursor.seekCar(carId)) {
+				System.out.println("CAR " + carId + " not in trace");
+				return;
+			}
+			do {
+				System.out.println(String.format("%-12s ROAD %-6d %-10s %s", cursor.time(),
+						cursor.agentId(), cursor.carStatus(), cursor.frontPosition()));
+			} while (cursor.nextOfCar(cursor.carId()));
+		}
+	}
+
+	private static void play(Path file, double from, double to, double speed) throws IOException {
+		try (MappedTrace trace = new MappedTrace(file)) {
+			new TracePlayer(trace).play(new TextAnimator(), from, to, speed);
+		}
+	}
+
+	private static void count(Path file) throws IOException {
+		long[] counts = new long[RecordKind.values().length];
+		long start = System.nanoTime();
+		try (TraceReader reader = new TraceReader(file)) {
+			while (reader.next())
+				counts[reader.kind().ordinal()]++;
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		for (RecordKind kind : RecordKind.values())
+			System.out.println(String.format("%-10s %d", kind, counts[kind.ordinal()]));
+		System.out.println(String.format("read %.1f MB in %.3f s (%.0f MB/s)",
+				Files.size(file) / 1e6, seconds, Files.size(file) / 1e6 / seconds));
+	}
+}
\ No newline at end of file
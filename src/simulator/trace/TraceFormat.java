@@ -0,0 +1,101 @@
+package simulator.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/*
+ * The layout of a trace file. Every record, the header included, is
+ * RECORD_BYTES wide and little-endian: an int tag followed by a float value.
+ * Times and positions are stored as floats, which keeps a car to one record
+ * of 8 bytes; a position along a road a few kilometers long is kept to
+ * within a millimeter, and the time of a tick in the first day of a run to
+ * within a hundredth of a second.
+ *
+ * The tag packs, from the lowest bit up:
+ * 	- the record kind (2 bits)
+ * 	- a status ordinal (2 bits): the agent phase, car status or light status
+ * 	- an orientation ordinal (2 bits), for lights
+ * 	- an id (26 bits): the agent id, modulo 2^26, or the car id; cars are
+ * 	  numbered per model, and a writer fails on a car id that does not fit
+ *
+ * The header holds the magic number and the version, as two ints.
+ *
+ * The records may be followed by a sparse index of the ticks, rewritten at
+ * the end of every run. It has an entry for every INDEX_INTERVAL-th tick,
+ * holding as longs the offset of the tick record and the highest car id
+ * recorded before it (-1 if none), then its time as a float, padded to
+ * INDEX_ENTRY_BYTES. A footer ends the file: the offset of the index as a
+ * long, then the number of entries and INDEX_MAGIC as ints.
+ */
+final class TraceFormat {
+	static final int MAGIC = 0x43525453; // "STRC"
+	static final int VERSION = 1;
+	static final int RECORD_BYTES = 8;
+	static final int HEADER_BYTES = RECORD_BYTES;
+	static final int INDEX_MAGIC = 0x58444e49; // "INDX"
+	static final int INDEX_INTERVAL = 64;
+	static final int INDEX_ENTRY_BYTES = 24;
+	static final int FOOTER_BYTES = 16;
+
+	private static final int KIND_BITS = 2;
+	private static final int STATUS_BITS = 2;
+	private static final int ORIENTATION_BITS = 2;
+	private static final int STATUS_SHIFT = KIND_BITS;
+	private static final int ORIENTATION_SHIFT = STATUS_SHIFT + STATUS_BITS;
+	private static final int ID_SHIFT = ORIENTATION_SHIFT + ORIENTATION_BITS;
+	static final int ID_MASK = (1 << (Integer.SIZE - ID_SHIFT)) - 1;
+
+	private TraceFormat() {}
+
+	static int tag(RecordKind kind, int status, int orientation, long id) {
+		return kind.ordinal() | (status << STATUS_SHIFT) | (orientation << ORIENTATION_SHIFT) |
+				(((int) id & ID_MASK) << ID_SHIFT);
+	}
+
+	static int kind(int tag) {
+		return tag & ((1 << KIND_BITS) - 1);
+	}
+
+	static int status(int tag) {
+		return (tag >>> STATUS_SHIFT) & ((1 << STATUS_BITS) - 1);
+	}
+
+	static int orientation(int tag) {
+		return (tag >>> ORIENTATION_SHIFT) & ((1 << ORIENTATION_BITS) - 1);
+	}
+
+	static int id(int tag) {
+		return tag >>> ID_SHIFT;
+	}
+
+	/*
+	 * @return the offset of the index of a trace, or -1 if it has none
+	 */
+	static long indexOffset(FileChannel channel) throws IOException {
+		long size = channel.size();
+		if (size < HEADER_BYTES + FOOTER_BYTES)
+			return -1;
+		ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		while (footer.hasRemaining()) {
+			if (channel.read(footer, size - FOOTER_BYTES + footer.position()) < 0)
+				return -1;
+		}
+		footer.flip();
+		long offset = footer.getLong();
+		int entries = footer.getInt();
+		if (footer.getInt() != INDEX_MAGIC || offset < HEADER_BYTES || offset % RECORD_BYTES != 0 ||
+				offset + (long) entries * INDEX_ENTRY_BYTES + FOOTER_BYTES != size)
+			return -1;
+		return offset;
+	}
+
+	/*
+	 * @return the offset at which the records of a trace end
+	 */
+	static long recordsEnd(FileChannel channel) throws IOException {
+		long offset = indexOffset(channel);
+		return (offset < 0) ? channel.size() : offset;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package simulator.trace;
+
+import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
+import simulator.animator.Animator;
+
+/*
+ * Plays a trace back through an animator, without running the model. Each
+ * tick of the trace is played as a tick in which the recorded agents ran,
+ * in the order they were recorded; agents are stood in for by ReplayAgents,
+ * one for each agent id.
+ */
+public final class TracePlayer {
+	private final MappedTrace _trace;
+	// the stand-ins, by agent id
+	private final ArrayList<ReplayAgent> _agents = new ArrayList<>();
+
+	public TracePlayer(MappedTrace trace) {
+		if (trace == null)
+			throw new NullPointerException ("Trace argument cannot be null");
+		this._trace = trace;
+	}
+
+	/*
+	 * Plays the ticks from one time to another, speed times faster than
+	 * they were simulated. A speed that is not positive or finite plays the
+	 * ticks as fast as the animator takes them.
+	 * 
+	 * @return the number of ticks played
+	 */
+	public long play(Animator animator, double from, double to, double speed) {
+		boolean paced = speed > 0 && !Double.isInfinite(speed);
+		long start = System.nanoTime();
+		long ticks = 0;
+		float time = (float) from;
+		ReplayAgent agent = null;
+
+		MappedTrace.Cursor cursor = this._trace.cursor();
+		boolean more = cursor.seek(from);
+		while (more && cursor.time() <= (float) to) {
+			time = cursor.time();
+			if (paced)
+				pace(start + (long) ((time - from) / speed * 1e9));
+			animator.tickStarted(time);
+			ticks++;
+
+			while ((more = cursor.next()) && cursor.kind() != RecordKind.TICK) {
+				switch (cursor.kind()) {
+					case AGENT: {
+						if (agent != null)
+							animator.agentRan(agent);
+						agent = this.agent(cursor);
+						agent.clear();
+						break;
+					}
+					case CAR: {
+						agent.appendCar(cursor);
+						break;
+					}
+					case LIGHT: {
+						agent.appendLight(cursor);
+						break;
+					}
+					default:
+						break;
+				}
+			}
+			if (agent != null)
+				animator.agentRan(agent);
+			agent = null;
+			animator.tickEnded(time);
+		}
+		animator.runEnded(time);
+		return ticks;
+	}
+
+	private ReplayAgent agent(TraceCursor cursor) {
+		int id = cursor.agentId();
+		while (this._agents.size() <= id)
+			this._agents.add(null);
+		ReplayAgent agent = this._agents.get(id);
+		if (agent == null || agent.phase() != cursor.agentPhase()) {
+			agent = new ReplayAgent(id, cursor.agentPhase());
+			this._agents.set(id, agent);
+		}
+		return agent;
+	}
+
+	/*
+	 * Waits until the given System.nanoTime().
+	 */
+	private static void pace(long due) {
+		long wait;
+		while ((wait = due - System.nanoTime()) > 0)
+			LockSupport.parkNanos(wait);
+	}
+}
\ No newline at end of file
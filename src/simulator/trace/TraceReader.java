@@ -0,0 +1,79 @@
+package simulator.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Reads a trace written by TraceWriter from start to end. next() moves the
+ * cursor to the following record, so reading a trace allocates nothing.
+ * MappedTrace reads a trace out of order.
+ */
+public final class TraceReader extends TraceCursor implements Closeable {
+	private static final int BUFFER_BYTES = (1 << 20) / TraceFormat.RECORD_BYTES * TraceFormat.RECORD_BYTES;
+
+	private final FileChannel _channel;
+	private final ByteBuffer _buffer;
+	// bytes of records not read from the file yet; the index is not read
+	private long _unread;
+
+	public TraceReader(Path file) throws IOException {
+		this._channel = FileChannel.open(file, StandardOpenOption.READ);
+		this._buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		this._buffer.limit(0);
+		try {
+			this._unread = TraceFormat.recordsEnd(this._channel);
+			if (!this.fill() || this._buffer.getInt() != TraceFormat.MAGIC)
+				throw new IOException ("Not a trace file: " + file);
+			int version = this._buffer.getInt();
+			if (version != TraceFormat.VERSION)
+				throw new IOException ("Unsupported trace version " + version + " in " + file);
+		} catch (IOException e) {
+			this._channel.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * Moves to the next record.
+	 * 
+	 * @return false at the end of the trace
+	 */
+	public boolean next() throws IOException {
+		if (!this.fill())
+			return false;
+		this.decode(this._buffer.getInt(), this._buffer.getFloat());
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this._channel.close();
+	}
+
+	/*
+	 * Makes sure a whole record is buffered, reading more of the file if not.
+	 * A truncated last record is ignored.
+	 * 
+	 * @return false at the end of the records
+	 */
+	private boolean fill() throws IOException {
+		if (this._buffer.remaining() >= TraceFormat.RECORD_BYTES)
+			return true;
+		this._buffer.compact();
+		while (this._buffer.position() < TraceFormat.RECORD_BYTES && this._unread > 0) {
+			if (this._buffer.remaining() > this._unread)
+				this._buffer.limit(this._buffer.position() + (int) this._unread);
+			int read = this._channel.read(this._buffer);
+			if (read < 0)
+				break;
+			this._unread -= read;
+		}
+		this._buffer.flip();
+		return this._buffer.remaining() >= TraceFormat.RECORD_BYTES;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package simulator.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import simulator.agent.TimeAgent;
+import simulator.animator.Animator;
+import simulator.intersection.Intersection;
+import simulator.intersection.IntersectionStatus;
+import simulator.moveable.Moveable;
+import simulator.moveable.Orientation;
+import simulator.road.Road;
+
+/*
+ * An animator that writes a binary trace of the simulation instead of text.
+ * For every agent run in a tick it records the cars on a road, or the lights
+ * of an intersection; other agents, and roads without cars, are left out, as
+ * are ticks in which nothing is recorded.
+ *
+ * Agents are numbered in the order they first run. Records are encoded into a
+ * direct buffer and written to the file when it is full, and at the end of
+ * each run, followed by an index of the ticks which the next run writes
+ * over. The file is closed at the end of each run and reopened by the next,
+ * so it is complete and released whenever the model is not running. See
+ * TraceFormat for the layout, TraceReader and MappedTrace to read it back.
+ */
+public final class TraceWriter implements Animator, Closeable {
+	public static final String DEFAULT_FILE = "simulator.trace";
+	private static final int BUFFER_BYTES = (1 << 20) / TraceFormat.RECORD_BYTES * TraceFormat.RECORD_BYTES;
+	private static final Orientation[] ORIENTATIONS = Orientation.values();
+
+	private final Path _file;
+	// null between runs, when the next run is to write from _resumeOffset
+	private FileChannel _channel;
+	private long _resumeOffset;
+	private final ByteBuffer _buffer;
+	private final IdentityHashMap<TimeAgent, Integer> _agentIds = new IdentityHashMap<>();
+	// records written, the header excluded
+	private long _records;
+	private long _ticks;
+	private long _maxCarId = -1;
+	// the index entries, one every TraceFormat.INDEX_INTERVAL ticks
+	private long[] _indexOffsets = new long[64];
+	private long[] _indexCarIds = new long[64];
+	private float[] _indexTimes = new float[64];
+	private int _indexSize;
+	private double _tickTime;
+	// true until the first record of the current tick is written
+	private boolean _tickPending;
+
+	public TraceWriter(Path file) throws IOException {
+		this._file = file;
+		this._channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		this._buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		this._buffer.putInt(TraceFormat.MAGIC).putInt(TraceFormat.VERSION);
+	}
+
+	@Override
+	public void tickStarted(double time) {
+		this._tickTime = time;
+		this._tickPending = true;
+	}
+
+	@Override
+	public void agentRan(TimeAgent agent) {
+		if (agent instanceof Road) {
+			Iterator<Moveable> moveables = ((Road) agent).getAllMoveablesIterator();
+			if (!moveables.hasNext())
+				return;
+			this.putAgent(agent);
+			while (moveables.hasNext()) {
+				Moveable m = moveables.next();
+				if (m.id() < 0 || m.id() > TraceFormat.ID_MASK)
+					throw new IllegalStateException ("Car id " + m.id() + " does not fit in a trace record");
+				this._maxCarId = Math.max(this._maxCarId, m.id());
+				this.put(TraceFormat.tag(RecordKind.CAR, m.status().ordinal(), 0, m.id()), m.frontPosition());
+			}
+		} else if (agent instanceof Intersection) {
+			Intersection intersection = (Intersection) agent;
+			this.putAgent(agent);
+			for (Orientation o : ORIENTATIONS) {
+				IntersectionStatus status = intersection.lightStatusAlongOrientation(o);
+				if (status != null)
+					this.put(TraceFormat.tag(RecordKind.LIGHT, status.ordinal(), o.ordinal(), 0),
+							intersection.frontPositionAlongOrientation(o));
+			}
+		}
+	}
+
+	@Override
+	public void runEnded(double time) {
+		try {
+			this.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * Writes out what is buffered and the index, and closes the file; the
+	 * next record written reopens it. A writer closed with nothing written
+	 * since is left as it is.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this._channel == null && this._buffer.position() == 0)
+			return;
+		try {
+			this.writeIndex();
+			this._resumeOffset = this._channel.position();
+		} finally {
+			if (this._channel != null)
+				this._channel.close();
+			this._channel = null;
+		}
+	}
+
+	/*
+	 * Writes the tick record first if this is the first record of the tick.
+	 */
+	private void putAgent(TimeAgent agent) {
+		if (this._tickPending) {
+			this._tickPending = false;
+			if (this._ticks++ % TraceFormat.INDEX_INTERVAL == 0)
+				this.addIndexEntry();
+			this.put(TraceFormat.tag(RecordKind.TICK, 0, 0, 0), this._tickTime);
+		}
+		Integer id = this._agentIds.get(agent);
+		if (id == null) {
+			id = this._agentIds.size();
+			this._agentIds.put(agent, id);
+		}
+		this.put(TraceFormat.tag(RecordKind.AGENT, agent.phase().ordinal(), 0, id), 0);
+	}
+
+	private void put(int tag, double value) {
+		try {
+			this.reserve(TraceFormat.RECORD_BYTES);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this._buffer.putInt(tag).putFloat((float) value);
+		this._records++;
+	}
+
+	/*
+	 * Indexes the tick record about to be written.
+	 */
+	private void addIndexEntry() {
+		if (this._indexSize == this._indexOffsets.length) {
+			int capacity = 2 * this._indexSize;
+			this._indexOffsets = Arrays.copyOf(this._indexOffsets, capacity);
+			this._indexCarIds = Arrays.copyOf(this._indexCarIds, capacity);
+			this._indexTimes = Arrays.copyOf(this._indexTimes, capacity);
+		}
+		this._indexOffsets[this._indexSize] = TraceFormat.HEADER_BYTES + this._records * TraceFormat.RECORD_BYTES;
+		this._indexCarIds[this._indexSize] = this._maxCarId;
+		this._indexTimes[this._indexSize] = (float) this._tickTime;
+		this._indexSize++;
+	}
+
+	/*
+	 * Writes out the buffered records followed by the index, then moves back
+	 * to the end of the records so that the next records overwrite the index.
+	 */
+	private void writeIndex() throws IOException {
+		this.flush();
+		long indexOffset = this.channel().position();
+		for (int idx = 0; idx < this._indexSize; idx++) {
+			this.reserve(TraceFormat.INDEX_ENTRY_BYTES);
+			this._buffer.putLong(this._indexOffsets[idx]).putLong(this._indexCarIds[idx]);
+			this._buffer.putFloat(this._indexTimes[idx]).putInt(0);
+		}
+		this.reserve(TraceFormat.FOOTER_BYTES);
+		this._buffer.putLong(indexOffset).putInt(this._indexSize).putInt(TraceFormat.INDEX_MAGIC);
+		this.flush();
+		this._channel.truncate(this._channel.position());
+		this._channel.position(indexOffset);
+	}
+
+	private void reserve(int bytes) throws IOException {
+		if (this._buffer.remaining() < bytes)
+			this.flush();
+	}
+
+	private void flush() throws IOException {
+		FileChannel channel = this.channel();
+		this._buffer.flip();
+		while (this._buffer.hasRemaining())
+			channel.write(this._buffer);
+		this._buffer.clear();
+	}
+
+	/*
+	 * The open file, reopened at the end of the records if a run closed it.
+	 */
+	private FileChannel channel() throws IOException {
+		if (this._channel == null) {
+			this._channel = FileChannel.open(this._file, StandardOpenOption.WRITE);
+			this._channel.position(this._resumeOffset);
+		}
+		return this._channel;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+package simulator.trace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import junit.framework.TestCase;
+import org.junit.Assert;
+import simulator.agent.AgentPhase;
+import simulator.agent.TimeAgent;
+import simulator.intersection.IntersectionStatus;
+import simulator.intersection.TwoWayTrafficLight;
+import simulator.moveable.Moveable;
+import simulator.moveable.MoveableSource;
+import simulator.moveable.Orientation;
+import simulator.road.Road;
+import simulator.road.RoadBuilder;
+
+public class TraceWriterTEST extends TestCase {
+	
+	public TraceWriterTEST(String name) {
+		super(name);
+	}
+	
+	public void testTagRoundTrip() {
+		int tag = TraceFormat.tag(RecordKind.LIGHT, IntersectionStatus.STOP.ordinal(), 
+				Orientation.WEST.ordinal(), TraceFormat.ID_MASK);
+		Assert.assertEquals(RecordKind.LIGHT.ordinal(), TraceFormat.kind(tag));
+		Assert.assertEquals(IntersectionStatus.STOP.ordinal(), TraceFormat.status(tag));
+		Assert.assertEquals(Orientation.WEST.ordinal(), TraceFormat.orientation(tag));
+		Assert.assertEquals(TraceFormat.ID_MASK, TraceFormat.id(tag));
+		
+		// ids wrap around
+		tag = TraceFormat.tag(RecordKind.CAR, 0, 0, TraceFormat.ID_MASK + 2L);
+		Assert.assertEquals(1, TraceFormat.id(tag));
+	}
+	
+	public void testRoadAndLightRoundTrip() throws IOException {
+		Orientation o = Orientation.SOUTH;
+		TwoWayTrafficLight light = new TwoWayTrafficLight();
+		RoadBuilder.BUILDER.setOrientation(o);
+		Road road = RoadBuilder.BUILDER.addIntersection(light).build();
+		MoveableSource source = new MoveableSource(road);
+		while (!source.fired())
+			source.run(1);
+		road.run(1);
+		
+		Iterator<Moveable> cars = road.getAllMoveablesIterator();
+		Moveable car = cars.next();
+		Assert.assertFalse(cars.hasNext());
+		
+		Path file = Files.createTempFile("trace", ".trace");
+		try {
+			TraceWriter writer = new TraceWriter(file);
+			writer.tickStarted(2.5);
+			writer.agentRan(source);
+			writer.agentRan(road);
+			writer.agentRan(light);
+			writer.tickEnded(2.5);
+			// nothing is recorded for an empty tick
+			writer.tickStarted(3);
+			writer.agentRan(source);
+			writer.tickEnded(3);
+			writer.runEnded(3);
+			writer.close();
+			
+			try (TraceReader reader = new TraceReader(file)) {
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(RecordKind.TICK, reader.kind());
+				Assert.assertEquals(2.5f, reader.time(), 0);
+				
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(RecordKind.AGENT, reader.kind());
+				Assert.assertEquals(AgentPhase.ROAD, reader.agentPhase());
+				Assert.assertEquals(0, reader.agentId());
+				
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(RecordKind.CAR, reader.kind());
+				Assert.assertEquals(0, reader.agentId());
+				Assert.assertEquals((int) car.id() & TraceFormat.ID_MASK, reader.carId());
+				Assert.assertEquals(car.status(), reader.carStatus());
+				Assert.assertEquals((float) car.frontPosition(), reader.frontPosition(), 0);
+				
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(RecordKind.AGENT, reader.kind());
+				Assert.assertEquals(AgentPhase.INTERSECTION, reader.agentPhase());
+				Assert.assertEquals(1, reader.agentId());
+				
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(RecordKind.LIGHT, reader.kind());
+				Assert.assertEquals(1, reader.agentId());
+				Assert.assertEquals(o, reader.lightOrientation());
+				Assert.assertEquals(light.lightStatusAlongOrientation(o), reader.lightStatus());
+				Assert.assertEquals((float) light.frontPositionAlongOrientation(o), reader.frontPosition(), 0);
+				
+				Assert.assertFalse(reader.next());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	public void testCarIdsAreNumberedPerModelAndMustFit() throws IOException {
+		// a source on its own numbers its cars from 0
+		RoadBuilder.BUILDER.setOrientation(Orientation.EAST);
+		Road road = RoadBuilder.BUILDER.build();
+		MoveableSource source = new MoveableSource(road);
+		while (!source.fired())
+			source.run(1);
+		Assert.assertEquals(0, road.getAllMoveablesIterator().next().id());
+		
+		// a car whose id does not fit in a record is not written
+		RoadBuilder.BUILDER.setOrientation(Orientation.EAST);
+		road = RoadBuilder.BUILDER.build();
+		source = new MoveableSource(road);
+		source.setCarIds(new AtomicLong(TraceFormat.ID_MASK + 1L));
+		while (!source.fired())
+			source.run(1);
+		
+		Path file = Files.createTempFile("trace", ".trace");
+		try (TraceWriter writer = new TraceWriter(file)) {
+			writer.tickStarted(1);
+			try {
+				writer.agentRan(road);
+				Assert.fail();
+			} catch (IllegalStateException e) {};
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	public void testEveryRunClosesTheTrace() throws IOException {
+		RoadBuilder.BUILDER.setOrientation(Orientation.NORTH);
+		Road road = RoadBuilder.BUILDER.build();
+		MoveableSource source = new MoveableSource(road);
+		while (!source.fired())
+			source.run(1);
+		
+		Path file = Files.createTempFile("trace", ".trace");
+		try {
+			TraceWriter writer = new TraceWriter(file);
+			writer.tickStarted(1);
+			writer.agentRan(road);
+			writer.tickEnded(1);
+			writer.runEnded(1);
+			
+			// the trace of the first run is complete
+			try (MappedTrace trace = new MappedTrace(file)) {
+				Assert.assertEquals(1, trace.firstTime(), 0);
+				Assert.assertEquals(1, trace.lastTime(), 0);
+			}
+			
+			// and the next run goes on from it
+			writer.tickStarted(2);
+			writer.agentRan(road);
+			writer.tickEnded(2);
+			writer.runEnded(2);
+			try (MappedTrace trace = new MappedTrace(file)) {
+				Assert.assertEquals(1, trace.firstTime(), 0);
+				Assert.assertEquals(2, trace.lastTime(), 0);
+			}
+			writer.close();
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
\ No newline at end of file